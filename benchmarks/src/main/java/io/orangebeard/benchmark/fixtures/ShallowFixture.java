@@ -0,0 +1,10 @@
+package io.orangebeard.benchmark.fixtures;
+
+/**
+ * Test class with a short package name; its tests are reported in a shallow suite tree.
+ */
+public class ShallowFixture {
+    public void test() {
+        //only used for its name
+    }
+}
@@ -0,0 +1,10 @@
+package io.orangebeard.benchmark.fixtures.deep.a.b.c.d.e.f.g;
+
+/**
+ * Test class with a long package name; its tests are reported in a deep suite tree.
+ */
+public class DeepFixture {
+    public void test() {
+        //only used for its name
+    }
+}
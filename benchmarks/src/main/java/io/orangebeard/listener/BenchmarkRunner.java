@@ -0,0 +1,44 @@
+package io.orangebeard.listener;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the listener benchmarks for 1, 8 and 64 threads, with the GC profiler enabled so the allocation rate is
+ * reported next to the time per operation. The results of each thread count are written to
+ * <code>jmh-result-&lt;threads&gt;-threads.json</code>.
+ * <p>
+ * Regular JMH command line options (for example <code>-p suiteSize=1000</code> or a benchmark name pattern)
+ * are passed on to each run.
+ */
+public class BenchmarkRunner {
+    private static final int[] THREAD_COUNTS = {1, 8, 64};
+
+    private BenchmarkRunner() {
+        //prevent instantiation
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        for (int threads : THREAD_COUNTS) {
+            OptionsBuilder builder = new OptionsBuilder();
+            builder.parent(commandLineOptions);
+            if (commandLineOptions.getIncludes().isEmpty()) {
+                builder.include(ListenerCallbackBenchmark.class.getSimpleName());
+            }
+            Options options = builder
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("jmh-result-" + threads + "-threads.json")
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package io.orangebeard.listener;
+
+import io.orangebeard.benchmark.fixtures.ShallowFixture;
+import io.orangebeard.benchmark.fixtures.deep.a.b.c.d.e.f.g.DeepFixture;
+
+import org.junit.platform.engine.TestDescriptor;
+import org.junit.platform.engine.UniqueId;
+import org.junit.platform.engine.reporting.ReportEntry;
+import org.junit.platform.engine.support.descriptor.AbstractTestDescriptor;
+import org.junit.platform.launcher.TestIdentifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what the extension and the execution listener add to every test, per callback.
+ * The client is stubbed, so the numbers are the listener's own cost: tree lookups, context bookkeeping,
+ * entity construction and failure rendering.
+ * <p>
+ * Every trial starts with a suite tree and test registry of <code>suiteSize</code> tests, spread over classes of
+ * {@value #TESTS_PER_CLASS} tests each, in a package tree that is either shallow or deep.
+ * Each benchmark thread cycles through those tests, so the registry stays at its initial size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListenerCallbackBenchmark {
+    static final int TESTS_PER_CLASS = 10;
+
+    public enum TreeShape {
+        SHALLOW(ShallowFixture.class),
+        DEEP(DeepFixture.class);
+
+        private final Class<?> fixture;
+
+        TreeShape(Class<?> fixture) {
+            this.fixture = fixture;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ListenerState {
+        @Param({"SHALLOW", "DEEP"})
+        TreeShape shape;
+
+        @Param({"100", "1000", "10000", "100000"})
+        int suiteSize;
+
+        OrangebeardExtension extension;
+        OrangebeardExecutionListener listener;
+        StubExtensionContext fixtureClassContext;
+        StubExtensionContext[] testContexts;
+        TestIdentifier[] testIdentifiers;
+        ReportEntry reportEntry;
+        Throwable failure;
+
+        @Setup(Level.Trial)
+        public void setUp() throws NoSuchMethodException {
+            OrangebeardContext.getInstance().reset();
+            extension = new OrangebeardExtension(new StubOrangebeardClient());
+            listener = new OrangebeardExecutionListener();
+
+            Class<?> fixture = shape.fixture;
+            Method testMethod = fixture.getMethod("test");
+            fixtureClassContext = StubExtensionContext.forClass(classUniqueId(fixture.getName()), fixture);
+            extension.beforeAll(fixtureClassContext);
+            TestSuiteTree packageNode = findPackageNode(fixture);
+
+            int classes = Math.max(1, suiteSize / TESTS_PER_CLASS);
+            testContexts = new StubExtensionContext[suiteSize];
+            testIdentifiers = new TestIdentifier[suiteSize];
+            for (int c = 0; c < classes; c++) {
+                String className = fixture.getPackageName() + ".Generated" + c;
+                String classUniqueId = classUniqueId(className);
+                packageNode.addChild("Generated" + c, classUniqueId, UUID.randomUUID());
+                StubExtensionContext classContext = StubExtensionContext.forClass(classUniqueId, fixture);
+
+                for (int t = c * TESTS_PER_CLASS; t < Math.min(suiteSize, (c + 1) * TESTS_PER_CLASS); t++) {
+                    String testUniqueId = classUniqueId + "/[method:test" + t + "()]";
+                    testContexts[t] = StubExtensionContext.forMethod(classContext, testUniqueId, testMethod);
+                    testIdentifiers[t] = TestIdentifier.from(new MethodDescriptor(UniqueId.parse(testUniqueId), "test" + t + "()"));
+                    OrangebeardContext.getInstance().addTest(testUniqueId, UUID.randomUUID());
+                }
+            }
+
+            reportEntry = ReportEntry.from(Map.of("screenshot", "target/screenshots/test.png"));
+            failure = new AssertionError("expected: <1> but was: <2>");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            OrangebeardContext.getInstance().reset();
+        }
+
+        private static String classUniqueId(String className) {
+            return "[engine:junit-jupiter]/[class:" + className + "]";
+        }
+
+        private static TestSuiteTree findPackageNode(Class<?> fixture) {
+            TestSuiteTree node = OrangebeardContext.getInstance().getSuiteTree();
+            for (String component : fixture.getPackageName().split("\\.")) {
+                node = node.getChildByName(component).orElseThrow();
+            }
+            return node;
+        }
+    }
+
+    /**
+     * Position of a benchmark thread in the list of tests.
+     */
+    @State(Scope.Thread)
+    public static class TestCursor {
+        private int next;
+
+        int next(int size) {
+            int current = next;
+            next = current + 1 == size ? 0 : current + 1;
+            return current;
+        }
+    }
+
+    @Benchmark
+    public void beforeAll(ListenerState state) {
+        state.extension.beforeAll(state.fixtureClassContext);
+    }
+
+    @Benchmark
+    public void beforeEach(ListenerState state, TestCursor cursor) {
+        state.extension.beforeEach(state.testContexts[cursor.next(state.suiteSize)]);
+    }
+
+    @Benchmark
+    public void testSuccessful(ListenerState state, TestCursor cursor) {
+        state.extension.testSuccessful(state.testContexts[cursor.next(state.suiteSize)]);
+    }
+
+    @Benchmark
+    public void testFailed(ListenerState state, TestCursor cursor) {
+        state.extension.testFailed(state.testContexts[cursor.next(state.suiteSize)], state.failure);
+    }
+
+    @Benchmark
+    public void reportingEntryPublished(ListenerState state, TestCursor cursor) {
+        state.listener.reportingEntryPublished(state.testIdentifiers[cursor.next(state.suiteSize)], state.reportEntry);
+    }
+
+    private static class MethodDescriptor extends AbstractTestDescriptor {
+        MethodDescriptor(UniqueId uniqueId, String displayName) {
+            super(uniqueId, displayName);
+        }
+
+        @Override
+        public TestDescriptor.Type getType() {
+            return TestDescriptor.Type.TEST;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package io.orangebeard.listener;
+
+import io.orangebeard.benchmark.fixtures.ShallowFixture;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+
+/**
+ * Measures the heap the listener retains as the number of tests in the run grows, which must stay flat: the listener
+ * keeps no state per finished test or class.
+ * <p>
+ * Runs classes of {@value #TESTS_PER_CLASS} passing tests through the extension with a stubbed client, and prints the
+ * retained heap (the least used heap after a few full collections) after every step. Exits with status 1 if the heap
+ * grew by more than the allowed amount between the first and the last step.
+ * <p>
+ * Usage: <code>java -cp target/benchmarks.jar io.orangebeard.listener.ListenerFootprint [steps] [classes per step] [allowed growth in KB]</code>
+ */
+public class ListenerFootprint {
+    private static final int TESTS_PER_CLASS = 10;
+
+    private final OrangebeardExtension extension;
+    private final StubExtensionContext[] testMethods;
+    private final Method testMethod;
+    private int classes;
+
+    private ListenerFootprint() throws NoSuchMethodException {
+        System.setProperty(ListenerProperties.FINISHED_TEST_RETENTION_MS, "0");
+        OrangebeardContext.getInstance().reset();
+        extension = new OrangebeardExtension(new StubOrangebeardClient());
+        testMethods = new StubExtensionContext[TESTS_PER_CLASS];
+        testMethod = ShallowFixture.class.getMethod("test");
+    }
+
+    public static void main(String[] args) throws NoSuchMethodException, InterruptedException {
+        int steps = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int classesPerStep = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        long allowedGrowth = (args.length > 2 ? Long.parseLong(args[2]) : 1024) * 1024;
+
+        ListenerFootprint footprint = new ListenerFootprint();
+        // The first step warms up: classes loaded and caches filled on the way are not growth.
+        footprint.runClasses(classesPerStep);
+        long baseline = retainedHeap();
+        long retained = baseline;
+        System.out.printf("%10s %16s %16s%n", "tests", "retained heap KB", "growth KB");
+        for (int step = 0; step < steps; step++) {
+            footprint.runClasses(classesPerStep);
+            retained = retainedHeap();
+            System.out.printf("%10d %16d %16d%n", footprint.classes * TESTS_PER_CLASS, retained / 1024, (retained - baseline) / 1024);
+        }
+        OrangebeardContext.getInstance().reset();
+
+        if (retained - baseline > allowedGrowth) {
+            System.out.printf("The retained heap grew by %d KB, more than the allowed %d KB%n", (retained - baseline) / 1024, allowedGrowth / 1024);
+            System.exit(1);
+        }
+    }
+
+    private void runClasses(int count) throws InterruptedException {
+        for (int c = 0; c < count; c++, classes++) {
+            String classUniqueId = "[engine:junit-jupiter]/[class:" + ShallowFixture.class.getName() + classes + "]";
+            StubExtensionContext classContext = StubExtensionContext.forClass(classUniqueId, ShallowFixture.class);
+            for (int t = 0; t < TESTS_PER_CLASS; t++) {
+                testMethods[t] = StubExtensionContext.forMethod(classContext, classUniqueId + "/[method:test" + t + "()]", testMethod);
+            }
+            extension.beforeAll(classContext);
+            for (StubExtensionContext test : testMethods) {
+                extension.beforeEach(test);
+                extension.testSuccessful(test);
+            }
+            extension.afterAll(classContext);
+        }
+        OrangebeardContext.getInstance().getOutboundQueue().awaitEmpty(10_000);
+    }
+
+    private static long retainedHeap() {
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,134 @@
+package io.orangebeard.listener;
+
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExecutableInvoker;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.TestInstances;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Minimal, allocation free {@link ExtensionContext} for the benchmarks.
+ * Only the parts the extension reads are implemented; everything else is absent or unsupported.
+ */
+class StubExtensionContext implements ExtensionContext {
+    private final Optional<ExtensionContext> parent;
+    private final String uniqueId;
+    private final String displayName;
+    private final Optional<Class<?>> testClass;
+    private final Optional<Method> testMethod;
+    private final Optional<Throwable> executionException;
+
+    private StubExtensionContext(ExtensionContext parent, String uniqueId, String displayName, Class<?> testClass, Method testMethod, Throwable executionException) {
+        this.parent = Optional.ofNullable(parent);
+        this.uniqueId = uniqueId;
+        this.displayName = displayName;
+        this.testClass = Optional.ofNullable(testClass);
+        this.testMethod = Optional.ofNullable(testMethod);
+        this.executionException = Optional.ofNullable(executionException);
+    }
+
+    static StubExtensionContext forClass(String uniqueId, Class<?> testClass) {
+        return new StubExtensionContext(null, uniqueId, testClass.getSimpleName(), testClass, null, null);
+    }
+
+    static StubExtensionContext forMethod(StubExtensionContext classContext, String uniqueId, Method testMethod) {
+        return new StubExtensionContext(classContext, uniqueId, testMethod.getName() + "()", testMethod.getDeclaringClass(), testMethod, null);
+    }
+
+    @Override
+    public Optional<ExtensionContext> getParent() {
+        return parent;
+    }
+
+    @Override
+    public ExtensionContext getRoot() {
+        return parent.map(ExtensionContext::getRoot).orElse(this);
+    }
+
+    @Override
+    public String getUniqueId() {
+        return uniqueId;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public Set<String> getTags() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public Optional<AnnotatedElement> getElement() {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<Class<?>> getTestClass() {
+        return testClass;
+    }
+
+    @Override
+    public Optional<TestInstance.Lifecycle> getTestInstanceLifecycle() {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<Object> getTestInstance() {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<TestInstances> getTestInstances() {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<Method> getTestMethod() {
+        return testMethod;
+    }
+
+    @Override
+    public Optional<Throwable> getExecutionException() {
+        return executionException;
+    }
+
+    @Override
+    public Optional<String> getConfigurationParameter(String key) {
+        return Optional.empty();
+    }
+
+    @Override
+    public <T> Optional<T> getConfigurationParameter(String key, Function<String, T> transformer) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void publishReportEntry(Map<String, String> map) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Store getStore(Namespace namespace) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ExecutionMode getExecutionMode() {
+        return ExecutionMode.CONCURRENT;
+    }
+
+    @Override
+    public ExecutableInvoker getExecutableInvoker() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,78 @@
+package io.orangebeard.listener;
+
+import io.orangebeard.client.OrangebeardProperties;
+import io.orangebeard.client.entity.FinishV3TestRun;
+import io.orangebeard.client.entity.StartV3TestRun;
+import io.orangebeard.client.entity.log.Log;
+import io.orangebeard.client.entity.suite.StartSuite;
+import io.orangebeard.client.entity.test.FinishTest;
+import io.orangebeard.client.entity.test.StartTest;
+import io.orangebeard.client.v3.OrangebeardAsyncV3Client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Client that answers every call locally, so the benchmarks measure the listener and not the network.
+ * Calls are counted, which keeps the JIT from removing the work that leads up to them.
+ */
+class StubOrangebeardClient extends OrangebeardAsyncV3Client {
+    private static final UUID TEST_RUN_UUID = UUID.fromString("5b0f0b6e-4a4c-4c43-9d33-2f6f0f1f3a01");
+    private static final UUID TEST_UUID = UUID.fromString("5b0f0b6e-4a4c-4c43-9d33-2f6f0f1f3a02");
+    private static final UUID LOG_UUID = UUID.fromString("5b0f0b6e-4a4c-4c43-9d33-2f6f0f1f3a03");
+
+    private final LongAdder calls = new LongAdder();
+
+    StubOrangebeardClient() {
+        super(new OrangebeardProperties());
+    }
+
+    long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public UUID startTestRun(StartV3TestRun testRun) {
+        calls.increment();
+        return TEST_RUN_UUID;
+    }
+
+    @Override
+    public void finishTestRun(UUID testRunUUID, FinishV3TestRun finishTestRun) {
+        calls.increment();
+    }
+
+    @Override
+    public List<UUID> startSuite(StartSuite startSuite) {
+        calls.increment();
+        List<UUID> suiteIds = new ArrayList<>(startSuite.getSuiteNames().size());
+        for (int i = 0; i < startSuite.getSuiteNames().size(); i++) {
+            suiteIds.add(UUID.randomUUID());
+        }
+        return suiteIds;
+    }
+
+    @Override
+    public UUID startTest(StartTest startTest) {
+        calls.increment();
+        return TEST_UUID;
+    }
+
+    @Override
+    public void finishTest(UUID testUUID, FinishTest finishTest) {
+        calls.increment();
+    }
+
+    @Override
+    public UUID log(Log log) {
+        calls.increment();
+        return LOG_UUID;
+    }
+
+    @Override
+    public void sendLogBatch(List<Log> logs) {
+        calls.increment();
+    }
+}
@@ -0,0 +1,125 @@
+package io.orangebeard.listener;
+
+import io.orangebeard.loadtest.StandInServer;
+import io.orangebeard.loadtest.tests.SyntheticTests;
+
+import org.junit.platform.engine.TestExecutionResult;
+import org.junit.platform.launcher.LauncherDiscoveryRequest;
+import org.junit.platform.launcher.LauncherSession;
+import org.junit.platform.launcher.TestExecutionListener;
+import org.junit.platform.launcher.TestIdentifier;
+import org.junit.platform.launcher.core.LauncherFactory;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectClass;
+import static org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder.request;
+
+/**
+ * Runs the generated tests of {@link SyntheticTests} in parallel through the real extension, execution listener and
+ * client, against a {@link StandInServer}, and reports:
+ * <ul>
+ *     <li>the throughput: tests per second over the whole run, from the launch of the tests until the run is
+ *     finished;</li>
+ *     <li>the latency percentiles of each callback, from the listener metrics;</li>
+ *     <li>the number of requests per endpoint the server received;</li>
+ *     <li>the time to drain: from the end of the last test until the server was told to finish the run.</li>
+ * </ul>
+ * Settings, as system properties:
+ * <ul>
+ *     <li><code>loadtest.tests</code>: the number of tests (default 10000);</li>
+ *     <li><code>loadtest.parallelism</code>: the number of test threads (default: the number of processors);</li>
+ *     <li><code>loadtest.failureRate</code>: the fraction of failing tests (default 0.01);</li>
+ *     <li><code>loadtest.serverLatencyMs</code>: the time the server takes for every request (default 0);</li>
+ *     <li><code>loadtest.serverErrorRate</code>: the fraction of requests the server fails (default 0);</li>
+ *     <li><code>loadtest.serverThreads</code>: the number of requests the server handles at the same time (default 16).</li>
+ * </ul>
+ * The settings of the listener itself (<code>orangebeard.*</code>) are passed on, so the effect of each can be measured.
+ */
+public class LoadTestRunner {
+
+    private LoadTestRunner() {
+        //prevent instantiation
+    }
+
+    public static void main(String[] args) throws IOException {
+        int parallelism = Integer.getInteger("loadtest.parallelism", Runtime.getRuntime().availableProcessors());
+        try (StandInServer server = new StandInServer(Integer.getInteger("loadtest.serverThreads", 16),
+                Long.getLong("loadtest.serverLatencyMs", 0L),
+                Double.parseDouble(System.getProperty("loadtest.serverErrorRate", "0")))) {
+            System.setProperty("orangebeard.endpoint", server.getEndpoint());
+            System.setProperty("orangebeard.accessToken", UUID.randomUUID().toString());
+            System.setProperty("orangebeard.project", "loadtest");
+            System.setProperty("orangebeard.testset", "loadtest");
+            System.setProperty("orangebeard.metrics.file", System.getProperty("orangebeard.metrics.file", "target/loadtest-metrics.json"));
+
+            LauncherDiscoveryRequest request = request()
+                    .selectors(selectClass(SyntheticTests.class))
+                    .configurationParameter("junit.jupiter.execution.parallel.enabled", "true")
+                    .configurationParameter("junit.jupiter.execution.parallel.config.strategy", "fixed")
+                    .configurationParameter("junit.jupiter.execution.parallel.config.fixed.parallelism", String.valueOf(parallelism))
+                    .build();
+            Progress progress = new Progress();
+            long start = System.nanoTime();
+            // The session listener of the listener finishes the run when the session closes.
+            try (LauncherSession session = LauncherFactory.openSession()) {
+                session.getLauncher().execute(request, progress, new OrangebeardExecutionListener());
+            }
+            long end = System.nanoTime();
+
+            report(progress, server, start, end, parallelism);
+        }
+    }
+
+    private static void report(Progress progress, StandInServer server, long start, long end, int parallelism) {
+        long tests = progress.tests.sum();
+        long runFinished = server.getRunFinishedNanos() > 0 ? server.getRunFinishedNanos() : end;
+        double seconds = (runFinished - start) / 1e9;
+        System.out.printf(Locale.ROOT, "%d tests (%d failed) on %d threads in %.3f s: %.0f tests/s%n",
+                tests, progress.failed.sum(), parallelism, seconds, tests / seconds);
+        System.out.printf(Locale.ROOT, "Time to drain after the last test: %d ms%n",
+                TimeUnit.NANOSECONDS.toMillis(runFinished - progress.lastTestFinishedNanos.get()));
+
+        System.out.println("Callback latency (µs):     count      p50      p99    p99.9      max");
+        for (ListenerMetrics.Callback callback : ListenerMetrics.Callback.values()) {
+            LatencyHistogram histogram = ListenerMetrics.getInstance().getHistogram(callback);
+            System.out.printf(Locale.ROOT, "  %-22s %9d %8d %8d %8d %8d%n", callback.name(), histogram.getCount(),
+                    micros(histogram.getPercentile(50)), micros(histogram.getPercentile(99)),
+                    micros(histogram.getPercentile(99.9)), micros(histogram.getMax()));
+        }
+
+        System.out.printf(Locale.ROOT, "Requests: %d (%d failed by the server)%n", server.getRequestCount(), server.getErrors());
+        for (Map.Entry<String, Long> endpoint : server.getRequests().entrySet()) {
+            System.out.printf(Locale.ROOT, "  %-28s %9d%n", endpoint.getKey(), endpoint.getValue());
+        }
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    /**
+     * Counts the tests, and remembers when the last one finished.
+     */
+    private static class Progress implements TestExecutionListener {
+        private final LongAdder tests = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final AtomicLong lastTestFinishedNanos = new AtomicLong();
+
+        @Override
+        public void executionFinished(TestIdentifier testIdentifier, TestExecutionResult testExecutionResult) {
+            if (testIdentifier.isTest()) {
+                tests.increment();
+                if (testExecutionResult.getStatus() != TestExecutionResult.Status.SUCCESSFUL) {
+                    failed.increment();
+                }
+                lastTestFinishedNanos.accumulateAndGet(System.nanoTime(), Math::max);
+            }
+        }
+    }
+}
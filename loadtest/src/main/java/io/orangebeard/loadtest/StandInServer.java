@@ -0,0 +1,239 @@
+package io.orangebeard.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stand-in for the Orangebeard server: it answers the v3 listener endpoints the async client uses, without
+ * storing anything. Every request is counted by endpoint. A latency can be added to each request, and a fraction of
+ * the requests can be answered with a server error, to see how the listener copes with a slow or failing server.
+ * <p>
+ * Requests for paths it does not know are answered with 404 and counted as <code>unknown</code>, so a change in the
+ * client's API shows up in the counts instead of going unnoticed. Requests for a test run it did not start are
+ * answered with 404 as well, and counted separately: a client that sends a UUID of its own instead of the one the
+ * server issued shows up there.
+ */
+public class StandInServer implements AutoCloseable {
+    private static final Pattern ENDPOINT = Pattern.compile("/listener/v3/[^/]+/(.+?)/?");
+    private static final Pattern UUID_SEGMENT = Pattern.compile("/[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+    private static final Pattern SUITE_NAMES = Pattern.compile("\"suiteNames\"\\s*:\\s*\\[(.*?)]", Pattern.DOTALL);
+    private static final Pattern JSON_STRING = Pattern.compile("\"(?:[^\"\\\\]|\\\\.)*\"");
+    private static final Pattern TEST_RUN_UUID = Pattern.compile("\"testRunUUID\"\\s*:\\s*\"([0-9a-fA-F-]{36})\"");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long latencyMillis;
+    private final double errorRate;
+
+    private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+    private final LongAdder errors = new LongAdder();
+    private final Set<UUID> testRuns = ConcurrentHashMap.newKeySet();
+    private final LongAdder unknownRunRequests = new LongAdder();
+    private volatile long runFinishedNanos = -1;
+
+    /**
+     * @param threads The number of requests handled at the same time.
+     * @param latencyMillis The time every request takes.
+     * @param errorRate The fraction (0 to 1) of the requests answered with a server error.
+     */
+    public StandInServer(int threads, long latencyMillis, double errorRate) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.errorRate = errorRate;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "stand-in-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * @return The URL to use as <code>orangebeard.endpoint</code>.
+     */
+    public String getEndpoint() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    /**
+     * @return The number of requests per endpoint, such as <code>POST test/start</code>, sorted by endpoint.
+     */
+    public Map<String, Long> getRequests() {
+        Map<String, Long> counts = new TreeMap<>();
+        requests.forEach((endpoint, count) -> counts.put(endpoint, count.sum()));
+        return counts;
+    }
+
+    public long getRequestCount() {
+        return requests.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    /**
+     * @return The number of requests answered with an injected server error.
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * @return The number of requests for a test run this server did not start.
+     */
+    public long getUnknownRunRequests() {
+        return unknownRunRequests.sum();
+    }
+
+    /**
+     * @return The value of {@link System#nanoTime()} when the request to finish the test run came in, or -1.
+     */
+    public long getRunFinishedNanos() {
+        return runFinishedNanos;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String body = readBody(exchange.getRequestBody());
+            String endpoint = endpoint(exchange.getRequestURI().getPath());
+            requests.computeIfAbsent(endpoint == null ? "unknown" : exchange.getRequestMethod() + " " + endpoint, key -> new LongAdder()).increment();
+            if (endpoint == null) {
+                respond(exchange, 404, "");
+                return;
+            }
+            if (!isKnownRun(exchange.getRequestURI().getPath(), body)) {
+                unknownRunRequests.increment();
+                respond(exchange, 404, "{\"message\":\"unknown test run\"}");
+                return;
+            }
+            if (latencyMillis > 0) {
+                TimeUnit.MILLISECONDS.sleep(latencyMillis);
+            }
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                errors.increment();
+                respond(exchange, 500, "{\"message\":\"injected error\"}");
+                return;
+            }
+            respond(exchange, 200, answer(endpoint, body));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The body of the answer: the UUID of the entity for a start, log or attachment; a UUID per suite name for the
+     * start of suites; nothing for the rest.
+     */
+    private String answer(String endpoint, String body) {
+        switch (endpoint) {
+            case "test-run/start":
+                UUID testRun = UUID.randomUUID();
+                testRuns.add(testRun);
+                return "\"" + testRun + "\"";
+            case "test/start":
+            case "step/start":
+            case "log":
+            case "attachment":
+                return "\"" + UUID.randomUUID() + "\"";
+            case "suite/start":
+                return suiteIds(body);
+            case "test-run/finish/{id}":
+                runFinishedNanos = System.nanoTime();
+                return "";
+            default:
+                return "";
+        }
+    }
+
+    /**
+     * @return Whether the test run a request is for, by the UUID in its path or the <code>testRunUUID</code> in its
+     * body, was started by this server; <code>true</code> for a request without a test run.
+     */
+    private boolean isKnownRun(String path, String body) {
+        if (path.contains("/test-run/")) {
+            Matcher testRun = UUID_SEGMENT.matcher(path);
+            return !testRun.find() || testRuns.contains(UUID.fromString(testRun.group().substring(1)));
+        }
+        Matcher testRun = TEST_RUN_UUID.matcher(body);
+        return !testRun.find() || testRuns.contains(UUID.fromString(testRun.group(1)));
+    }
+
+    private static String suiteIds(String body) {
+        StringJoiner ids = new StringJoiner(",", "[", "]");
+        Matcher names = SUITE_NAMES.matcher(body);
+        if (names.find()) {
+            Matcher name = JSON_STRING.matcher(names.group(1));
+            while (name.find()) {
+                ids.add("\"" + UUID.randomUUID() + "\"");
+            }
+        }
+        return ids.toString();
+    }
+
+    /**
+     * @return The endpoint of a path below <code>/listener/v3/{project}/</code>, with UUIDs replaced by
+     * <code>{id}</code>, or <code>null</code> for an unknown path.
+     */
+    static String endpoint(String path) {
+        Matcher matcher = ENDPOINT.matcher(path);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String endpoint = UUID_SEGMENT.matcher("/" + matcher.group(1)).replaceAll("/{id}").substring(1);
+        switch (endpoint) {
+            case "test-run/start":
+            case "test-run/start/{id}":
+            case "test-run/finish/{id}":
+            case "suite/start":
+            case "test/start":
+            case "test/finish/{id}":
+            case "step/start":
+            case "step/finish/{id}":
+            case "log":
+            case "log/batch":
+            case "attachment":
+                return endpoint;
+            default:
+                return null;
+        }
+    }
+
+    private static String readBody(InputStream body) throws IOException {
+        return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+}
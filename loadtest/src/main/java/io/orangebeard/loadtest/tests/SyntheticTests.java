@@ -0,0 +1,88 @@
+package io.orangebeard.loadtest.tests;
+
+import io.orangebeard.listener.OrangebeardExtension;
+
+import org.junit.jupiter.api.TestTemplate;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.Extension;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolver;
+import org.junit.jupiter.api.extension.TestTemplateInvocationContext;
+import org.junit.jupiter.api.extension.TestTemplateInvocationContextProvider;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * The generated tests of the load test: <code>loadtest.tests</code> invocations of one test template, run
+ * concurrently. Every test does a little work; one in <code>1 / loadtest.failureRate</code> fails, so the failure path
+ * of the listener (stack traces, error logs) is part of the load.
+ */
+@ExtendWith(OrangebeardExtension.class)
+@Execution(ExecutionMode.CONCURRENT)
+public class SyntheticTests {
+    public static final String TESTS = "loadtest.tests";
+    public static final String FAILURE_RATE = "loadtest.failureRate";
+
+    @TestTemplate
+    @ExtendWith(Invocations.class)
+    void test(int number) {
+        double failureRate = Double.parseDouble(System.getProperty(FAILURE_RATE, "0.01"));
+        long checksum = 0;
+        for (int i = 0; i < 1000; i++) {
+            checksum += (long) number * i;
+        }
+        if (failureRate > 0 && number % Math.max(1, Math.round(1 / failureRate)) == 0) {
+            fail("synthetic failure of test " + number + " (checksum " + checksum + ")");
+        }
+    }
+
+    /**
+     * Provides an invocation of the template for every test number.
+     */
+    static class Invocations implements TestTemplateInvocationContextProvider {
+
+        @Override
+        public boolean supportsTestTemplate(ExtensionContext context) {
+            return true;
+        }
+
+        @Override
+        public Stream<TestTemplateInvocationContext> provideTestTemplateInvocationContexts(ExtensionContext context) {
+            return IntStream.range(0, Integer.getInteger(TESTS, 10_000)).mapToObj(Invocation::new);
+        }
+    }
+
+    private static class Invocation implements TestTemplateInvocationContext, ParameterResolver {
+        private final int number;
+
+        Invocation(int number) {
+            this.number = number;
+        }
+
+        @Override
+        public String getDisplayName(int invocationIndex) {
+            return "synthetic test " + number;
+        }
+
+        @Override
+        public List<Extension> getAdditionalExtensions() {
+            return List.of(this);
+        }
+
+        @Override
+        public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+            return parameterContext.getParameter().getType() == int.class;
+        }
+
+        @Override
+        public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+            return number;
+        }
+    }
+}
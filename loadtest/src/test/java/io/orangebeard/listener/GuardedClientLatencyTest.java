@@ -0,0 +1,65 @@
+package io.orangebeard.listener;
+
+import io.orangebeard.client.OrangebeardProperties;
+import io.orangebeard.client.entity.StartV3TestRun;
+import io.orangebeard.client.entity.test.StartTest;
+import io.orangebeard.client.entity.test.TestType;
+import io.orangebeard.loadtest.StandInServer;
+
+import org.junit.jupiter.api.Test;
+import java.time.ZonedDateTime;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The circuit breaker against a stand-in server with a latency: the budget covers the round trip to the server.
+ */
+class GuardedClientLatencyTest {
+
+    @Test
+    void a_server_within_the_budget_keeps_the_circuit_closed() throws Exception {
+        try (StandInServer server = new StandInServer(4, 0, 0)) {
+            CircuitBreaker breaker = new CircuitBreaker(TimeUnit.MILLISECONDS.toNanos(500), 2, TimeUnit.MINUTES.toNanos(1), System::nanoTime);
+            GuardedClient client = guardedClient(server, breaker);
+            UUID testRunUUID = client.startTestRun(new StartV3TestRun("loadtest", null, Set.of()));
+
+            assertThat(client.startTest(startTest(testRunUUID))).isNotNull();
+            assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        }
+    }
+
+    @Test
+    void a_server_slower_than_the_budget_opens_the_circuit() throws Exception {
+        try (StandInServer server = new StandInServer(4, 300, 0)) {
+            CircuitBreaker breaker = new CircuitBreaker(TimeUnit.MILLISECONDS.toNanos(50), 2, TimeUnit.MINUTES.toNanos(1), System::nanoTime);
+            GuardedClient client = guardedClient(server, breaker);
+            UUID testRunUUID = client.startTestRun(new StartV3TestRun("loadtest", null, Set.of()));
+
+            long start = System.nanoTime();
+            assertThat(client.startTest(startTest(testRunUUID))).isNull();
+            assertThat(client.startTest(startTest(testRunUUID))).isNull();
+            assertThat(client.startTest(startTest(testRunUUID))).isNull();
+
+            // Two calls waited for their budget; the third was skipped.
+            assertThat(System.nanoTime() - start).isLessThan(TimeUnit.MILLISECONDS.toNanos(300));
+            assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (server.getRequests().getOrDefault("POST test/start", 0L) < 2 && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            assertThat(server.getRequests()).containsEntry("POST test/start", 2L);
+        }
+    }
+
+    private static GuardedClient guardedClient(StandInServer server, CircuitBreaker breaker) {
+        SynchronousV3Client delegate = new SynchronousV3Client(server.getEndpoint(), UUID.randomUUID(), "loadtest", "loadtest");
+        return new GuardedClient(new OrangebeardProperties(), delegate, breaker);
+    }
+
+    private static StartTest startTest(UUID testRunUUID) {
+        return new StartTest(testRunUUID, null, "test", TestType.TEST, null, null, ZonedDateTime.now());
+    }
+}
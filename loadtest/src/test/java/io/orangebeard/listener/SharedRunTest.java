@@ -0,0 +1,107 @@
+package io.orangebeard.listener;
+
+import io.orangebeard.client.entity.FinishV3TestRun;
+import io.orangebeard.client.entity.StartV3TestRun;
+import io.orangebeard.client.entity.suite.StartSuite;
+import io.orangebeard.client.entity.test.FinishTest;
+import io.orangebeard.client.entity.test.StartTest;
+import io.orangebeard.client.entity.test.TestStatus;
+import io.orangebeard.client.entity.test.TestType;
+import io.orangebeard.client.v3.OrangebeardAsyncV3Client;
+import io.orangebeard.loadtest.StandInServer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Two JVMs of one build sharing a test run through a coordination directory, each with a client of its own, against
+ * a stand-in server that rejects requests for runs it did not start.
+ */
+class SharedRunTest {
+    private static final UUID ACCESS_TOKEN = UUID.randomUUID();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void two_jvms_report_to_the_run_the_server_started() throws Exception {
+        try (StandInServer server = new StandInServer(4, 0, 0)) {
+            Jvm first = new Jvm(server, 1);
+            Jvm second = new Jvm(server, 2);
+
+            UUID testRunUUID = first.join();
+            assertThat(second.join()).isEqualTo(testRunUUID);
+            first.reportTest(testRunUUID, "FirstTest");
+            second.reportTest(testRunUUID, "SecondTest");
+            awaitRequests(server, "PUT test/finish/{id}", 2);
+
+            assertThat(first.coordinator.leave()).isFalse();
+            assertThat(second.coordinator.leave()).isTrue();
+            second.client.finishTestRun(testRunUUID, new FinishV3TestRun());
+            awaitRequests(server, "PUT test-run/finish/{id}", 1);
+
+            assertThat(server.getUnknownRunRequests()).isZero();
+            assertThat(server.getRequests())
+                    .containsEntry("POST test-run/start", 1L)
+                    .containsEntry("PUT test-run/start/{id}", 2L)
+                    .containsEntry("POST suite/start", 2L)
+                    .containsEntry("POST test/start", 2L)
+                    .doesNotContainKey("unknown");
+        }
+    }
+
+    @Test
+    void a_run_the_server_did_not_start_is_rejected() throws Exception {
+        try (StandInServer server = new StandInServer(1, 0, 0)) {
+            SynchronousV3Client client = new SynchronousV3Client(server.getEndpoint(), ACCESS_TOKEN, "loadtest", "loadtest");
+
+            assertThatThrownBy(() -> client.startAnnouncedTestRun(UUID.randomUUID())).isInstanceOf(IllegalStateException.class);
+            assertThat(server.getUnknownRunRequests()).isEqualTo(1);
+        }
+    }
+
+    private static void awaitRequests(StandInServer server, String endpoint, long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (server.getRequests().getOrDefault(endpoint, 0L) < count && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertThat(server.getRequests().getOrDefault(endpoint, 0L)).as(endpoint).isEqualTo(count);
+    }
+
+    /**
+     * What the listener does in one JVM of the build: join the run, starting it on the server if it is the first,
+     * announce it to its own client, and report a test through that client.
+     */
+    private class Jvm {
+        private final RunCoordinator coordinator;
+        private final SynchronousV3Client runStarter;
+        private final OrangebeardAsyncV3Client client;
+
+        Jvm(StandInServer server, long pid) {
+            this.coordinator = new RunCoordinator(null, directory, 0, pid, participant -> true);
+            this.runStarter = new SynchronousV3Client(server.getEndpoint(), ACCESS_TOKEN, "loadtest", "loadtest");
+            this.client = new OrangebeardAsyncV3Client(server.getEndpoint(), ACCESS_TOKEN, "loadtest", "loadtest");
+        }
+
+        UUID join() {
+            UUID testRunUUID = coordinator.join(() -> runStarter.startTestRun(new StartV3TestRun("loadtest", null, Set.of())));
+            client.startAnnouncedTestRun(testRunUUID);
+            return testRunUUID;
+        }
+
+        void reportTest(UUID testRunUUID, String className) {
+            List<UUID> suites = client.startSuite(new StartSuite(testRunUUID, null, null, null, List.of("io", "orangebeard", className)));
+            UUID testUUID = client.startTest(new StartTest(testRunUUID, suites.get(suites.size() - 1), "test", TestType.TEST, null, null, ZonedDateTime.now()));
+            client.finishTest(testUUID, new FinishTest(testRunUUID, TestStatus.PASSED, ZonedDateTime.now()));
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package io.orangebeard.listener;
+
+import io.orangebeard.client.entity.LogFormat;
+import io.orangebeard.client.entity.attachment.Attachment;
+import io.orangebeard.client.entity.attachment.AttachmentFile;
+import io.orangebeard.client.entity.attachment.AttachmentMetaData;
+import io.orangebeard.client.entity.log.Log;
+import io.orangebeard.client.entity.log.LogLevel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Prepares files for upload as attachments of a test, on a few threads of its own, so checking a file does not hold up
+ * the callbacks of the other tests. The attachment goes through the outbound queue, like the logs and results, so it
+ * reaches Orangebeard in order; the finish of a test waits until the files published for it have been queued (see
+ * {@link #whenUploaded}).
+ * <p>
+ * What is queued is a reference to the file, not its content: the file is only read when the attachment is
+ * delivered ({@link #read}), one at a time, so the heap holds at most one file however many attachments wait in the
+ * queue. Files over the size limit are not read at all.
+ */
+class AttachmentUploader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AttachmentUploader.class);
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+    /**
+     * The content type of a queued file reference, whose name is the path of the file and whose content is empty.
+     */
+    private static final String FILE_REFERENCE = "application/x-orangebeard-file-reference";
+    /**
+     * The largest array the JVM reliably allocates.
+     */
+    private static final long MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final Consumer<Log> logSink;
+    private final Consumer<Attachment> attachmentSink;
+    private final long maxBytes;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * The uploads that have not been queued yet, by test, with what waits for them.
+     */
+    private final Map<UUID, PendingUploads> pendingUploads = new HashMap<>();
+    private int pendingUploadCount = 0;
+
+    /**
+     * @param logSink Queues a log.
+     * @param attachmentSink Queues a reference to a file (see {@link #read}). Its log UUID is <code>null</code>: the
+     *                       log that names the file is created when the attachment is delivered.
+     * @param maxBytes The size limit of an attachment; at most {@value #MAX_ARRAY_SIZE} bytes.
+     * @param threads The number of files prepared at the same time.
+     * @param capacity The number of uploads that can wait; when it is reached, the caller waits for room.
+     */
+    AttachmentUploader(Consumer<Log> logSink, Consumer<Attachment> attachmentSink, long maxBytes, int threads, int capacity) {
+        this.logSink = logSink;
+        this.attachmentSink = attachmentSink;
+        this.maxBytes = Math.min(maxBytes, MAX_ARRAY_SIZE);
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, capacity)), runnable -> {
+            Thread thread = new Thread(runnable, "orangebeard-attachments-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, (task, rejectingExecutor) -> {
+            if (rejectingExecutor.isShutdown()) {
+                LOGGER.warn("An attachment was published after the test run finished; it is not uploaded");
+                ((Upload) task).done();
+                return;
+            }
+            try {
+                rejectingExecutor.getQueue().put(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                ((Upload) task).done();
+            }
+        });
+    }
+
+    static AttachmentUploader fromProperties(Consumer<Log> logSink, Consumer<Attachment> attachmentSink, ListenerProperties properties) {
+        return new AttachmentUploader(logSink, attachmentSink,
+                properties.getLong(ListenerProperties.ATTACHMENT_MAX_BYTES, 10L * 1024 * 1024),
+                properties.getInt(ListenerProperties.ATTACHMENT_UPLOAD_THREADS, 2),
+                properties.getInt(ListenerProperties.ATTACHMENT_QUEUE_CAPACITY, 100));
+    }
+
+    /**
+     * Upload a file as an attachment of a test, with a log that names it.
+     *
+     * @param testRunUUID The UUID of the run.
+     * @param testUUID The UUID of the test.
+     * @param name The name of the report entry the file was published with.
+     * @param file The file.
+     * @param time The time the file was published.
+     */
+    void upload(UUID testRunUUID, UUID testUUID, String name, Path file, ZonedDateTime time) {
+        synchronized (pendingUploads) {
+            pendingUploads.computeIfAbsent(testUUID, test -> new PendingUploads()).count++;
+            pendingUploadCount++;
+        }
+        executor.execute(new Upload(testUUID, () -> {
+            try {
+                send(testRunUUID, testUUID, name, file, time);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Unable to upload {} as an attachment", file, e);
+                log(testRunUUID, testUUID, String.format("Unable to upload %s: %s", file, e.getMessage()), LogLevel.WARN, time);
+            }
+        }));
+    }
+
+    /**
+     * Run an action once the uploads requested for a test so far have been queued; right away if there are none.
+     * Used to queue the finish of a test after its attachments.
+     */
+    void whenUploaded(UUID testUUID, Runnable action) {
+        synchronized (pendingUploads) {
+            PendingUploads pending = pendingUploads.get(testUUID);
+            if (pending != null) {
+                pending.waiting.add(action);
+                return;
+            }
+        }
+        action.run();
+    }
+
+    /**
+     * Wait until the uploads requested so far have been queued, at most the given time. The upload threads keep running.
+     *
+     * @return <code>true</code> if no upload is pending.
+     */
+    boolean awaitIdle(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (pendingUploads) {
+            while (pendingUploadCount > 0) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    pendingUploads.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finish the waiting uploads, at most the given time, and stop the upload threads. What waits for uploads that did
+     * not finish in time is run anyway, so no test is left unfinished.
+     *
+     * @return <code>true</code> if every upload finished.
+     */
+    boolean close(long timeoutMillis) {
+        executor.shutdown();
+        boolean finished = false;
+        try {
+            finished = executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!finished) {
+            List<Runnable> remaining = executor.shutdownNow();
+            LOGGER.warn("{} attachments were not uploaded within {} ms", remaining.size(), timeoutMillis);
+            remaining.forEach(task -> ((Upload) task).done());
+        }
+        return finished;
+    }
+
+    private void send(UUID testRunUUID, UUID testUUID, String name, Path file, ZonedDateTime time) throws IOException {
+        long size = Files.size(file);
+        if (size > maxBytes) {
+            log(testRunUUID, testUUID, String.format("%s: %s was not uploaded, as its size (%d bytes) exceeds the limit of %d bytes",
+                    name, file, size, maxBytes), LogLevel.WARN, time);
+            return;
+        }
+        AttachmentFile reference = new AttachmentFile(file.toAbsolutePath().toString(), new byte[0], FILE_REFERENCE);
+        attachmentSink.accept(new Attachment(reference, new AttachmentMetaData(testRunUUID, testUUID, null, null, time)));
+    }
+
+    /**
+     * @return Whether an attachment is a reference to a file, queued by an uploader, that has to be {@link #read}
+     * before it is sent.
+     */
+    static boolean isFileReference(Attachment attachment) {
+        return FILE_REFERENCE.equals(attachment.getFile().getContentType());
+    }
+
+    /**
+     * Read the file a queued reference points to.
+     *
+     * @param reference A reference to a file, queued by an uploader.
+     * @return The attachment with the content of the file.
+     * @throws IOException If the file cannot be read, or has grown beyond the size limit since it was published.
+     */
+    Attachment read(Attachment reference) throws IOException {
+        Path file = Path.of(reference.getFile().getName());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > maxBytes) {
+                throw new IOException(String.format("its size (%d bytes) exceeds the limit of %d bytes", size, maxBytes));
+            }
+            byte[] content = new byte[(int) size];
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // read until the buffer is full, or the file turns out to be shorter
+            }
+            if (buffer.hasRemaining()) {
+                content = Arrays.copyOf(content, buffer.position());
+            }
+            String contentType = Files.probeContentType(file);
+            AttachmentFile attachmentFile = new AttachmentFile(file.getFileName().toString(), content, contentType != null ? contentType : DEFAULT_CONTENT_TYPE);
+            return new Attachment(attachmentFile, reference.getMetaData());
+        }
+    }
+
+    private void log(UUID testRunUUID, UUID testUUID, String message, LogLevel level, ZonedDateTime time) {
+        logSink.accept(new Log(testRunUUID, testUUID, null, message, level, time, LogFormat.PLAIN_TEXT));
+    }
+
+    /**
+     * Mark an upload as queued (or given up), and run what waited for the last upload of its test.
+     */
+    private void uploadDone(UUID testUUID) {
+        List<Runnable> waiting = List.of();
+        synchronized (pendingUploads) {
+            PendingUploads pending = pendingUploads.get(testUUID);
+            if (pending != null && --pending.count == 0) {
+                pendingUploads.remove(testUUID);
+                waiting = pending.waiting;
+            }
+        }
+        // Run before the upload stops counting as pending, so awaitIdle also waits for what it queues.
+        waiting.forEach(Runnable::run);
+        synchronized (pendingUploads) {
+            if (--pendingUploadCount == 0) {
+                pendingUploads.notifyAll();
+            }
+        }
+    }
+
+    private static class PendingUploads {
+        private int count = 0;
+        private final List<Runnable> waiting = new ArrayList<>();
+    }
+
+    /**
+     * An upload task, which marks itself done whether it runs or is rejected.
+     */
+    private final class Upload implements Runnable {
+        private final UUID testUUID;
+        private final Runnable task;
+
+        Upload(UUID testUUID, Runnable task) {
+            this.testUUID = testUUID;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } finally {
+                done();
+            }
+        }
+
+        void done() {
+            uploadDone(testUUID);
+        }
+    }
+}
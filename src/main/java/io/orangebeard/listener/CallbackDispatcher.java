@@ -0,0 +1,106 @@
+package io.orangebeard.listener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the reporting part of the JUnit callbacks away from the test threads.
+ * A callback only captures the values it needs (IDs, names, timestamps, the exception) and hands the rest of its
+ * work to this dispatcher: looking up suites, building entities, rendering stack traces and calling the client.
+ * A single thread runs the tasks in submission order, so every test is started before it is logged to or finished,
+ * and test UUIDs are registered before a later task looks them up.
+ * <p>
+ * The number of waiting tasks is bounded; when it is reached, the callback waits for room, so a slow server slows the
+ * tests down instead of filling the heap.
+ */
+class CallbackDispatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CallbackDispatcher.class);
+
+    private final ThreadPoolExecutor executor;
+
+    CallbackDispatcher(int capacity) {
+        BlockingQueue<Runnable> tasks = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, tasks, runnable -> {
+            Thread thread = new Thread(runnable, "orangebeard-callbacks");
+            thread.setDaemon(true);
+            return thread;
+        }, (task, rejectingExecutor) -> {
+            if (rejectingExecutor.isShutdown()) {
+                // Late callbacks, after the run was finished, are reported as before: on the calling thread.
+                task.run();
+                return;
+            }
+            try {
+                rejectingExecutor.getQueue().put(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOGGER.warn("Interrupted while waiting for room in the callback dispatcher; the callback is not reported");
+            }
+        });
+    }
+
+    /**
+     * @return A dispatcher if <code>orangebeard.dispatch.offload</code> is set, otherwise <code>null</code>: the
+     * callbacks then report on the test threads.
+     */
+    static CallbackDispatcher fromProperties(ListenerProperties properties) {
+        if (!properties.getBoolean(ListenerProperties.DISPATCH_OFFLOAD, false)) {
+            return null;
+        }
+        return new CallbackDispatcher(properties.getInt(ListenerProperties.DISPATCH_CAPACITY, 10_000));
+    }
+
+    /**
+     * Run the task after every task submitted before it.
+     */
+    void execute(Runnable task) {
+        executor.execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Unable to report a callback to Orangebeard", e);
+            }
+        });
+    }
+
+    /**
+     * Wait until the tasks submitted so far have run, at most the given time. The dispatcher keeps running.
+     *
+     * @return <code>true</code> if every task submitted before this call has run.
+     */
+    boolean awaitIdle(long timeoutMillis) {
+        CountDownLatch idle = new CountDownLatch(1);
+        executor.execute(idle::countDown);
+        try {
+            return idle.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Run the tasks that are waiting, at most the given time, and stop the dispatcher thread.
+     *
+     * @return <code>true</code> if every task has run.
+     */
+    boolean close(long timeoutMillis) {
+        executor.shutdown();
+        boolean drained = false;
+        try {
+            drained = executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!drained) {
+            int remaining = executor.shutdownNow().size();
+            LOGGER.warn("{} callbacks were not reported within {} ms", remaining, timeoutMillis);
+        }
+        return drained;
+    }
+}
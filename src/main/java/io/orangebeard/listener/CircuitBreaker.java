@@ -0,0 +1,134 @@
+package io.orangebeard.listener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps a slow or failing Orangebeard server from slowing down the tests.
+ * <p>
+ * Every call to the server has a latency budget. A call that takes longer, or fails, counts as a failure; after a number
+ * of failures in a row, the circuit opens. While it is open, no calls are made: the events are counted as degraded and
+ * not reported. After a while, a single call is let through to probe the server. If it succeeds within its budget, the
+ * circuit closes again; otherwise it stays open for another while.
+ */
+class CircuitBreaker {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    enum State {
+        CLOSED,
+        OPEN,
+        /**
+         * A probe call is on its way; other calls are still skipped.
+         */
+        PROBING
+    }
+
+    private final long budgetNanos;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoTime;
+
+    private volatile State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openUntilNanos;
+    private long degradedSinceOpened = 0;
+
+    /**
+     * @param budgetNanos The time a call may take.
+     * @param failureThreshold The number of slow or failed calls in a row that opens the circuit.
+     * @param openNanos How long the circuit stays open before the server is probed.
+     * @param nanoTime The clock, normally {@link System#nanoTime()}.
+     */
+    CircuitBreaker(long budgetNanos, int failureThreshold, long openNanos, LongSupplier nanoTime) {
+        this.budgetNanos = budgetNanos;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = openNanos;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * @return A circuit breaker if <code>orangebeard.breaker.enabled</code> is set, otherwise <code>null</code>.
+     */
+    static CircuitBreaker fromProperties(ListenerProperties properties) {
+        if (!properties.getBoolean(ListenerProperties.BREAKER_ENABLED, false)) {
+            return null;
+        }
+        return new CircuitBreaker(
+                TimeUnit.MILLISECONDS.toNanos(properties.getLong(ListenerProperties.BREAKER_CALL_BUDGET_MS, 1000L)),
+                properties.getInt(ListenerProperties.BREAKER_FAILURE_THRESHOLD, 5),
+                TimeUnit.MILLISECONDS.toNanos(properties.getLong(ListenerProperties.BREAKER_OPEN_MS, 30_000L)),
+                System::nanoTime);
+    }
+
+    long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    State getState() {
+        return state;
+    }
+
+    /**
+     * Ask whether a call may be made. If not, the caller skips it and reports it with {@link #degraded}.
+     */
+    boolean allowCall() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        synchronized (this) {
+            if (state == State.CLOSED) {
+                return true;
+            }
+            if (state == State.OPEN && nanoTime.getAsLong() - openUntilNanos >= 0) {
+                state = State.PROBING;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Record the outcome of a call that was allowed.
+     *
+     * @param durationNanos How long the call took, or waited before it was given up.
+     * @param failed Whether the call failed.
+     */
+    synchronized void recordCall(long durationNanos, boolean failed) {
+        if (failed || durationNanos > budgetNanos) {
+            consecutiveFailures++;
+            if (state == State.PROBING || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+                open();
+            }
+            return;
+        }
+        consecutiveFailures = 0;
+        if (state != State.CLOSED) {
+            LOGGER.info("Orangebeard responds in time again; {} events were not reported while it did not", degradedSinceOpened);
+            state = State.CLOSED;
+        }
+    }
+
+    /**
+     * Count events that were not reported because a call was skipped or given up.
+     */
+    void degraded(int events) {
+        ListenerMetrics.getInstance().countDegraded(events);
+        synchronized (this) {
+            degradedSinceOpened += events;
+        }
+    }
+
+    private void open() {
+        if (state == State.CLOSED) {
+            degradedSinceOpened = 0;
+            ListenerMetrics.getInstance().countCircuitOpened();
+            LOGGER.warn("Orangebeard is slow or unavailable ({} calls in a row took longer than {} ms or failed); "
+                            + "reporting is skipped until it recovers",
+                    consecutiveFailures, TimeUnit.NANOSECONDS.toMillis(budgetNanos));
+        }
+        state = State.OPEN;
+        openUntilNanos = nanoTime.getAsLong() + openNanos;
+    }
+}
@@ -0,0 +1,46 @@
+package io.orangebeard.listener;
+
+import io.orangebeard.client.OrangebeardProperties;
+import io.orangebeard.client.v3.OrangebeardAsyncV3Client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Creates the client the listener reports to: the live Orangebeard client, or a journal when configured; guarded by a
+ * circuit breaker when configured.
+ */
+final class ClientFactory {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClientFactory.class);
+
+    private ClientFactory() {
+        //prevent instantiation
+    }
+
+    static OrangebeardAsyncV3Client create(OrangebeardProperties orangebeardProperties) {
+        ListenerProperties properties = new ListenerProperties();
+        CircuitBreaker breaker = CircuitBreaker.fromProperties(properties);
+        OrangebeardAsyncV3Client client = createUnguarded(orangebeardProperties, properties, breaker != null);
+        return breaker == null ? client : new GuardedClient(orangebeardProperties, client, breaker);
+    }
+
+    /**
+     * @param synchronous Whether calls have to wait for the server: the latency budget of the circuit breaker has to
+     *                    cover the round trip, which the async client returns before.
+     */
+    private static OrangebeardAsyncV3Client createUnguarded(OrangebeardProperties orangebeardProperties, ListenerProperties properties,
+                                                            boolean synchronous) {
+        if (properties.getBoolean(ListenerProperties.JOURNAL_ENABLED, false)) {
+            Path directory = Path.of(properties.getString(ListenerProperties.JOURNAL_DIRECTORY, "target/orangebeard-journal"));
+            try {
+                return new JournalingClient(orangebeardProperties, directory,
+                        properties.getInt(ListenerProperties.JOURNAL_SEGMENT_SIZE, 64 * 1024 * 1024));
+            } catch (IOException e) {
+                LOGGER.error("Unable to open the journal in {}; reporting to Orangebeard directly", directory, e);
+            }
+        }
+        return synchronous ? new SynchronousV3Client(orangebeardProperties) : new OrangebeardAsyncV3Client(orangebeardProperties);
+    }
+}
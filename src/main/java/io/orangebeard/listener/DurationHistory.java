@@ -0,0 +1,250 @@
+package io.orangebeard.listener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the recent durations of every test on disk, and flags a test that is much slower than it used to be.
+ * <p>
+ * The store is a memory-mapped hash table of fixed-size records, keyed by a 64-bit hash of the test's code
+ * reference. Each record is a ring of the last {@value #SAMPLES} durations of passing runs, in microseconds. Nothing is read up front:
+ * the file is mapped when the first test finishes, and each test only touches its own record, so a store with
+ * hundreds of thousands of tests costs no startup time.
+ * <p>
+ * Parallel forks of a build share the store. A fork locks the records a test may occupy (the probe window of its hash)
+ * while it updates them, and the whole file while it creates the store, so forks only wait for each other when they
+ * finish tests that hash to the same region.
+ * <p>
+ * A passing test is flagged if it took longer than a multiple of a percentile of its history, provided there is
+ * enough history and the test is not too short to measure reliably.
+ */
+class DurationHistory {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DurationHistory.class);
+
+    private static final int MAGIC = 0x4F424448;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+    static final int SAMPLES = 16;
+    private static final int RECORD_SIZE = Long.BYTES + 2 * Integer.BYTES + SAMPLES * Integer.BYTES;
+    private static final int MAX_PROBES = 64;
+    /**
+     * File locks are held by the JVM, not by a thread: overlapping locks in one JVM fail instead of waiting.
+     */
+    private static final Object JVM_LOCK = new Object();
+
+    private final Path file;
+    private final int configuredCapacity;
+    private final double percentile;
+    private final double multiplier;
+    private final int minSamples;
+    private final long minDurationMillis;
+
+    private FileChannel channel;
+    private MappedByteBuffer records;
+    private int capacity;
+    private boolean unavailable = false;
+    private boolean fullReported = false;
+
+    /**
+     * @param file The store; created if it doesn't exist.
+     * @param capacity The number of tests the store can hold, rounded up to a power of two.
+     * @param percentile The percentile of the history to compare with, between 0 and 100.
+     * @param multiplier How many times the percentile a test may take before it is flagged.
+     * @param minSamples The number of passing runs needed before a test can be flagged.
+     * @param minDurationMillis Tests faster than this are never flagged.
+     */
+    DurationHistory(Path file, int capacity, double percentile, double multiplier, int minSamples, long minDurationMillis) {
+        this.file = file;
+        this.configuredCapacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.percentile = percentile;
+        this.multiplier = multiplier;
+        this.minSamples = Math.max(1, Math.min(SAMPLES, minSamples));
+        this.minDurationMillis = minDurationMillis;
+    }
+
+    /**
+     * @return A DurationHistory if <code>orangebeard.history.enabled</code> is set, otherwise <code>null</code>.
+     */
+    static DurationHistory fromProperties(ListenerProperties properties) {
+        if (!properties.getBoolean(ListenerProperties.HISTORY_ENABLED, false)) {
+            return null;
+        }
+        return new DurationHistory(
+                Path.of(properties.getString(ListenerProperties.HISTORY_FILE, ".orangebeard/test-durations.bin")),
+                properties.getInt(ListenerProperties.HISTORY_CAPACITY, 262_144),
+                properties.getDouble(ListenerProperties.HISTORY_PERCENTILE, 95),
+                properties.getDouble(ListenerProperties.HISTORY_MULTIPLIER, 2.0),
+                properties.getInt(ListenerProperties.HISTORY_MIN_SAMPLES, 5),
+                properties.getLong(ListenerProperties.HISTORY_MIN_DURATION_MS, 100));
+    }
+
+    /**
+     * Record the duration of a passing test, and compare it with its history.
+     *
+     * @param codeRef The code reference of the test, which identifies it across runs.
+     * @param durationNanos The duration of the test, as measured by the {@link RunClock}; negative if unknown.
+     * @param passed Whether the test passed; other results are not comparable, and are neither recorded nor flagged.
+     * @return A warning if the test was much slower than usual, otherwise <code>null</code>.
+     */
+    String testFinished(String codeRef, long durationNanos, boolean passed) {
+        if (durationNanos < 0 || !passed) {
+            return null;
+        }
+        return record(codeRef, TimeUnit.NANOSECONDS.toMicros(durationNanos));
+    }
+
+    synchronized String record(String codeRef, long durationMicros) {
+        if (!map()) {
+            return null;
+        }
+        long hash = hash(codeRef);
+        synchronized (JVM_LOCK) {
+            try (FileLock ignored = lockProbeWindow(hash)) {
+                return record(hash, durationMicros);
+            } catch (IOException e) {
+                LOGGER.warn("Unable to lock the test duration history in {}; it is no longer updated", file, e);
+                unavailable = true;
+                records = null;
+                return null;
+            }
+        }
+    }
+
+    private String record(long hash, long durationMicros) {
+        int record = findRecord(hash);
+        if (record < 0) {
+            if (!fullReported) {
+                fullReported = true;
+                LOGGER.warn("The test duration history in {} is full; new tests are not tracked", file);
+            }
+            return null;
+        }
+
+        int count = Math.min(Math.max(records.getInt(record + Long.BYTES), 0), SAMPLES);
+        int next = Math.floorMod(records.getInt(record + Long.BYTES + Integer.BYTES), SAMPLES);
+        int samples = record + Long.BYTES + 2 * Integer.BYTES;
+
+        String warning = null;
+        if (count >= minSamples && durationMicros >= TimeUnit.MILLISECONDS.toMicros(minDurationMillis)) {
+            long[] history = new long[count];
+            for (int i = 0; i < count; i++) {
+                history[i] = records.getInt(samples + i * Integer.BYTES);
+            }
+            Arrays.sort(history);
+            long usual = history[Math.max(0, (int) Math.ceil(percentile / 100 * count) - 1)];
+            if (durationMicros > usual * multiplier) {
+                warning = String.format(Locale.ROOT, "perf-regression: the test took %.3f ms, more than %s times the p%s of its last %d passing runs (%.3f ms)",
+                        durationMicros / 1000.0, multiplier, percentile, count, usual / 1000.0);
+            }
+        }
+
+        records.putInt(samples + next * Integer.BYTES, (int) Math.min(Integer.MAX_VALUE, durationMicros));
+        records.putInt(record + Long.BYTES + Integer.BYTES, (next + 1) % SAMPLES);
+        records.putInt(record + Long.BYTES, Math.min(count + 1, SAMPLES));
+        return warning;
+    }
+
+    /**
+     * Lock the records {@link #findRecord} may read or claim for the hash; all records if the window wraps around.
+     */
+    private FileLock lockProbeWindow(long hash) throws IOException {
+        int first = (int) (hash & (capacity - 1));
+        int probes = Math.min(MAX_PROBES, capacity);
+        if (first + probes > capacity) {
+            return channel.lock(HEADER_SIZE, (long) capacity * RECORD_SIZE, false);
+        }
+        return channel.lock(HEADER_SIZE + (long) first * RECORD_SIZE, (long) probes * RECORD_SIZE, false);
+    }
+
+    /**
+     * @return The offset of the record for the hash, claiming an empty one if needed; -1 if the table is too full.
+     */
+    private int findRecord(long hash) {
+        int mask = capacity - 1;
+        for (int probe = 0; probe < Math.min(MAX_PROBES, capacity); probe++) {
+            int offset = HEADER_SIZE + (int) ((hash + probe) & mask) * RECORD_SIZE;
+            long stored = records.getLong(offset);
+            if (stored == hash) {
+                return offset;
+            }
+            if (stored == 0) {
+                records.putLong(offset, hash);
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Map the store on first use. An existing store keeps its own capacity, so its history is never lost.
+     */
+    private boolean map() {
+        if (records != null || unavailable) {
+            return records != null;
+        }
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            // The channel stays open for the record locks; the mapping outlives it anyway.
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            synchronized (JVM_LOCK) {
+                try (FileLock ignored = channel.lock()) {
+                    int existingCapacity = readCapacity(channel);
+                    capacity = existingCapacity > 0 ? existingCapacity : configuredCapacity;
+                    records = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+                    if (existingCapacity <= 0) {
+                        records.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, capacity);
+                    }
+                }
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            unavailable = true;
+            LOGGER.warn("Unable to open the test duration history in {}", file, e);
+            return false;
+        }
+    }
+
+    /**
+     * @return The capacity of an existing store, or 0 if the file is new or not a valid store (it is then started over).
+     */
+    private static int readCapacity(FileChannel channel) throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            return 0;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        int capacity = header.getInt(8);
+        boolean valid = header.getInt(0) == MAGIC && header.getInt(4) == VERSION
+                && Integer.bitCount(capacity) == 1 && channel.size() == HEADER_SIZE + (long) capacity * RECORD_SIZE;
+        if (!valid) {
+            channel.truncate(0);
+            return 0;
+        }
+        return capacity;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the code reference; never 0, which marks an empty record.
+     */
+    static long hash(String codeRef) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < codeRef.length(); i++) {
+            hash ^= codeRef.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+}
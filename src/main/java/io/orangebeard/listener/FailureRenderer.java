@@ -0,0 +1,189 @@
+package io.orangebeard.listener;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Renders the stack trace of a failure, in the format of {@link Throwable#printStackTrace()}, within fixed bounds.
+ * <ul>
+ *     <li>Consecutive frames of framework packages (JUnit, reflection, surefire, ...) are folded into a single line.</li>
+ *     <li>At most <code>maxCauseDepth</code> causes and suppressed exceptions are rendered.</li>
+ *     <li>The text is cut off at <code>maxChars</code> characters.</li>
+ * </ul>
+ * Rendering happens in a buffer that is reused per thread, so a StackOverflowError or a deeply wrapped exception
+ * costs at most the budget, instead of megabytes of intermediate strings.
+ */
+class FailureRenderer {
+    static final List<String> DEFAULT_FOLDED_PACKAGES = List.of(
+            "org.junit.",
+            "jdk.internal.reflect.",
+            "java.lang.reflect.",
+            "sun.reflect.",
+            "org.apache.maven.surefire.",
+            "org.gradle.");
+    private static final String TRUNCATED = "\n\t... (truncated)";
+
+    private final int maxChars;
+    private final int maxCauseDepth;
+    private final List<String> foldedPackages;
+    private final ThreadLocal<StringBuilder> buffers = ThreadLocal.withInitial(StringBuilder::new);
+
+    /**
+     * @param maxChars The maximum length of the rendered stack trace.
+     * @param maxCauseDepth The maximum number of nested causes and suppressed exceptions to render.
+     * @param foldedPackages Prefixes of the class names of frames that are folded.
+     */
+    FailureRenderer(int maxChars, int maxCauseDepth, List<String> foldedPackages) {
+        this.maxChars = Math.max(TRUNCATED.length(), maxChars);
+        this.maxCauseDepth = Math.max(0, maxCauseDepth);
+        this.foldedPackages = List.copyOf(foldedPackages);
+    }
+
+    static FailureRenderer fromProperties(ListenerProperties properties) {
+        return new FailureRenderer(
+                properties.getInt(ListenerProperties.STACK_TRACE_MAX_CHARS, 64 * 1024),
+                properties.getInt(ListenerProperties.STACK_TRACE_MAX_CAUSE_DEPTH, 10),
+                properties.getList(ListenerProperties.STACK_TRACE_FOLDED_PACKAGES, DEFAULT_FOLDED_PACKAGES));
+    }
+
+    /**
+     * @return The message of the failure, cut off at <code>maxChars</code> characters like the stack trace; null if
+     * the failure has no message.
+     */
+    String renderMessage(Throwable throwable) {
+        String message = throwable.getMessage();
+        if (message == null || message.length() <= maxChars) {
+            return message;
+        }
+        return message.substring(0, maxChars - TRUNCATED.length()) + TRUNCATED;
+    }
+
+    String render(Throwable throwable) {
+        StringBuilder buffer = buffers.get();
+        buffer.setLength(0);
+        try {
+            Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            appendThrowable(buffer, throwable, new StackTraceElement[0], "", "", 0, seen);
+        } catch (BudgetExceeded e) {
+            buffer.setLength(maxChars - TRUNCATED.length());
+            buffer.append(TRUNCATED);
+        }
+        String rendered = buffer.toString();
+        if (buffer.capacity() > 2 * maxChars) {
+            // Don't keep an oversized buffer around after an unusually large failure.
+            buffers.remove();
+        }
+        return rendered;
+    }
+
+    private void appendThrowable(StringBuilder buffer, Throwable throwable, StackTraceElement[] enclosingTrace,
+                                 String caption, String prefix, int depth, Set<Throwable> seen) {
+        if (!seen.add(throwable)) {
+            buffer.append(prefix).append(caption).append("[CIRCULAR REFERENCE: ").append(throwable.getClass().getName()).append("]\n");
+            return;
+        }
+        buffer.append(prefix).append(caption).append(throwable.getClass().getName());
+        String message = throwable.getLocalizedMessage();
+        if (message != null) {
+            // A message can be huge by itself (think of a full response body); never copy more than fits the budget.
+            int remaining = Math.max(0, maxChars - buffer.length() + 1);
+            buffer.append(": ").append(message, 0, Math.min(message.length(), remaining));
+        }
+        buffer.append('\n');
+        checkBudget(buffer);
+
+        StackTraceElement[] trace = throwable.getStackTrace();
+        // Frames in common with the enclosing trace are not repeated, like Throwable.printStackTrace does.
+        int last = trace.length - 1;
+        int lastEnclosing = enclosingTrace.length - 1;
+        while (last >= 0 && lastEnclosing >= 0 && trace[last].equals(enclosingTrace[lastEnclosing])) {
+            last--;
+            lastEnclosing--;
+        }
+        int framesInCommon = trace.length - 1 - last;
+
+        int folded = 0;
+        for (int i = 0; i <= last; i++) {
+            if (isFolded(trace[i])) {
+                folded++;
+                continue;
+            }
+            appendFolded(buffer, prefix, folded);
+            folded = 0;
+            appendFrame(buffer, prefix, trace[i]);
+            checkBudget(buffer);
+        }
+        appendFolded(buffer, prefix, folded);
+        if (framesInCommon != 0) {
+            buffer.append(prefix).append("\t... ").append(framesInCommon).append(" more\n");
+        }
+
+        if (depth >= maxCauseDepth) {
+            if (throwable.getCause() != null || throwable.getSuppressed().length > 0) {
+                buffer.append(prefix).append("\t... further causes omitted\n");
+            }
+            return;
+        }
+        for (Throwable suppressed : throwable.getSuppressed()) {
+            appendThrowable(buffer, suppressed, trace, "Suppressed: ", prefix + "\t", depth + 1, seen);
+        }
+        Throwable cause = throwable.getCause();
+        if (cause != null) {
+            appendThrowable(buffer, cause, trace, "Caused by: ", prefix, depth + 1, seen);
+        }
+    }
+
+    private boolean isFolded(StackTraceElement frame) {
+        String className = frame.getClassName();
+        for (String foldedPackage : foldedPackages) {
+            if (className.startsWith(foldedPackage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void appendFolded(StringBuilder buffer, String prefix, int folded) {
+        if (folded > 0) {
+            buffer.append(prefix).append("\t... ").append(folded).append(folded == 1 ? " framework frame\n" : " framework frames\n");
+        }
+    }
+
+    private static void appendFrame(StringBuilder buffer, String prefix, StackTraceElement frame) {
+        buffer.append(prefix).append("\tat ");
+        if (frame.getModuleName() != null) {
+            buffer.append(frame.getModuleName()).append('/');
+        }
+        buffer.append(frame.getClassName()).append('.').append(frame.getMethodName()).append('(');
+        if (frame.isNativeMethod()) {
+            buffer.append("Native Method");
+        } else if (frame.getFileName() == null) {
+            buffer.append("Unknown Source");
+        } else {
+            buffer.append(frame.getFileName());
+            if (frame.getLineNumber() >= 0) {
+                buffer.append(':').append(frame.getLineNumber());
+            }
+        }
+        buffer.append(")\n");
+    }
+
+    private void checkBudget(StringBuilder buffer) {
+        if (buffer.length() > maxChars) {
+            throw BudgetExceeded.INSTANCE;
+        }
+    }
+
+    /**
+     * Thrown to stop rendering once the budget is used up; preallocated and without a stack trace of its own.
+     */
+    private static final class BudgetExceeded extends RuntimeException {
+        private static final BudgetExceeded INSTANCE = new BudgetExceeded();
+
+        private BudgetExceeded() {
+            super(null, null, false, false);
+        }
+    }
+}
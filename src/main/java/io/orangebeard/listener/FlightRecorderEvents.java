@@ -0,0 +1,178 @@
+package io.orangebeard.listener;
+
+import io.orangebeard.client.entity.test.TestStatus;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JDK Flight Recorder events for the test lifecycle, so a recording can be lined up with the Orangebeard run:
+ * a duration event per test class and per test, and an instant event per failure. Each carries the JUnit unique ID
+ * and the Orangebeard UUIDs.
+ * The events begin and end on the thread that runs the test, so they span the test itself, whichever thread reports
+ * it. The UUIDs are added when the reporting knows them; a test that ends before it has been reported (when the
+ * callbacks are offloaded) is recorded without them.
+ * When no recording has the events enabled, every method returns after a single check, without allocating.
+ */
+class FlightRecorderEvents {
+    private static final String CATEGORY = "Orangebeard";
+
+    private static final EventType TEST_CLASS = EventType.getEventType(TestClassEvent.class);
+    private static final EventType TEST = EventType.getEventType(TestEvent.class);
+    private static final EventType TEST_FAILURE = EventType.getEventType(TestFailureEvent.class);
+
+    /**
+     * Events that have begun, by unique ID.
+     */
+    private final Map<String, TestClassEvent> classes = new ConcurrentHashMap<>();
+    private final Map<String, TestEvent> tests = new ConcurrentHashMap<>();
+
+    void classStarted(String uniqueId, String className) {
+        if (!TEST_CLASS.isEnabled()) {
+            return;
+        }
+        TestClassEvent event = new TestClassEvent();
+        event.uniqueId = uniqueId;
+        event.className = className;
+        event.begin();
+        classes.put(uniqueId, event);
+    }
+
+    void classReported(String uniqueId, UUID suiteUUID) {
+        TestClassEvent event = classes.isEmpty() ? null : classes.get(uniqueId);
+        if (event != null) {
+            synchronized (event) {
+                event.suiteUUID = toString(suiteUUID);
+            }
+        }
+    }
+
+    void classFinished(String uniqueId) {
+        TestClassEvent event = classes.isEmpty() ? null : classes.remove(uniqueId);
+        if (event != null) {
+            synchronized (event) {
+                event.commit();
+            }
+        }
+    }
+
+    void testStarted(String uniqueId, String name) {
+        if (!TEST.isEnabled()) {
+            return;
+        }
+        TestEvent event = new TestEvent();
+        event.uniqueId = uniqueId;
+        event.name = name;
+        event.begin();
+        tests.put(uniqueId, event);
+    }
+
+    void testReported(String uniqueId, UUID testUUID, UUID suiteUUID) {
+        TestEvent event = tests.isEmpty() ? null : tests.get(uniqueId);
+        if (event != null) {
+            synchronized (event) {
+                event.testUUID = toString(testUUID);
+                event.suiteUUID = toString(suiteUUID);
+            }
+        }
+    }
+
+    void testFinished(String uniqueId, TestStatus status) {
+        TestEvent event = tests.isEmpty() ? null : tests.remove(uniqueId);
+        if (event != null) {
+            synchronized (event) {
+                event.status = status.name();
+                event.commit();
+            }
+        }
+    }
+
+    void testFailed(String uniqueId, Throwable cause) {
+        if (!TEST_FAILURE.isEnabled()) {
+            return;
+        }
+        TestFailureEvent event = new TestFailureEvent();
+        event.uniqueId = uniqueId;
+        TestEvent test = tests.get(uniqueId);
+        if (test != null) {
+            synchronized (test) {
+                event.testUUID = test.testUUID;
+                event.suiteUUID = test.suiteUUID;
+            }
+        }
+        event.exceptionClass = cause.getClass();
+        event.message = cause.getMessage();
+        event.commit();
+    }
+
+    private static String toString(UUID uuid) {
+        return uuid == null ? null : uuid.toString();
+    }
+
+    @Name("io.orangebeard.TestClass")
+    @Label("Test Class")
+    @Category(CATEGORY)
+    @Description("Execution of a test class, from beforeAll to afterAll")
+    @StackTrace(false)
+    static class TestClassEvent extends Event {
+        @Label("Unique ID")
+        String uniqueId;
+
+        @Label("Class Name")
+        String className;
+
+        @Label("Suite UUID")
+        String suiteUUID;
+    }
+
+    @Name("io.orangebeard.Test")
+    @Label("Test")
+    @Category(CATEGORY)
+    @Description("Execution of a test, from beforeEach to its result")
+    @StackTrace(false)
+    static class TestEvent extends Event {
+        @Label("Unique ID")
+        String uniqueId;
+
+        @Label("Name")
+        String name;
+
+        @Label("Test UUID")
+        String testUUID;
+
+        @Label("Suite UUID")
+        String suiteUUID;
+
+        @Label("Status")
+        String status;
+    }
+
+    @Name("io.orangebeard.TestFailure")
+    @Label("Test Failure")
+    @Category(CATEGORY)
+    @Description("A test failed")
+    static class TestFailureEvent extends Event {
+        @Label("Unique ID")
+        String uniqueId;
+
+        @Label("Test UUID")
+        String testUUID;
+
+        @Label("Suite UUID")
+        String suiteUUID;
+
+        @Label("Exception Class")
+        Class<?> exceptionClass;
+
+        @Label("Message")
+        String message;
+    }
+}
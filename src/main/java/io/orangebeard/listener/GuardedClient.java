@@ -0,0 +1,149 @@
+package io.orangebeard.listener;
+
+import io.orangebeard.client.OrangebeardProperties;
+import io.orangebeard.client.entity.FinishV3TestRun;
+import io.orangebeard.client.entity.StartV3TestRun;
+import io.orangebeard.client.entity.attachment.Attachment;
+import io.orangebeard.client.entity.log.Log;
+import io.orangebeard.client.entity.suite.StartSuite;
+import io.orangebeard.client.entity.test.FinishTest;
+import io.orangebeard.client.entity.test.StartTest;
+import io.orangebeard.client.v3.OrangebeardAsyncV3Client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drop-in replacement for the client that puts a {@link CircuitBreaker} around the calls made while the tests run.
+ * A call is given up when it exceeds its latency budget; it then returns <code>null</code>, as it does while the
+ * circuit is open, and the listener carries on without the entity. Starting and finishing the run are passed on as
+ * they are. Selected with <code>orangebeard.breaker.enabled=true</code>.
+ * <p>
+ * The budget only means something if the delegate waits for the server, so the delegate is a
+ * {@link SynchronousV3Client} (or the journal). That costs throughput: every call is a round trip, where the async
+ * client would have returned at once and sent the requests in the background.
+ */
+class GuardedClient extends OrangebeardAsyncV3Client {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GuardedClient.class);
+
+    private final OrangebeardAsyncV3Client delegate;
+    private final CircuitBreaker breaker;
+    /**
+     * Runs the calls, so the calling thread can stop waiting when the budget is spent. A call that is given up keeps
+     * its thread until it returns; as the circuit opens after a few of those, few threads are ever created.
+     */
+    private final ExecutorService calls;
+
+    GuardedClient(OrangebeardProperties orangebeardProperties, OrangebeardAsyncV3Client delegate, CircuitBreaker breaker) {
+        super(orangebeardProperties);
+        this.delegate = delegate;
+        this.breaker = breaker;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.calls = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "orangebeard-calls-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public UUID startTestRun(StartV3TestRun testRun) {
+        return delegate.startTestRun(testRun);
+    }
+
+    @Override
+    public void startAnnouncedTestRun(UUID testRunUUID) {
+        delegate.startAnnouncedTestRun(testRunUUID);
+    }
+
+    @Override
+    public void finishTestRun(UUID testRunUUID, FinishV3TestRun finishTestRun) {
+        delegate.finishTestRun(testRunUUID, finishTestRun);
+        calls.shutdown();
+    }
+
+    @Override
+    public List<UUID> startSuite(StartSuite startSuite) {
+        return call(() -> delegate.startSuite(startSuite), startSuite.getSuiteNames().size());
+    }
+
+    @Override
+    public UUID startTest(StartTest startTest) {
+        return call(() -> delegate.startTest(startTest), 1);
+    }
+
+    @Override
+    public void finishTest(UUID testUUID, FinishTest finishTest) {
+        call(() -> {
+            delegate.finishTest(testUUID, finishTest);
+            return null;
+        }, 1);
+    }
+
+    @Override
+    public UUID log(Log log) {
+        return call(() -> delegate.log(log), 1);
+    }
+
+    @Override
+    public void sendLogBatch(List<Log> logs) {
+        call(() -> {
+            delegate.sendLogBatch(logs);
+            return null;
+        }, logs.size());
+    }
+
+    @Override
+    public UUID sendAttachment(Attachment attachment) {
+        return call(() -> delegate.sendAttachment(attachment), 1);
+    }
+
+    /**
+     * Make a call within its budget, unless the circuit is open.
+     *
+     * @param events The number of events the call reports, counted as degraded if it is skipped or given up.
+     * @return The result of the call, or <code>null</code> if it was skipped, failed or given up.
+     */
+    private <T> T call(Callable<T> call, int events) {
+        if (!breaker.allowCall()) {
+            breaker.degraded(events);
+            return null;
+        }
+        long start = System.nanoTime();
+        Future<T> future;
+        try {
+            future = calls.submit(call);
+        } catch (RuntimeException e) {
+            // The run is finished; nothing waits for the result any more. Still recorded, as the call may be the probe.
+            breaker.recordCall(System.nanoTime() - start, true);
+            breaker.degraded(events);
+            return null;
+        }
+        try {
+            T result = future.get(breaker.getBudgetNanos(), TimeUnit.NANOSECONDS);
+            breaker.recordCall(System.nanoTime() - start, false);
+            return result;
+        } catch (TimeoutException e) {
+            breaker.recordCall(System.nanoTime() - start, true);
+        } catch (ExecutionException e) {
+            LOGGER.debug("A call to Orangebeard failed", e.getCause());
+            breaker.recordCall(System.nanoTime() - start, true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            breaker.recordCall(System.nanoTime() - start, true);
+        }
+        breaker.degraded(events);
+        return null;
+    }
+}
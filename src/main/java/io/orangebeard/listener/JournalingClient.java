@@ -0,0 +1,106 @@
+package io.orangebeard.listener;
+
+import io.orangebeard.client.OrangebeardProperties;
+import io.orangebeard.client.entity.FinishV3TestRun;
+import io.orangebeard.client.entity.StartV3TestRun;
+import io.orangebeard.client.entity.attachment.Attachment;
+import io.orangebeard.client.entity.log.Log;
+import io.orangebeard.client.entity.suite.StartSuite;
+import io.orangebeard.client.entity.test.FinishTest;
+import io.orangebeard.client.entity.test.StartTest;
+import io.orangebeard.client.v3.OrangebeardAsyncV3Client;
+import io.orangebeard.listener.journal.JournalEvent;
+import io.orangebeard.listener.journal.JournalWriter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Drop-in replacement for the client that records every call in a local journal instead of sending it to
+ * Orangebeard. UUIDs for new entities are generated locally; the journal can be uploaded later.
+ * Selected with <code>orangebeard.journal.enabled=true</code>.
+ */
+class JournalingClient extends OrangebeardAsyncV3Client {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalingClient.class);
+
+    private final JournalWriter journal;
+
+    JournalingClient(OrangebeardProperties orangebeardProperties, Path directory, int segmentSize) throws IOException {
+        super(orangebeardProperties);
+        this.journal = new JournalWriter(directory, segmentSize);
+        LOGGER.info("Recording Orangebeard events in {}", directory.toAbsolutePath());
+    }
+
+    @Override
+    public UUID startTestRun(StartV3TestRun testRun) {
+        UUID testRunUUID = UUID.randomUUID();
+        append(JournalEvent.startRun(testRunUUID, testRun));
+        return testRunUUID;
+    }
+
+    @Override
+    public void finishTestRun(UUID testRunUUID, FinishV3TestRun finishTestRun) {
+        append(JournalEvent.finishRun(testRunUUID, finishTestRun));
+        try {
+            journal.close();
+        } catch (IOException e) {
+            LOGGER.warn("Unable to close the journal", e);
+        }
+    }
+
+    @Override
+    public List<UUID> startSuite(StartSuite startSuite) {
+        List<UUID> suiteUUIDs = new ArrayList<>(startSuite.getSuiteNames().size());
+        for (int i = 0; i < startSuite.getSuiteNames().size(); i++) {
+            suiteUUIDs.add(UUID.randomUUID());
+        }
+        append(JournalEvent.startSuite(suiteUUIDs, startSuite));
+        return suiteUUIDs;
+    }
+
+    @Override
+    public UUID startTest(StartTest startTest) {
+        UUID testUUID = UUID.randomUUID();
+        append(JournalEvent.startTest(testUUID, startTest));
+        return testUUID;
+    }
+
+    @Override
+    public void finishTest(UUID testUUID, FinishTest finishTest) {
+        append(JournalEvent.finishTest(testUUID, finishTest));
+    }
+
+    @Override
+    public UUID log(Log log) {
+        UUID logUUID = UUID.randomUUID();
+        append(JournalEvent.log(logUUID, log));
+        return logUUID;
+    }
+
+    @Override
+    public void sendLogBatch(List<Log> logs) {
+        for (Log log : logs) {
+            append(JournalEvent.log(UUID.randomUUID(), log));
+        }
+    }
+
+    @Override
+    public UUID sendAttachment(Attachment attachment) {
+        UUID attachmentUUID = UUID.randomUUID();
+        append(JournalEvent.attachment(attachmentUUID, attachment));
+        return attachmentUUID;
+    }
+
+    private void append(JournalEvent event) {
+        try {
+            journal.append(event);
+        } catch (IOException e) {
+            LOGGER.error("Unable to record {} in the journal", event.getType(), e);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package io.orangebeard.listener;
+
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measurements of the listener itself: how long its callbacks take and how much it asks of Orangebeard.
+ * Written as a JSON report at the end of the run, so a slow build can be attributed to either the tests or the
+ * reporting. All recording is lock-free.
+ */
+class ListenerMetrics {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ListenerMetrics.class);
+
+    @Getter
+    private static final ListenerMetrics instance = new ListenerMetrics();
+
+    enum Callback {
+        BEFORE_ALL("beforeAll"),
+        BEFORE_EACH("beforeEach"),
+        TEST_SUCCESSFUL("testSuccessful"),
+        TEST_FAILED("testFailed");
+
+        private final String jsonName;
+
+        Callback(String jsonName) {
+            this.jsonName = jsonName;
+        }
+    }
+
+    enum Call {
+        START_SUITE("startSuite"),
+        START_TEST("startTest"),
+        LOG("log"),
+        FINISH_TEST("finishTest");
+
+        private final String jsonName;
+
+        Call(String jsonName) {
+            this.jsonName = jsonName;
+        }
+    }
+
+    private final Map<Callback, LatencyHistogram> callbacks = new EnumMap<>(Callback.class);
+    private final Map<Call, LongAdder> calls = new EnumMap<>(Call.class);
+    private final LongAdder logCharacters = new LongAdder();
+    private final LongAdder degradedEvents = new LongAdder();
+    private final LongAdder circuitOpenings = new LongAdder();
+
+    ListenerMetrics() {
+        for (Callback callback : Callback.values()) {
+            callbacks.put(callback, new LatencyHistogram());
+        }
+        for (Call call : Call.values()) {
+            calls.put(call, new LongAdder());
+        }
+    }
+
+    /**
+     * Record the duration of a callback.
+     *
+     * @param callback The callback.
+     * @param startNanos The value of {@link System#nanoTime()} when the callback started.
+     */
+    void recordCallback(Callback callback, long startNanos) {
+        callbacks.get(callback).record(System.nanoTime() - startNanos);
+    }
+
+    void countCall(Call call) {
+        calls.get(call).increment();
+    }
+
+    void countLogCharacters(String message) {
+        if (message != null) {
+            logCharacters.add(message.length());
+        }
+    }
+
+    /**
+     * Count events that were not reported because Orangebeard was slow or unavailable.
+     */
+    void countDegraded(int events) {
+        degradedEvents.add(events);
+    }
+
+    void countCircuitOpened() {
+        circuitOpenings.increment();
+    }
+
+    LatencyHistogram getHistogram(Callback callback) {
+        return callbacks.get(callback);
+    }
+
+    long getCalls(Call call) {
+        return calls.get(call).sum();
+    }
+
+    long getLogCharacters() {
+        return logCharacters.sum();
+    }
+
+    long getDegradedEvents() {
+        return degradedEvents.sum();
+    }
+
+    long getCircuitOpenings() {
+        return circuitOpenings.sum();
+    }
+
+    void reset() {
+        callbacks.values().forEach(LatencyHistogram::reset);
+        calls.values().forEach(LongAdder::reset);
+        logCharacters.reset();
+        degradedEvents.reset();
+        circuitOpenings.reset();
+    }
+
+    /**
+     * @param gauges Point-in-time values to include, such as the size of the suite tree.
+     * @return The metrics as a JSON document.
+     */
+    String toJson(Map<String, Long> gauges) {
+        StringBuilder json = new StringBuilder(1024).append("{\n  \"callbacks\": {");
+        String separator = "\n";
+        for (Callback callback : Callback.values()) {
+            LatencyHistogram histogram = callbacks.get(callback);
+            json.append(separator).append("    \"").append(callback.jsonName).append("\": {")
+                    .append("\"count\": ").append(histogram.getCount())
+                    .append(", \"totalNanos\": ").append(histogram.getTotal())
+                    .append(", \"meanNanos\": ").append(histogram.getMean())
+                    .append(", \"p50Nanos\": ").append(histogram.getPercentile(50))
+                    .append(", \"p90Nanos\": ").append(histogram.getPercentile(90))
+                    .append(", \"p99Nanos\": ").append(histogram.getPercentile(99))
+                    .append(", \"p999Nanos\": ").append(histogram.getPercentile(99.9))
+                    .append(", \"maxNanos\": ").append(histogram.getMax())
+                    .append('}');
+            separator = ",\n";
+        }
+        json.append("\n  },\n  \"calls\": {");
+        separator = "\n";
+        for (Call call : Call.values()) {
+            json.append(separator).append("    \"").append(call.jsonName).append("\": ").append(getCalls(call));
+            separator = ",\n";
+        }
+        json.append("\n  },\n  \"logCharacters\": ").append(getLogCharacters());
+        json.append(",\n  \"degradedEvents\": ").append(getDegradedEvents());
+        json.append(",\n  \"circuitOpenings\": ").append(getCircuitOpenings());
+        for (Map.Entry<String, Long> gauge : gauges.entrySet()) {
+            json.append(",\n  \"").append(gauge.getKey()).append("\": ").append(gauge.getValue());
+        }
+        return json.append("\n}\n").toString();
+    }
+
+    /**
+     * @return A one-line summary of the metrics, for the build log.
+     */
+    String toDigest() {
+        long callbackNanos = 0;
+        long callbackCount = 0;
+        for (LatencyHistogram histogram : callbacks.values()) {
+            callbackNanos += histogram.getTotal();
+            callbackCount += histogram.getCount();
+        }
+        long requests = 0;
+        for (LongAdder count : calls.values()) {
+            requests += count.sum();
+        }
+        LatencyHistogram beforeEach = callbacks.get(Callback.BEFORE_EACH);
+        String digest = String.format(Locale.ROOT, "Orangebeard listener: %d callbacks took %d ms in total (beforeEach p99 %d µs); %d calls to Orangebeard; %d characters of log text",
+                callbackCount, TimeUnit.NANOSECONDS.toMillis(callbackNanos), TimeUnit.NANOSECONDS.toMicros(beforeEach.getPercentile(99)),
+                requests, getLogCharacters());
+        long degraded = getDegradedEvents();
+        return degraded == 0 ? digest : digest + String.format(Locale.ROOT, "; %d events not reported while Orangebeard was slow or unavailable", degraded);
+    }
+
+    /**
+     * Write the JSON report, and log the digest if requested. Failures are logged, never thrown: the report must not
+     * break the build.
+     * <p>
+     * <code>{pid}</code> in the file name is replaced by the process ID, so the forks of a build each write a report
+     * of their own instead of overwriting each other's.
+     */
+    void report(ListenerProperties properties, Map<String, Long> gauges) {
+        if (!properties.getBoolean(ListenerProperties.METRICS_ENABLED, true)) {
+            return;
+        }
+        Path file = Path.of(properties.getString(ListenerProperties.METRICS_FILE, "target/orangebeard-metrics-{pid}.json")
+                .replace("{pid}", String.valueOf(ProcessHandle.current().pid())));
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.writeString(file, toJson(gauges), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to write the listener metrics to {}", file, e);
+        }
+        if (properties.getBoolean(ListenerProperties.METRICS_LOG_DIGEST, false)) {
+            LOGGER.info(toDigest());
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package io.orangebeard.listener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+/**
+ * Settings of the listener itself, next to the connection settings read by the client.
+ * Values are read from <code>orangebeard.properties</code> on the classpath, and can be overridden by system
+ * properties and environment variables. As with the connection settings, an environment variable may use
+ * underscores instead of dots (<code>orangebeard_log_batchSize</code>).
+ */
+class ListenerProperties {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ListenerProperties.class);
+    private static final String PROPERTY_FILE = "orangebeard.properties";
+
+    static final String LOG_BATCH_SIZE = "orangebeard.log.batchSize";
+    static final String LOG_BATCH_BYTES = "orangebeard.log.batchBytes";
+    static final String LOG_FLUSH_INTERVAL_MS = "orangebeard.log.flushIntervalMs";
+    static final String STACK_TRACE_CACHE_SIZE = "orangebeard.log.stackTraceCacheSize";
+    static final String STACK_TRACE_MAX_CHARS = "orangebeard.log.stackTraceMaxChars";
+    static final String STACK_TRACE_MAX_CAUSE_DEPTH = "orangebeard.log.stackTraceMaxCauseDepth";
+    static final String STACK_TRACE_FOLDED_PACKAGES = "orangebeard.log.stackTraceFoldedPackages";
+    static final String JOURNAL_ENABLED = "orangebeard.journal.enabled";
+    static final String JOURNAL_DIRECTORY = "orangebeard.journal.directory";
+    static final String JOURNAL_SEGMENT_SIZE = "orangebeard.journal.segmentSize";
+    static final String QUEUE_CAPACITY = "orangebeard.queue.capacity";
+    static final String QUEUE_POLICY = "orangebeard.queue.policy";
+    static final String QUEUE_BLOCK_TIMEOUT_MS = "orangebeard.queue.blockTimeoutMs";
+    static final String QUEUE_SPILL_DIRECTORY = "orangebeard.queue.spillDirectory";
+    static final String FINISH_TIMEOUT_MS = "orangebeard.finish.timeoutMs";
+    static final String METRICS_ENABLED = "orangebeard.metrics.enabled";
+    static final String METRICS_FILE = "orangebeard.metrics.file";
+    static final String METRICS_LOG_DIGEST = "orangebeard.metrics.logDigest";
+    static final String RESOURCE_USAGE_ENABLED = "orangebeard.resourceUsage.enabled";
+    static final String DISPATCH_OFFLOAD = "orangebeard.dispatch.offload";
+    static final String DISPATCH_CAPACITY = "orangebeard.dispatch.capacity";
+    static final String ATTACHMENT_MAX_BYTES = "orangebeard.attachment.maxBytes";
+    static final String ATTACHMENT_UPLOAD_THREADS = "orangebeard.attachment.uploadThreads";
+    static final String ATTACHMENT_QUEUE_CAPACITY = "orangebeard.attachment.queueCapacity";
+    static final String OUTPUT_CAPTURE = "orangebeard.output.capture";
+    static final String OUTPUT_BUFFER_BYTES = "orangebeard.output.bufferBytes";
+    static final String OUTPUT_PASSED_SAMPLE_RATE = "orangebeard.output.passedSampleRate";
+    static final String LEAN_ENABLED = "orangebeard.lean.enabled";
+    static final String FINISHED_TEST_RETENTION_MS = "orangebeard.memory.finishedTestRetentionMs";
+    static final String RUN_ID = "orangebeard.run.id";
+    static final String RUN_COORDINATION_DIRECTORY = "orangebeard.run.coordinationDirectory";
+    static final String RUN_FINISH_GRACE_MS = "orangebeard.run.finishGraceMs";
+    static final String BREAKER_ENABLED = "orangebeard.breaker.enabled";
+    static final String BREAKER_CALL_BUDGET_MS = "orangebeard.breaker.callBudgetMs";
+    static final String BREAKER_FAILURE_THRESHOLD = "orangebeard.breaker.failureThreshold";
+    static final String BREAKER_OPEN_MS = "orangebeard.breaker.openMs";
+    static final String HISTORY_ENABLED = "orangebeard.history.enabled";
+    static final String HISTORY_FILE = "orangebeard.history.file";
+    static final String HISTORY_CAPACITY = "orangebeard.history.capacity";
+    static final String HISTORY_PERCENTILE = "orangebeard.history.percentile";
+    static final String HISTORY_MULTIPLIER = "orangebeard.history.multiplier";
+    static final String HISTORY_MIN_SAMPLES = "orangebeard.history.minSamples";
+    static final String HISTORY_MIN_DURATION_MS = "orangebeard.history.minDurationMs";
+
+    private final Properties fileProperties = new Properties();
+
+    ListenerProperties() {
+        try (InputStream input = Thread.currentThread().getContextClassLoader().getResourceAsStream(PROPERTY_FILE)) {
+            if (input != null) {
+                fileProperties.load(input);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Unable to read {}", PROPERTY_FILE, e);
+        }
+    }
+
+    String getString(String name, String defaultValue) {
+        String value = System.getenv(name);
+        if (value == null) {
+            value = System.getenv(name.replace('.', '_'));
+        }
+        if (value == null) {
+            value = System.getProperty(name);
+        }
+        if (value == null) {
+            value = fileProperties.getProperty(name);
+        }
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    int getInt(String name, int defaultValue) {
+        return (int) getLong(name, defaultValue);
+    }
+
+    long getLong(String name, long defaultValue) {
+        String value = getString(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Invalid value [{}] for {}; using {}", value, name, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    double getDouble(String name, double defaultValue) {
+        String value = getString(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Invalid value [{}] for {}; using {}", value, name, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Read a comma separated list; an absent or blank value yields the default.
+     */
+    List<String> getList(String name, List<String> defaultValue) {
+        String value = getString(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(element -> !element.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    boolean getBoolean(String name, boolean defaultValue) {
+        String value = getString(name, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
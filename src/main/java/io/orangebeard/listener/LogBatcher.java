@@ -0,0 +1,121 @@
+package io.orangebeard.listener;
+
+import io.orangebeard.client.entity.log.Log;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Collects logs and submits them in batches, so the number of requests grows with the number of batches instead of
+ * with the number of log lines.
+ * A batch is submitted when it reaches the maximum number of logs or the maximum (approximate) size, when the flush
+ * interval has passed, and whenever {@link #flush()} is called: on test finish and on run finish.
+ */
+class LogBatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogBatcher.class);
+
+    private final Consumer<List<Log>> sink;
+    private final int maxBatchSize;
+    private final long maxBatchBytes;
+    private final long flushIntervalMillis;
+
+    /**
+     * Held while a batch is taken and submitted, also by the interval flusher, so batches are submitted in order and a
+     * flush only returns once the logs added before it have been submitted.
+     */
+    private final Object lock = new Object();
+    private List<Log> batch = new ArrayList<>();
+    private long batchBytes = 0;
+    private ScheduledExecutorService flusher;
+
+    /**
+     * @param sink Submits a batch of logs to Orangebeard.
+     * @param maxBatchSize The maximum number of logs in a batch.
+     * @param maxBatchBytes The maximum size of the messages in a batch, in characters.
+     * @param flushIntervalMillis The maximum time a log waits for its batch to fill up; 0 or less to only flush on size and on request.
+     */
+    LogBatcher(Consumer<List<Log>> sink, int maxBatchSize, long maxBatchBytes, long flushIntervalMillis) {
+        this.sink = sink;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxBatchBytes = Math.max(1, maxBatchBytes);
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    static LogBatcher fromProperties(Consumer<List<Log>> sink, ListenerProperties properties) {
+        return new LogBatcher(sink,
+                properties.getInt(ListenerProperties.LOG_BATCH_SIZE, 100),
+                properties.getLong(ListenerProperties.LOG_BATCH_BYTES, 1024L * 1024L),
+                properties.getLong(ListenerProperties.LOG_FLUSH_INTERVAL_MS, 1000L));
+    }
+
+    void add(Log log) {
+        synchronized (lock) {
+            batch.add(log);
+            batchBytes += log.getMessage() == null ? 0 : log.getMessage().length();
+            if (batch.size() >= maxBatchSize || batchBytes >= maxBatchBytes) {
+                submit(takeBatch());
+            } else if (flusher == null && flushIntervalMillis > 0) {
+                startFlusher();
+            }
+        }
+    }
+
+    /**
+     * Submit all pending logs, after a batch the interval flusher is submitting. What the caller sends next (the
+     * finish of a test) therefore cannot overtake the logs.
+     */
+    void flush() {
+        synchronized (lock) {
+            submit(takeBatch());
+        }
+    }
+
+    /**
+     * Submit all pending logs and stop the interval flusher.
+     */
+    void close() {
+        synchronized (lock) {
+            if (flusher != null) {
+                flusher.shutdownNow();
+                flusher = null;
+            }
+        }
+        flush();
+    }
+
+    private List<Log> takeBatch() {
+        if (batch.isEmpty()) {
+            return null;
+        }
+        List<Log> taken = batch;
+        batch = new ArrayList<>();
+        batchBytes = 0;
+        return taken;
+    }
+
+    private void submit(List<Log> logs) {
+        if (logs == null) {
+            return;
+        }
+        try {
+            sink.accept(logs);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Unable to submit a batch of {} logs", logs.size(), e);
+        }
+    }
+
+    private void startFlusher() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "orangebeard-log-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+}
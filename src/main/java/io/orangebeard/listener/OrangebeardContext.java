@@ -1,34 +1,519 @@
 package io.orangebeard.listener;
 
+import io.orangebeard.client.OrangebeardProperties;
+import io.orangebeard.client.entity.FinishV3TestRun;
+import io.orangebeard.client.entity.LogFormat;
+import io.orangebeard.client.entity.StartV3TestRun;
+import io.orangebeard.client.entity.attachment.Attachment;
+import io.orangebeard.client.entity.attachment.AttachmentMetaData;
+import io.orangebeard.client.entity.log.Log;
+import io.orangebeard.client.entity.log.LogLevel;
+import io.orangebeard.client.entity.test.FinishTest;
 import io.orangebeard.client.v3.OrangebeardAsyncV3Client;
+import io.orangebeard.listener.journal.JournalEvent;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
-import java.util.HashMap;
+import lombok.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+/**
+ * Run-wide state shared between the extension and the execution listener.
+ * JUnit may invoke the callbacks from several worker threads at once (parallel execution), so all state in here
+ * must be safe to read and write concurrently without a global lock.
+ * <p>
+ * JUnit can create more than one {@link OrangebeardExtension} instance in a single run (for example when
+ * auto-detection is combined with <code>@ExtendWith</code>). The test run, the suite tree and the shutdown hook
+ * are therefore kept here, so they exist exactly once per JVM.
+ */
 public class OrangebeardContext {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OrangebeardContext.class);
+
+    /**
+     * Arbitrary UUID for the root suite.
+     * The root node is never reported to Orangebeard; its children are the top level suites.
+     */
+    static final UUID ROOT_UUID = UUID.fromString("342e7cc4-8ac6-4d2a-8659-10bee9060de0");
+
+    /**
+     * Placeholder id for queued logs and attachments; unlike tests, they are never referred to later.
+     */
+    private static final UUID UNTRACKED = new UUID(0L, 0L);
+
     @Getter
     private static final OrangebeardContext instance = new OrangebeardContext();
 
-    private final Map<String, UUID> tests = new HashMap<>();
+    private final Map<String, UUID> tests = new ConcurrentHashMap<>();
+
+    /**
+     * Tests that are running but not started in Orangebeard (lean mode), with what is to be reported once they are.
+     */
+    private final Map<String, List<Consumer<UUID>>> deferredTests = new ConcurrentHashMap<>();
+
+    /**
+     * Finished tests, oldest first, that are removed from {@link #tests} once their retention time has passed.
+     */
+    private final Deque<FinishedTest> finishedTests = new ArrayDeque<>();
+    private volatile long finishedTestRetentionNanos = newFinishedTestRetentionNanos();
+
+    /**
+     * Tree-structure to keep track of the hierarchy of test suites.
+     */
+    @Getter
+    private volatile TestSuiteTree suiteTree = newSuiteTree();
 
     @Getter @Setter
-    private OrangebeardAsyncV3Client client = null;
+    private volatile OrangebeardAsyncV3Client client = null;
 
     @Getter @Setter
-    private UUID testRunUUID = null;
+    private volatile UUID testRunUUID = null;
+
+    private volatile LogBatcher logBatcher = newLogBatcher();
+
+    /**
+     * Logs, attachments and test finishes on their way to the client.
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private volatile OutboundQueue outboundQueue = newOutboundQueue();
+
+    /**
+     * Runs the reporting work of the callbacks off the test threads; <code>null</code> unless enabled.
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private volatile CallbackDispatcher callbackDispatcher = CallbackDispatcher.fromProperties(new ListenerProperties());
+
+    /**
+     * Uploads the files published as report entries.
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private volatile AttachmentUploader attachmentUploader = newAttachmentUploader();
+
+    /**
+     * Shares the test run with the other JVMs of the build; <code>null</code> unless configured.
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private volatile RunCoordinator runCoordinator = RunCoordinator.fromProperties(new ListenerProperties());
+
+    /**
+     * Creates the client that starts a run shared with the other JVMs of the build. The UUID of a shared run must be
+     * the one the server issued, which only a synchronous client knows when the start returns.
+     */
+    @Setter(AccessLevel.PACKAGE)
+    private volatile Function<OrangebeardProperties, OrangebeardAsyncV3Client> sharedRunClientFactory = SynchronousV3Client::new;
+
+    private Thread shutdownHook = null;
+    private boolean testRunFinished = false;
 
     private OrangebeardContext() {
         //prevent instantiation
     }
 
     public void addTest(String identifier, UUID testId) {
-        instance.tests.put(identifier, testId);
+        if (identifier != null && testId != null) {
+            instance.tests.put(identifier, testId);
+            List<Consumer<UUID>> pending = null;
+            if (!deferredTests.isEmpty()) {
+                synchronized (deferredTests) {
+                    pending = deferredTests.remove(identifier);
+                }
+            }
+            if (pending != null) {
+                pending.forEach(action -> action.accept(testId));
+            }
+        }
+    }
+
+    /**
+     * Mark a running test as not started yet: it is only started if it turns out to need reporting on its own.
+     * Until then, {@link #whenStarted} holds back what is reported for it.
+     *
+     * @param identifier The unique ID of the test.
+     */
+    void deferTest(String identifier) {
+        synchronized (deferredTests) {
+            deferredTests.putIfAbsent(identifier, new ArrayList<>());
+        }
+    }
+
+    /**
+     * Forget a deferred test that will not be started, with what was held back for it.
+     *
+     * @param identifier The unique ID of the test.
+     */
+    void discardDeferredTest(String identifier) {
+        synchronized (deferredTests) {
+            deferredTests.remove(identifier);
+        }
+    }
+
+    /**
+     * Report something for a test: right away if the test was started, when it is started if it was deferred, and
+     * not at all if the test is unknown.
+     *
+     * @param identifier The unique ID of the test.
+     * @param action Reports for the test with the given UUID.
+     */
+    void whenStarted(String identifier, Consumer<UUID> action) {
+        UUID testId = getTestId(identifier);
+        if (testId == null) {
+            synchronized (deferredTests) {
+                List<Consumer<UUID>> pending = deferredTests.get(identifier);
+                if (pending != null) {
+                    pending.add(action);
+                    return;
+                }
+            }
+            // The test may have been started in the meantime.
+            testId = getTestId(identifier);
+        }
+        if (testId != null) {
+            action.accept(testId);
+        }
     }
 
     public UUID getTestId(String identifier) {
-        return instance.tests.get(identifier);
+        return identifier == null ? null : instance.tests.get(identifier);
+    }
+
+    /**
+     * Forget a finished test, so a long run does not keep every test in memory. The test can still be found for a
+     * while (<code>orangebeard.memory.finishedTestRetentionMs</code>), for report entries that arrive late.
+     *
+     * @param identifier The unique ID of the test.
+     */
+    public void removeTest(String identifier) {
+        UUID testId = getTestId(identifier);
+        if (testId == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        synchronized (finishedTests) {
+            finishedTests.addLast(new FinishedTest(identifier, testId, now + finishedTestRetentionNanos));
+            while (!finishedTests.isEmpty() && finishedTests.peekFirst().getRemoveAfterNanos() - now <= 0) {
+                FinishedTest expired = finishedTests.removeFirst();
+                tests.remove(expired.getIdentifier(), expired.getTestId());
+            }
+        }
+    }
+
+    /**
+     * Forget the suite of a finished test class, and those of its nested classes. The package suites are kept, as other
+     * classes share them.
+     *
+     * @param identifier The unique ID of the test class.
+     */
+    public void removeClass(String identifier) {
+        if (identifier != null) {
+            suiteTree.findSubtree(identifier).ifPresent(TestSuiteTree::detach);
+        }
+    }
+
+    /**
+     * The number of tests that can still be found by their unique ID.
+     */
+    int getTrackedTestCount() {
+        return tests.size();
+    }
+
+    /**
+     * Queue a log for submission in the next batch.
+     *
+     * @param log The log to submit.
+     */
+    public void log(Log log) {
+        outboundQueue.submit(JournalEvent.log(UNTRACKED, log));
+    }
+
+    /**
+     * Queue an attachment for submission, after the logs queued before it.
+     *
+     * @param attachment The attachment to submit.
+     */
+    public void sendAttachment(Attachment attachment) {
+        outboundQueue.submit(JournalEvent.attachment(UNTRACKED, attachment));
+    }
+
+    /**
+     * Queue the finish of a test. It is submitted after every log queued before it, and after the files published for
+     * the test have been uploaded.
+     *
+     * @param testId The UUID of the test.
+     * @param finishTest The result of the test.
+     */
+    public void finishTest(UUID testId, FinishTest finishTest) {
+        if (testId == null) {
+            return;
+        }
+        JournalEvent finish = JournalEvent.finishTest(testId, finishTest);
+        attachmentUploader.whenUploaded(testId, () -> outboundQueue.submit(finish));
+    }
+
+    /**
+     * Create the client, unless one was already set for this JVM.
+     *
+     * @param clientFactory Creates the client; only invoked by the first caller.
+     */
+    public void createClientIfAbsent(Supplier<OrangebeardAsyncV3Client> clientFactory) {
+        if (client == null) {
+            synchronized (this) {
+                if (client == null) {
+                    client = clientFactory.get();
+                }
+            }
+        }
+    }
+
+    /**
+     * Start the test run, unless it was already started in this JVM.
+     * The first caller starts the run and registers the shutdown hook that finishes it if the launcher session never
+     * ends; all later calls are no-ops.
+     *
+     * @param orangebeardProperties The properties describing the test run.
+     */
+    public void startTestRun(OrangebeardProperties orangebeardProperties) {
+        if (testRunUUID != null) {
+            return;
+        }
+        synchronized (this) {
+            if (testRunUUID != null) {
+                return;
+            }
+            StartV3TestRun testRun = new StartV3TestRun(orangebeardProperties.getTestSetName(), orangebeardProperties.getDescription(), orangebeardProperties.getAttributes());
+            UUID startedTestRunUUID = null;
+            if (runCoordinator != null) {
+                startedTestRunUUID = runCoordinator.join(() -> startSharedTestRun(orangebeardProperties, testRun));
+                if (startedTestRunUUID != null) {
+                    // The run was started by another client, so this JVM's client has to be told about it.
+                    client.startAnnouncedTestRun(startedTestRunUUID);
+                } else {
+                    LOGGER.warn("Unable to start or join the test run of the build; starting a run of this JVM's own");
+                    runCoordinator = null;
+                }
+            }
+            if (startedTestRunUUID == null) {
+                startedTestRunUUID = client.startTestRun(testRun);
+            }
+            testRunUUID = startedTestRunUUID;
+
+            if (shutdownHook == null) {
+                shutdownHook = new Thread(this::finishTestRun);
+                Runtime.getRuntime().addShutdownHook(shutdownHook);
+            }
+        }
+    }
+
+    private UUID startSharedTestRun(OrangebeardProperties orangebeardProperties, StartV3TestRun testRun) {
+        try {
+            return sharedRunClientFactory.apply(orangebeardProperties).startTestRun(testRun);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Unable to start the test run to share with the other JVMs of the build", e);
+            return null;
+        }
+    }
+
+    /**
+     * Deliver everything reported so far, without finishing the run. Called by the execution listener when a test plan
+     * has been executed: a JVM can execute more than one plan (a reused surefire fork, a rerun, an IDE launch), so the
+     * run stays open for the next one. Waits at most <code>orangebeard.finish.timeoutMs</code>.
+     */
+    public void flush() {
+        if (testRunUUID == null || testRunFinished) {
+            return;
+        }
+        long timeoutMillis = new ListenerProperties().getLong(ListenerProperties.FINISH_TIMEOUT_MS, 30_000L);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        boolean delivered = callbackDispatcher == null || callbackDispatcher.awaitIdle(timeoutMillis);
+        delivered &= attachmentUploader.awaitIdle(remainingMillis(deadline));
+        try {
+            delivered &= outboundQueue.awaitEmpty(remainingMillis(deadline));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            delivered = false;
+        }
+        logBatcher.flush();
+        if (!delivered) {
+            LOGGER.warn("Not all events of the test plan were delivered within {} ms; they are delivered while the next plan runs or when the run finishes", timeoutMillis);
+        }
+    }
+
+    /**
+     * Finish the test run: deliver the pending events and tell Orangebeard the run is done.
+     * Called when the launcher session ends ({@link OrangebeardSessionListener}), and by the shutdown hook as a
+     * fallback; only the first call does anything. Both steps together take at most
+     * <code>orangebeard.finish.timeoutMs</code>, so a slow or unreachable server cannot keep the JVM alive.
+     */
+    public void finishTestRun() {
+        synchronized (this) {
+            if (testRunFinished || testRunUUID == null) {
+                return;
+            }
+            testRunFinished = true;
+        }
+        ListenerProperties properties = new ListenerProperties();
+        long timeoutMillis = properties.getLong(ListenerProperties.FINISH_TIMEOUT_MS, 30_000L);
+        long finishStart = System.nanoTime();
+        long deadline = finishStart + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        UUID runToFinish = testRunUUID;
+        OrangebeardAsyncV3Client runClient = client;
+        if (callbackDispatcher != null) {
+            callbackDispatcher.close(timeoutMillis);
+        }
+        attachmentUploader.close(remainingMillis(deadline));
+        outboundQueue.close(remainingMillis(deadline));
+        logBatcher.close();
+
+        // In a run shared with other JVMs, only the last one to leave finishes it.
+        if (runCoordinator != null && !runCoordinator.leave()) {
+            reportMetrics(properties, finishStart);
+            return;
+        }
+        Thread finisher = new Thread(() -> runClient.finishTestRun(runToFinish, new FinishV3TestRun()), "orangebeard-finish");
+        finisher.setDaemon(true);
+        finisher.start();
+        try {
+            finisher.join(Math.max(1, remainingMillis(deadline)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (finisher.isAlive()) {
+            LOGGER.warn("The test run was not finished within {} ms", timeoutMillis);
+        }
+        reportMetrics(properties, finishStart);
+    }
+
+    private static long remainingMillis(long deadline) {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+
+    private void reportMetrics(ListenerProperties properties, long finishStart) {
+        Map<String, Long> gauges = new LinkedHashMap<>();
+        gauges.put("suiteTreeSize", (long) suiteTree.size());
+        gauges.put("outboundQueueHighWaterMark", (long) outboundQueue.getHighWaterMark());
+        gauges.put("droppedEvents", outboundQueue.getDroppedEvents());
+        gauges.put("spilledEvents", outboundQueue.getSpilledEvents());
+        gauges.put("finishRunNanos", System.nanoTime() - finishStart);
+        ListenerMetrics.getInstance().report(properties, gauges);
+    }
+
+    /**
+     * Forget all run state, so a new run can be started. Only meant for the unit tests, which share this singleton.
+     */
+    synchronized void reset() {
+        tests.clear();
+        synchronized (deferredTests) {
+            deferredTests.clear();
+        }
+        synchronized (finishedTests) {
+            finishedTests.clear();
+        }
+        finishedTestRetentionNanos = newFinishedTestRetentionNanos();
+        suiteTree = newSuiteTree();
+        if (callbackDispatcher != null) {
+            callbackDispatcher.close(0);
+        }
+        callbackDispatcher = CallbackDispatcher.fromProperties(new ListenerProperties());
+        runCoordinator = RunCoordinator.fromProperties(new ListenerProperties());
+        sharedRunClientFactory = SynchronousV3Client::new;
+        attachmentUploader.close(0);
+        attachmentUploader = newAttachmentUploader();
+        outboundQueue.close(0);
+        outboundQueue = newOutboundQueue();
+        logBatcher.close();
+        logBatcher = newLogBatcher();
+        client = null;
+        testRunUUID = null;
+        testRunFinished = false;
+        ListenerMetrics.getInstance().reset();
+    }
+
+    private static long newFinishedTestRetentionNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(new ListenerProperties().getLong(ListenerProperties.FINISHED_TEST_RETENTION_MS, 5000L));
+    }
+
+    private AttachmentUploader newAttachmentUploader() {
+        return AttachmentUploader.fromProperties(this::log, this::sendAttachment, new ListenerProperties());
+    }
+
+    private LogBatcher newLogBatcher() {
+        return LogBatcher.fromProperties(logs -> client.sendLogBatch(logs), new ListenerProperties());
+    }
+
+    private OutboundQueue newOutboundQueue() {
+        return OutboundQueue.fromProperties(this::deliver, new ListenerProperties());
+    }
+
+    /**
+     * Hand a queued event to the client. Runs on the dispatcher thread of the outbound queue.
+     */
+    private void deliver(JournalEvent event) {
+        switch (event.getType()) {
+            case LOG: {
+                Log log = event.getEntity(Log.class);
+                ListenerMetrics.getInstance().countCall(ListenerMetrics.Call.LOG);
+                ListenerMetrics.getInstance().countLogCharacters(log.getMessage());
+                logBatcher.add(log);
+                break;
+            }
+            case ATTACHMENT: {
+                logBatcher.flush();
+                Attachment attachment = event.getEntity(Attachment.class);
+                AttachmentMetaData metaData = attachment.getMetaData();
+                if (AttachmentUploader.isFileReference(attachment)) {
+                    // A published file, only read now so the queue holds its path instead of its content.
+                    try {
+                        attachment = attachmentUploader.read(attachment);
+                    } catch (IOException e) {
+                        String file = attachment.getFile().getName();
+                        LOGGER.warn("Unable to upload {} as an attachment", file, e);
+                        client.log(new Log(metaData.getTestRunUUID(), metaData.getTestUUID(), metaData.getStepUUID(),
+                                String.format("Unable to upload %s: %s", file, e.getMessage()), LogLevel.WARN,
+                                metaData.getAttachmentTime(), LogFormat.PLAIN_TEXT));
+                        break;
+                    }
+                }
+                if (metaData.getLogUUID() == null) {
+                    // An uploaded file: attach it to a log that names it.
+                    UUID logUUID = client.log(new Log(metaData.getTestRunUUID(), metaData.getTestUUID(), metaData.getStepUUID(),
+                            attachment.getFile().getName(), LogLevel.INFO, metaData.getAttachmentTime(), LogFormat.PLAIN_TEXT));
+                    attachment = new Attachment(attachment.getFile(), new AttachmentMetaData(metaData.getTestRunUUID(),
+                            metaData.getTestUUID(), metaData.getStepUUID(), logUUID, metaData.getAttachmentTime()));
+                }
+                client.sendAttachment(attachment);
+                break;
+            }
+            case FINISH_TEST:
+                ListenerMetrics.getInstance().countCall(ListenerMetrics.Call.FINISH_TEST);
+                logBatcher.flush();
+                client.finishTest(event.getId(), event.getEntity(FinishTest.class));
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Value
+    private static class FinishedTest {
+        String identifier;
+        UUID testId;
+        long removeAfterNanos;
+    }
+
+    private static TestSuiteTree newSuiteTree() {
+        return new TestSuiteTree("ROOT", ROOT_UUID.toString(), ROOT_UUID);
     }
 }
@@ -5,33 +5,184 @@ import io.orangebeard.client.entity.LogFormat;
 import io.orangebeard.client.entity.log.Log;
 import io.orangebeard.client.entity.log.LogLevel;
 
-import io.orangebeard.client.v3.OrangebeardAsyncV3Client;
-
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.platform.commons.PreconditionViolationException;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.junit.platform.engine.UniqueId;
 import org.junit.platform.engine.reporting.ReportEntry;
+import org.junit.platform.engine.support.descriptor.ClassSource;
 import org.junit.platform.launcher.TestExecutionListener;
 import org.junit.platform.launcher.TestIdentifier;
+import org.junit.platform.launcher.TestPlan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.net.URI;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 public class OrangebeardExecutionListener implements TestExecutionListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OrangebeardExecutionListener.class);
+    private static final String JUPITER_ENGINE_ID = "junit-jupiter";
+    private static final String EXTENSION_AUTODETECTION = "junit.jupiter.extensions.autodetection.enabled";
+
     private final OrangebeardContext runContext = OrangebeardContext.getInstance();
+    private final OrangebeardProperties orangebeardProperties;
 
     public OrangebeardExecutionListener() {
-        OrangebeardProperties orangebeardProperties = new OrangebeardProperties();
+        orangebeardProperties = new OrangebeardProperties();
         orangebeardProperties.checkPropertiesArePresent();
-        if (runContext.getClient() == null) {
-            runContext.setClient(new OrangebeardAsyncV3Client(orangebeardProperties));
+        runContext.createClientIfAbsent(() -> ClientFactory.create(orangebeardProperties));
+    }
+
+    /**
+     * Start the test run and the suites for the test classes in the plan that report, before any test runs.
+     * The extension then only has to look up the suite of a class, instead of starting suites while tests run.
+     * Only Jupiter classes report, and only if they register the extension, or the extension is autodetected.
+     */
+    @Override
+    public void testPlanExecutionStarted(TestPlan testPlan) {
+        runContext.startTestRun(orangebeardProperties);
+        boolean autodetected = testPlan.getConfigurationParameters().getBoolean(EXTENSION_AUTODETECTION).orElse(false);
+
+        // Suite names of every reporting test class in the plan, with the unique ID of the class, deduplicated.
+        Map<List<String>, String> classes = new HashMap<>();
+        for (TestIdentifier root : testPlan.getRoots()) {
+            if (!isJupiterEngine(root)) {
+                continue;
+            }
+            for (TestIdentifier identifier : testPlan.getDescendants(root)) {
+                if (identifier.isContainer() && identifier.getSource().orElse(null) instanceof ClassSource) {
+                    List<String> suiteNames = suiteNames((ClassSource) identifier.getSource().get(), autodetected);
+                    if (!suiteNames.isEmpty()) {
+                        classes.putIfAbsent(suiteNames, identifier.getUniqueId());
+                    }
+                }
+            }
+        }
+
+        // Every call starts a whole path of suites. Registering the deepest paths first creates the shared packages
+        // (and outer classes) along the way, so the shorter paths are found in the tree without any call.
+        List<List<String>> paths = new ArrayList<>(classes.keySet());
+        paths.sort(Comparator.<List<String>>comparingInt(List::size).reversed().thenComparing(Object::toString));
+        SuiteRegistrar suiteRegistrar = new SuiteRegistrar(runContext);
+        for (List<String> path : paths) {
+            List<String> nodeKeys = new ArrayList<>(path.size());
+            for (int i = 1; i <= path.size(); i++) {
+                nodeKeys.add(classes.get(path.subList(0, i)));
+            }
+            suiteRegistrar.register(path, nodeKeys);
         }
     }
 
+    /**
+     * Log a report entry to its test. Values that are <code>file:</code> URIs of existing files are uploaded as
+     * attachments instead. When the callbacks are offloaded, the test may not have been started yet; the entry then
+     * goes through the callback dispatcher, after the start of the test. In lean mode, the entry waits until the test
+     * is started, and is dropped if the test passes.
+     */
     @Override
     public void reportingEntryPublished(TestIdentifier testIdentifier, ReportEntry entry) {
-        UUID testRunId = runContext.getTestRunUUID();
-        UUID testId = runContext.getTestId(testIdentifier.getUniqueId());
-        String logMessage = entry.getKeyValuePairs().entrySet().stream().map(e -> e.getKey() + ": " + e.getValue() + "\n").collect(Collectors.joining());
-        if (testRunId != null && testId != null) {
-            runContext.getClient().log(new Log(testRunId, testId, null, logMessage, LogLevel.INFO, ZonedDateTime.now(), LogFormat.PLAIN_TEXT));
+        String uniqueId = testIdentifier.getUniqueId();
+        Map<String, Path> files = new LinkedHashMap<>();
+        StringBuilder logMessage = new StringBuilder();
+        for (Map.Entry<String, String> pair : entry.getKeyValuePairs().entrySet()) {
+            Path file = toFile(pair.getValue());
+            if (file != null) {
+                files.put(pair.getKey(), file);
+            } else {
+                logMessage.append(pair.getKey()).append(": ").append(pair.getValue()).append("\n");
+            }
+        }
+        ZonedDateTime time = RunClock.getInstance().now();
+        Runnable report = () -> runContext.whenStarted(uniqueId, testId -> {
+            UUID testRunId = runContext.getTestRunUUID();
+            if (testRunId == null) {
+                return;
+            }
+            if (logMessage.length() > 0) {
+                runContext.log(new Log(testRunId, testId, null, logMessage.toString(), LogLevel.INFO, time, LogFormat.PLAIN_TEXT));
+            }
+            files.forEach((name, file) -> runContext.getAttachmentUploader().upload(testRunId, testId, name, file, time));
+        });
+        CallbackDispatcher dispatcher = runContext.getCallbackDispatcher();
+        if (dispatcher == null) {
+            report.run();
+        } else {
+            dispatcher.execute(report);
+        }
+    }
+
+    /**
+     * Deliver the pending events as soon as all tests of the plan have been executed, while the JVM is still fully
+     * alive. The run itself stays open, as the launcher session may execute another plan; the
+     * {@link OrangebeardSessionListener} finishes it when the session ends.
+     */
+    @Override
+    public void testPlanExecutionFinished(TestPlan testPlan) {
+        runContext.flush();
+    }
+
+    /**
+     * @return The file a report entry value refers to, or <code>null</code> if it is not a <code>file:</code> URI of a regular file.
+     */
+    private static Path toFile(String value) {
+        if (value == null || !value.startsWith("file:")) {
+            return null;
+        }
+        try {
+            Path file = Path.of(URI.create(value));
+            return Files.isRegularFile(file) ? file : null;
+        } catch (IllegalArgumentException | FileSystemNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static boolean isJupiterEngine(TestIdentifier root) {
+        try {
+            return UniqueId.parse(root.getUniqueId()).getEngineId().filter(JUPITER_ENGINE_ID::equals).isPresent();
+        } catch (PreconditionViolationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return The suite names of a test class, or an empty list if the class does not report.
+     */
+    private static List<String> suiteNames(ClassSource classSource, boolean autodetected) {
+        try {
+            Class<?> testClass = classSource.getJavaClass();
+            return autodetected || registersExtension(testClass) ? SuiteRegistrar.suiteNames(testClass) : List.of();
+        } catch (PreconditionViolationException e) {
+            LOGGER.warn("Unable to load test class {}; its suites are started when it runs", classSource.getClassName());
+            return List.of();
+        }
+    }
+
+    /**
+     * @return Whether the class (or, for a nested class, an enclosing class) registers the extension, declaratively
+     * (also through a meta-annotation or a superclass) or with a field.
+     */
+    private static boolean registersExtension(Class<?> testClass) {
+        boolean extended = AnnotationSupport.findRepeatableAnnotations(testClass, ExtendWith.class).stream()
+                .flatMap(extendWith -> Arrays.stream(extendWith.value()))
+                .anyMatch(OrangebeardExtension.class::isAssignableFrom);
+        if (extended || !AnnotationSupport.findAnnotatedFields(testClass, RegisterExtension.class,
+                field -> OrangebeardExtension.class.isAssignableFrom(field.getType())).isEmpty()) {
+            return true;
         }
+        Class<?> enclosingClass = testClass.getEnclosingClass();
+        return enclosingClass != null && AnnotationSupport.isAnnotated(testClass, Nested.class) && registersExtension(enclosingClass);
     }
 }
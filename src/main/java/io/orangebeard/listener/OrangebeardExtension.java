@@ -1,19 +1,17 @@
 package io.orangebeard.listener;
 
 import io.orangebeard.client.OrangebeardProperties;
-import io.orangebeard.client.entity.FinishV3TestRun;
 import io.orangebeard.client.entity.LogFormat;
-import io.orangebeard.client.entity.StartV3TestRun;
 
 import io.orangebeard.client.entity.log.Log;
 import io.orangebeard.client.entity.log.LogLevel;
-import io.orangebeard.client.entity.suite.StartSuite;
 import io.orangebeard.client.entity.test.FinishTest;
 import io.orangebeard.client.entity.test.StartTest;
 import io.orangebeard.client.entity.test.TestStatus;
 import io.orangebeard.client.entity.test.TestType;
 import io.orangebeard.client.v3.OrangebeardAsyncV3Client;
 
+import lombok.Value;
 import org.junit.jupiter.api.extension.AfterAllCallback;
 import org.junit.jupiter.api.extension.AfterEachCallback;
 import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
@@ -22,10 +20,11 @@ import org.junit.jupiter.api.extension.BeforeEachCallback;
 import org.junit.jupiter.api.extension.Extension;
 import org.junit.jupiter.api.extension.ExtensionContext;
 import org.junit.jupiter.api.extension.TestWatcher;
-import org.junit.platform.commons.util.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -42,98 +41,92 @@ public class OrangebeardExtension implements
 
     private static final Logger LOGGER = LoggerFactory.getLogger(OrangebeardExtension.class);
 
-    private final OrangebeardContext runContext = OrangebeardContext.getInstance();
-    private UUID testrunUUID;
-
-
     /**
-     * Arbitrary UUID for the root suite.
-     * This value is, by necessity, also used in the unit tests.
+     * Stack traces reported so far; shared by all extension instances, as the run is.
      */
-    private final UUID rootUUID = UUID.fromString("342e7cc4-8ac6-4d2a-8659-10bee9060de0");
-
+    private static final StackTraceCache STACK_TRACES = StackTraceCache.fromProperties(new ListenerProperties());
+    private static final ListenerMetrics METRICS = ListenerMetrics.getInstance();
+    private static final RunClock CLOCK = RunClock.getInstance();
+    private static final FlightRecorderEvents JFR_EVENTS = new FlightRecorderEvents();
+    /**
+     * Measures CPU time, allocations and GC per test; <code>null</code> unless enabled.
+     */
+    private static final ResourceUsage RESOURCE_USAGE = ResourceUsage.fromProperties(new ListenerProperties());
+    /**
+     * Compares test durations with earlier runs; <code>null</code> unless enabled.
+     */
+    private static final DurationHistory DURATION_HISTORY = DurationHistory.fromProperties(new ListenerProperties());
+    /**
+     * Captures the console output of every test; <code>null</code> unless enabled.
+     */
+    private static final OutputCapture OUTPUT_CAPTURE = OutputCapture.fromProperties(new ListenerProperties());
     /**
-     * Tree-structure to keep track of the hierarchy of test suites.
+     * Collects the passing tests in lean mode, which reports them per class; <code>null</code> unless enabled.
      */
-    private final TestSuiteTree root = new TestSuiteTree("ROOT", rootUUID.toString(), rootUUID);
+    private static final PassedTestSummary PASSED_TESTS = PassedTestSummary.fromProperties(new ListenerProperties());
+
+    private final OrangebeardContext runContext = OrangebeardContext.getInstance();
+    private final SuiteRegistrar suiteRegistrar = new SuiteRegistrar(runContext);
+    private UUID testrunUUID;
 
     public OrangebeardExtension() {
         OrangebeardProperties orangebeardProperties = new OrangebeardProperties();
         orangebeardProperties.checkPropertiesArePresent();
-        if (runContext.getClient() == null) {
-            runContext.setClient(new OrangebeardAsyncV3Client(orangebeardProperties));
-        }
-        startTestRunAndAddShutdownHook(orangebeardProperties);
+        runContext.createClientIfAbsent(() -> ClientFactory.create(orangebeardProperties));
+        runContext.startTestRun(orangebeardProperties);
         this.testrunUUID = runContext.getTestRunUUID();
     }
 
     OrangebeardExtension(OrangebeardAsyncV3Client orangebeardClient) {
         OrangebeardProperties orangebeardProperties = new OrangebeardProperties();
         runContext.setClient(orangebeardClient);
-        startTestRunAndAddShutdownHook(orangebeardProperties);
+        runContext.startTestRun(orangebeardProperties);
         this.testrunUUID = runContext.getTestRunUUID();
     }
 
     @Override
     public void beforeAll(ExtensionContext extensionContext) {
-        Class<?> requiredTestClass = extensionContext.getRequiredTestClass();
-        String[] classNameComponents = getFullyQualifiedClassName(requiredTestClass);
-
-        // "classNameComponents" contains the fully qualified name of the class under test, split into sections.
-        // We iterate over this array. For each element, we check if it is in the tree.
-        // If the element is already in the tree, then a test suite was already started for this, and we don't have to do anything.
-        // For every element NOT already in the tree, then we must start a new test suite, and add a node to the tree.
-        TestSuiteTree parentNode = root;
-        for (int i = 0; i < classNameComponents.length; i++) {
-            Optional<TestSuiteTree> currentNode = parentNode.getChildByName(classNameComponents[i]);
-            if (currentNode.isEmpty()) {
-
-                // Get the UUID of the test suite in the parent node; use "null" if the parent node is the root node.
-                // The node key is usually the String representation of that UUID, but that is not guaranteed.
-                // This is why we keep track of a node's test suite UUID separately.
-                UUID parentSuiteUuid = null;
-                if (parentNode != root) {
-                    parentSuiteUuid = parentNode.getTestSuiteUUID();
-                }
-
-                StartSuite startSuite = new StartSuite(testrunUUID, parentSuiteUuid, null, null, List.of(classNameComponents[i]));
-                UUID suiteId = runContext.getClient().startSuite(startSuite).get(0);
-
-                if (suiteId != null) {
-                    // Add a node to the tree for this newly created and started test suite.
-                    String key = suiteId.toString();
-                    if (i == classNameComponents.length - 1) {
-                        key = extensionContext.getUniqueId();
-                    }
-                    currentNode = parentNode.addChild(classNameComponents[i], key, suiteId);
-                }
-            }
-            // Continue with the next level of the package hierarchy.
-            if (currentNode.isPresent()) {
-                parentNode = currentNode.get();
-            }
-        }
+        long start = System.nanoTime();
+        Class<?> testClass = extensionContext.getRequiredTestClass();
+        String uniqueId = extensionContext.getUniqueId();
+        JFR_EVENTS.classStarted(uniqueId, testClass.getName());
+        dispatch(() -> startClass(testClass, uniqueId));
+        METRICS.recordCallback(ListenerMetrics.Callback.BEFORE_ALL, start);
     }
 
     @Override
     public void afterAll(ExtensionContext extensionContext) {
-        //no longer needed in V3 as suites have no status
+        // Suites have no status in V3, so there is nothing to report; the suite of the class is no longer needed.
+        String uniqueId = extensionContext.getUniqueId();
+        dispatch(() -> {
+            if (PASSED_TESTS != null) {
+                reportPassedTests(uniqueId);
+            }
+            runContext.removeClass(uniqueId);
+        });
+        JFR_EVENTS.classFinished(uniqueId);
     }
 
     @Override
     public void beforeEach(ExtensionContext extensionContext) {
-        if (extensionContext.getParent().isPresent()) {
-            String parentId = getParentId(extensionContext.getParent().get());
-            Optional<TestSuiteTree> node = root.findSubtree(parentId);
-            if (node.isPresent()) {
-                UUID suiteId = node.get().getTestSuiteUUID();
-                StartTest startTest = new StartTest(testrunUUID, suiteId, extensionContext.getDisplayName(), TestType.TEST, getCodeRef(extensionContext), null, ZonedDateTime.now());
-                UUID testId = runContext.getClient().startTest(startTest);
-                runContext.addTest(extensionContext.getUniqueId(), testId);
-            }
+        long start = System.nanoTime();
+        TestInfo test = TestInfo.of(extensionContext);
+        ZonedDateTime startTime = CLOCK.testStarted(test.getUniqueId());
+        // Every test is recorded, also one that lean mode never starts in Orangebeard.
+        JFR_EVENTS.testStarted(test.getUniqueId(), test.getDisplayName());
+        if (RESOURCE_USAGE != null) {
+            RESOURCE_USAGE.testStarted(test.getUniqueId());
+        }
+        if (OUTPUT_CAPTURE != null) {
+            OUTPUT_CAPTURE.testStarted(test.getUniqueId());
+        }
+        if (PASSED_TESTS != null) {
+            // Lean mode: the test is only started when it turns out not to pass.
+            runContext.deferTest(test.getUniqueId());
         } else {
-            LOGGER.warn("Test with the name [{}] has no parent and therefore could not be reported", extensionContext.getDisplayName());
+            dispatch(() -> startTest(test, startTime));
         }
+        METRICS.recordCallback(ListenerMetrics.Callback.BEFORE_EACH, start);
     }
 
     @Override
@@ -149,27 +142,18 @@ public class OrangebeardExtension implements
 
     @Override
     public void testDisabled(ExtensionContext extensionContext, Optional<String> reason) {
-        if (extensionContext.getParent().isPresent()) {
-            String parentId = getParentId(extensionContext);
-            Optional<TestSuiteTree> node = root.findSubtree(parentId);
-            if (node.isPresent()) {
-                UUID suiteId = node.get().getTestSuiteUUID();
-
-                StartTest startTest = new StartTest(testrunUUID, suiteId, extensionContext.getDisplayName(), TestType.TEST, getCodeRef(extensionContext), null, ZonedDateTime.now());
-                UUID testId = runContext.getClient().startTest(startTest);
-
-                FinishTest finishTest = new FinishTest(testrunUUID, TestStatus.SKIPPED, ZonedDateTime.now());
-                reason.ifPresent(s -> runContext.getClient().log(new Log(testrunUUID, testId, null, s, LogLevel.WARN, ZonedDateTime.now(), LogFormat.PLAIN_TEXT)));
-                runContext.getClient().finishTest(testId, finishTest);
-            }
-        } else {
-            LOGGER.warn("Test with the name [{}] has no parent and therefore could not be reported", extensionContext.getDisplayName());
-        }
+        TestInfo test = TestInfo.of(extensionContext);
+        ZonedDateTime time = CLOCK.now();
+        JFR_EVENTS.testStarted(test.getUniqueId(), test.getDisplayName());
+        dispatch(() -> reportDisabled(test, reason, time));
+        JFR_EVENTS.testFinished(test.getUniqueId(), TestStatus.SKIPPED);
     }
 
     @Override
     public void testSuccessful(ExtensionContext extensionContext) {
+        long start = System.nanoTime();
         reportTestResult(extensionContext, TestStatus.PASSED);
+        METRICS.recordCallback(ListenerMetrics.Callback.TEST_SUCCESSFUL, start);
     }
 
     @Override
@@ -179,35 +163,212 @@ public class OrangebeardExtension implements
 
     @Override
     public void testFailed(ExtensionContext extensionContext, Throwable cause) {
-        UUID testId = runContext.getTestId(extensionContext.getUniqueId());
+        long start = System.nanoTime();
+        TestInfo test = TestInfo.of(extensionContext);
+        long finishNanos = CLOCK.nanoTime();
+        long durationNanos = CLOCK.testFinished(test.getUniqueId(), finishNanos);
+        ZonedDateTime finishTime = CLOCK.toDateTime(finishNanos);
+        String resourceUsage = RESOURCE_USAGE == null ? null : RESOURCE_USAGE.testFinished(test.getUniqueId());
+        List<String> output = OUTPUT_CAPTURE == null ? List.of() : OUTPUT_CAPTURE.testFinished(test.getUniqueId(), false);
+        ZonedDateTime startTime = durationNanos < 0 ? finishTime : CLOCK.toDateTime(finishNanos - durationNanos);
+        dispatch(() -> reportFailure(test, cause, startTime, finishTime, durationNanos, resourceUsage, output));
+        JFR_EVENTS.testFailed(test.getUniqueId(), cause);
+        JFR_EVENTS.testFinished(test.getUniqueId(), TestStatus.FAILED);
+        METRICS.recordCallback(ListenerMetrics.Callback.TEST_FAILED, start);
+    }
+
+    private void reportTestResult(ExtensionContext extensionContext, TestStatus status) {
+        TestInfo test = TestInfo.of(extensionContext);
+        long finishNanos = CLOCK.nanoTime();
+        long durationNanos = CLOCK.testFinished(test.getUniqueId(), finishNanos);
+        ZonedDateTime finishTime = CLOCK.toDateTime(finishNanos);
+        String resourceUsage = RESOURCE_USAGE == null ? null : RESOURCE_USAGE.testFinished(test.getUniqueId());
+        Throwable cause = extensionContext.getExecutionException().orElse(null);
+        List<String> output = OUTPUT_CAPTURE == null ? List.of() : OUTPUT_CAPTURE.testFinished(test.getUniqueId(), status == TestStatus.PASSED);
+        ZonedDateTime startTime = durationNanos < 0 ? finishTime : CLOCK.toDateTime(finishNanos - durationNanos);
+        if (PASSED_TESTS != null && status == TestStatus.PASSED) {
+            dispatch(() -> addPassedTest(test, startTime, finishTime, durationNanos, resourceUsage));
+        } else {
+            dispatch(() -> reportResult(test, status, cause, startTime, finishTime, durationNanos, resourceUsage, output));
+        }
+        JFR_EVENTS.testFinished(test.getUniqueId(), status);
+    }
+
+    /**
+     * Run the reporting part of a callback: on the callback dispatcher if it is enabled, otherwise right away.
+     */
+    private void dispatch(Runnable report) {
+        CallbackDispatcher dispatcher = runContext.getCallbackDispatcher();
+        if (dispatcher == null) {
+            report.run();
+        } else {
+            dispatcher.execute(report);
+        }
+    }
+
+    private void startClass(Class<?> testClass, String uniqueId) {
+        // The suites for the packages and the class of this test class. If the execution listener is registered, they
+        // were started up front for the whole test plan, and this is only a lookup. Otherwise, the suites that are not
+        // in the tree yet are started now, with a single call.
+        List<String> suiteNames = SuiteRegistrar.suiteNames(testClass);
+        if (!suiteNames.isEmpty()) {
+            List<String> nodeKeys = new ArrayList<>(Collections.nCopies(suiteNames.size(), null));
+            nodeKeys.set(suiteNames.size() - 1, uniqueId);
+            Optional<TestSuiteTree> node = suiteRegistrar.register(suiteNames, nodeKeys);
+            node.ifPresent(suite -> JFR_EVENTS.classReported(uniqueId, suite.getTestSuiteUUID()));
+        }
+    }
+
+    /**
+     * @return The UUID of the started test, or <code>null</code> if its suite is not known.
+     */
+    private UUID startTest(TestInfo test, ZonedDateTime startTime) {
+        if (test.getParentId() == null) {
+            LOGGER.warn("Test with the name [{}] has no parent and therefore could not be reported", test.getDisplayName());
+            return null;
+        }
+        Optional<TestSuiteTree> node = runContext.getSuiteTree().findSubtree(test.getParentId());
+        if (node.isEmpty()) {
+            return null;
+        }
+        UUID suiteId = node.get().getTestSuiteUUID();
+        StartTest startTest = new StartTest(testrunUUID, suiteId, test.getDisplayName(), TestType.TEST, test.getCodeRef(), null, startTime);
+        UUID testId = runContext.getClient().startTest(startTest);
+        METRICS.countCall(ListenerMetrics.Call.START_TEST);
+        runContext.addTest(test.getUniqueId(), testId);
+        JFR_EVENTS.testReported(test.getUniqueId(), testId, suiteId);
+        return testId;
+    }
+
+    private void reportDisabled(TestInfo test, Optional<String> reason, ZonedDateTime time) {
+        UUID testId = startTest(test, time);
         if (testId == null) {
-            // probably, a test failed before it was properly started (initialization issue). Start the test and fail it immediately.
-            beforeEach(extensionContext);
-            testId = runContext.getTestId(extensionContext.getUniqueId());
+            return;
         }
+        FinishTest finishTest = new FinishTest(testrunUUID, TestStatus.SKIPPED, time);
+        reason.ifPresent(s -> runContext.log(new Log(testrunUUID, testId, null, s, LogLevel.WARN, time, LogFormat.PLAIN_TEXT)));
+        runContext.finishTest(testId, finishTest);
+        runContext.removeTest(test.getUniqueId());
+    }
 
-        FinishTest finishTest = new FinishTest(testrunUUID, TestStatus.FAILED, ZonedDateTime.now());
+    private void reportFailure(TestInfo test, Throwable cause, ZonedDateTime startTime, ZonedDateTime finishTime, long durationNanos, String resourceUsage, List<String> output) {
+        UUID testId = runContext.getTestId(test.getUniqueId());
+        if (testId == null) {
+            // In lean mode, or if a test failed before it was properly started (initialization issue): start the test and fail it immediately.
+            startTest(test, startTime);
+            testId = runContext.getTestId(test.getUniqueId());
+            if (testId == null) {
+                // Nothing held back for the test can be reported, so don't keep it.
+                runContext.discardDeferredTest(test.getUniqueId());
+            }
+        }
+
+        FinishTest finishTest = new FinishTest(testrunUUID, TestStatus.FAILED, finishTime);
 
-        runContext.getClient().log(new Log(testrunUUID, testId, null,  cause.getMessage(), LogLevel.ERROR, ZonedDateTime.now(), LogFormat.PLAIN_TEXT));
-        runContext.getClient().log(new Log(testrunUUID, testId, null, ExceptionUtils.readStackTrace(cause), LogLevel.INFO, ZonedDateTime.now(), LogFormat.PLAIN_TEXT));
+        logOutput(testId, output, finishTime);
+        runContext.log(new Log(testrunUUID, testId, null, STACK_TRACES.renderMessage(cause), LogLevel.ERROR, finishTime, LogFormat.PLAIN_TEXT));
+        runContext.log(new Log(testrunUUID, testId, null, renderStackTrace(test, cause), LogLevel.INFO, finishTime, LogFormat.PLAIN_TEXT));
+        logResourceUsage(testId, resourceUsage, finishTime);
+        checkDuration(test, testId, TestStatus.FAILED, durationNanos, finishTime);
 
-        runContext.getClient().finishTest(testId, finishTest);
+        runContext.finishTest(testId, finishTest);
+        runContext.removeTest(test.getUniqueId());
     }
 
-    private void reportTestResult(ExtensionContext extensionContext, TestStatus status) {
-        UUID testId = runContext.getTestId(extensionContext.getUniqueId());
-        FinishTest finishTest = new FinishTest(testrunUUID, status, ZonedDateTime.now());
+    private void reportResult(TestInfo test, TestStatus status, Throwable cause, ZonedDateTime startTime, ZonedDateTime finishTime, long durationNanos, String resourceUsage, List<String> output) {
+        UUID testId = runContext.getTestId(test.getUniqueId());
+        if (testId == null && PASSED_TESTS != null) {
+            testId = startTest(test, startTime);
+            if (testId == null) {
+                runContext.discardDeferredTest(test.getUniqueId());
+            }
+        }
+        FinishTest finishTest = new FinishTest(testrunUUID, status, finishTime);
 
-        if (extensionContext.getExecutionException().isPresent()) {
-            Throwable cause = extensionContext.getExecutionException().get();
+        logOutput(testId, output, finishTime);
+        if (cause != null) {
+            runContext.log(new Log(testrunUUID, testId, null, STACK_TRACES.renderMessage(cause), LogLevel.WARN, finishTime, LogFormat.PLAIN_TEXT));
+            runContext.log(new Log(testrunUUID, testId, null, renderStackTrace(test, cause), LogLevel.WARN, finishTime, LogFormat.PLAIN_TEXT));
+        }
+        logResourceUsage(testId, resourceUsage, finishTime);
+        checkDuration(test, testId, status, durationNanos, finishTime);
+        runContext.finishTest(testId, finishTest);
+        runContext.removeTest(test.getUniqueId());
+    }
 
-            runContext.getClient().log(new Log(testrunUUID, testId, null,  cause.getMessage(), LogLevel.WARN, ZonedDateTime.now(), LogFormat.PLAIN_TEXT));
-            runContext.getClient().log(new Log(testrunUUID, testId, null, ExceptionUtils.readStackTrace(cause), LogLevel.WARN, ZonedDateTime.now(), LogFormat.PLAIN_TEXT));
+    /**
+     * Lean mode: keep a passing test for the summary of its class, instead of starting and finishing it.
+     */
+    private void addPassedTest(TestInfo test, ZonedDateTime startTime, ZonedDateTime finishTime, long durationNanos, String resourceUsage) {
+        runContext.discardDeferredTest(test.getUniqueId());
+        if (test.getParentId() == null) {
+            return;
+        }
+        List<String> remarks = new ArrayList<>();
+        if (DURATION_HISTORY != null) {
+            String warning = DURATION_HISTORY.testFinished(test.getCodeRef(), durationNanos, true);
+            if (warning != null) {
+                remarks.add(warning);
+            }
         }
-        runContext.getClient().finishTest(testId, finishTest);
+        if (resourceUsage != null) {
+            remarks.add(resourceUsage);
+        }
+        PASSED_TESTS.add(test.getParentId(), new PassedTestSummary.PassedTest(test.getDisplayName(), test.getCodeRef(), startTime, finishTime, durationNanos, remarks));
     }
 
-    private String getCodeRef(ExtensionContext extensionContext) {
+    /**
+     * Lean mode: report the passing tests of a completed class as one summary entry per suite.
+     */
+    private void reportPassedTests(String classUniqueId) {
+        for (PassedTestSummary.Suite suite : PASSED_TESTS.takeClass(classUniqueId)) {
+            Optional<TestSuiteTree> node = runContext.getSuiteTree().findSubtree(suite.getNodeKey());
+            if (node.isEmpty()) {
+                continue;
+            }
+            StartTest startTest = new StartTest(testrunUUID, node.get().getTestSuiteUUID(), suite.getName(), TestType.TEST, null, null, suite.getStartTime());
+            UUID testId = runContext.getClient().startTest(startTest);
+            METRICS.countCall(ListenerMetrics.Call.START_TEST);
+            if (testId == null) {
+                continue;
+            }
+            for (String log : suite.toLogs()) {
+                runContext.log(new Log(testrunUUID, testId, null, log, LogLevel.INFO, suite.getFinishTime(), LogFormat.PLAIN_TEXT));
+            }
+            runContext.finishTest(testId, new FinishTest(testrunUUID, TestStatus.PASSED, suite.getFinishTime()));
+        }
+    }
+
+    private void logOutput(UUID testId, List<String> output, ZonedDateTime time) {
+        if (testId == null) {
+            return;
+        }
+        for (String part : output) {
+            runContext.log(new Log(testrunUUID, testId, null, part, LogLevel.INFO, time, LogFormat.PLAIN_TEXT));
+        }
+    }
+
+    private void logResourceUsage(UUID testId, String resourceUsage, ZonedDateTime time) {
+        if (resourceUsage != null && testId != null) {
+            runContext.log(new Log(testrunUUID, testId, null, resourceUsage, LogLevel.INFO, time, LogFormat.PLAIN_TEXT));
+        }
+    }
+
+    private void checkDuration(TestInfo test, UUID testId, TestStatus status, long durationNanos, ZonedDateTime time) {
+        if (DURATION_HISTORY == null) {
+            return;
+        }
+        String warning = DURATION_HISTORY.testFinished(test.getCodeRef(), durationNanos, status == TestStatus.PASSED);
+        if (warning != null && testId != null) {
+            runContext.log(new Log(testrunUUID, testId, null, warning, LogLevel.WARN, time, LogFormat.PLAIN_TEXT));
+        }
+    }
+
+    private String renderStackTrace(TestInfo test, Throwable cause) {
+        return STACK_TRACES.render(cause, test.getCodeRef() + " " + test.getDisplayName());
+    }
+
+    private static String getCodeRef(ExtensionContext extensionContext) {
         if (extensionContext.getTestClass().isPresent()) {
             return extensionContext.getTestClass().get().getName() + "." + extensionContext.getRequiredTestMethod().getName();
         } else {
@@ -215,18 +376,6 @@ public class OrangebeardExtension implements
         }
     }
 
-    private void startTestRunAndAddShutdownHook(OrangebeardProperties orangebeardProperties) {
-        StartV3TestRun testRun = new StartV3TestRun(orangebeardProperties.getTestSetName(), orangebeardProperties.getDescription(), orangebeardProperties.getAttributes());
-        this.testrunUUID = runContext.getClient().startTestRun(testRun);
-        runContext.setTestRunUUID(testrunUUID);
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-
-            // Then finish the test run itself.
-            FinishV3TestRun finishTestRun = new FinishV3TestRun();
-            runContext.getClient().finishTestRun(testrunUUID, finishTestRun);
-        }));
-    }
-
     private static String getParentId(ExtensionContext parentContext) {
         String parentId = parentContext.getUniqueId();
         if (parentId.contains("[test-template:")) {
@@ -236,21 +385,21 @@ public class OrangebeardExtension implements
     }
 
     /**
-     * Given a class, determine it fully qualified name (canonical name), split into its subpackages.
-     * For example, if the input is the Class for "io.orangebeard.test.TestClass", this method will return the array ["io", "orangebeard", "test", "TestClass"].
-     * If the input is <code>null</code> (as can happen in a unit test), then it returns an array with 0 elements.
-     *
-     * @param clazz The class to analyze.
-     * @return The fully qualified name of the class, split into its components. If there is no class (if the input is <code>null</code>), then this method returns an array with 0 elements.
+     * What the reporting of a test needs to know about it, captured on the test thread.
      */
-    private static String[] getFullyQualifiedClassName(Class<?> clazz) {
-        String[] fullyQualifiedName = new String[]{};
-        if (clazz != null) {
-            fullyQualifiedName = clazz
-                    .getCanonicalName()
-                    .split("\\.")
-            ;
+    @Value
+    private static class TestInfo {
+        String uniqueId;
+        /**
+         * The unique ID of the suite node of the test; <code>null</code> if the test has no parent.
+         */
+        String parentId;
+        String displayName;
+        String codeRef;
+
+        static TestInfo of(ExtensionContext extensionContext) {
+            String parentId = extensionContext.getParent().map(OrangebeardExtension::getParentId).orElse(null);
+            return new TestInfo(extensionContext.getUniqueId(), parentId, extensionContext.getDisplayName(), OrangebeardExtension.getCodeRef(extensionContext));
         }
-        return fullyQualifiedName;
     }
 }
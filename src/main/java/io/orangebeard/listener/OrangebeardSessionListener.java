@@ -0,0 +1,18 @@
+package io.orangebeard.listener;
+
+import org.junit.platform.launcher.LauncherSession;
+import org.junit.platform.launcher.LauncherSessionListener;
+
+/**
+ * Finishes the test run when the launcher session ends, after every test plan of the session has been executed.
+ * Registered through <code>META-INF/services</code>, so it needs no configuration. A build tool that opens one session
+ * per JVM (surefire 3.0.0-M6 and later) reports all test plans of a fork to one run, and finishes it before the fork
+ * exits; the shutdown hook is only a fallback, for launchers that never close their session.
+ */
+public class OrangebeardSessionListener implements LauncherSessionListener {
+
+    @Override
+    public void launcherSessionClosed(LauncherSession session) {
+        OrangebeardContext.getInstance().finishTestRun();
+    }
+}
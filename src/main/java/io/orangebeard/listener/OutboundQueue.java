@@ -0,0 +1,338 @@
+package io.orangebeard.listener;
+
+import io.orangebeard.client.entity.log.Log;
+import io.orangebeard.client.entity.log.LogLevel;
+import io.orangebeard.listener.journal.JournalEvent;
+import io.orangebeard.listener.journal.SpillFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Bounded stage between the JUnit callbacks and the client.
+ * Callbacks submit events; a single dispatcher thread hands them to the client in submission order. The queue holds
+ * at most a fixed number of events in memory. What happens to a log when it is full is set by the {@link Policy}.
+ * Test finishes and attachments are never dropped: they wait for room up to the block timeout, like logs, and are
+ * then written to disk, so a stalled server cannot hold up a test for longer than that.
+ */
+class OutboundQueue {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboundQueue.class);
+    private static final long POLL_INTERVAL_MILLIS = 100;
+    private static final long PROGRESS_INTERVAL_MILLIS = 5000;
+
+    enum Policy {
+        /**
+         * Wait for room in the queue, up to the block timeout; drop the log when the timeout passes.
+         */
+        BLOCK,
+        /**
+         * Drop debug and info logs right away; wait for room, up to the block timeout, for other logs.
+         */
+        DROP_LOGS,
+        /**
+         * Write events to a file on disk until the dispatcher has caught up.
+         */
+        SPILL
+    }
+
+    private final Consumer<JournalEvent> sink;
+    private final BlockingQueue<JournalEvent> queue;
+    private final Policy policy;
+    private final long blockTimeoutMillis;
+    private final Path spillDirectory;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicInteger highWaterMark = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+
+    private final Object spillLock = new Object();
+    private volatile SpillFile spillFile;
+
+    private final Object idle = new Object();
+    private Thread dispatcher;
+    private volatile boolean closed = false;
+
+    /**
+     * @param sink Delivers an event to the client; only ever called from the dispatcher thread.
+     * @param capacity The maximum number of events held in memory.
+     * @param policy What to do with an event when the queue is full.
+     * @param blockTimeoutMillis The maximum time a callback waits for room in the queue.
+     * @param spillDirectory The directory for the overflow file: of every event with the {@link Policy#SPILL} policy,
+     *                       and of the test finishes and attachments that found no room in time with the others.
+     */
+    OutboundQueue(Consumer<JournalEvent> sink, int capacity, Policy policy, long blockTimeoutMillis, Path spillDirectory) {
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.policy = policy;
+        this.blockTimeoutMillis = blockTimeoutMillis;
+        this.spillDirectory = spillDirectory;
+    }
+
+    static OutboundQueue fromProperties(Consumer<JournalEvent> sink, ListenerProperties properties) {
+        String policy = properties.getString(ListenerProperties.QUEUE_POLICY, Policy.BLOCK.name());
+        Policy parsedPolicy;
+        try {
+            parsedPolicy = Policy.valueOf(policy.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Invalid value [{}] for {}; using {}", policy, ListenerProperties.QUEUE_POLICY, Policy.BLOCK);
+            parsedPolicy = Policy.BLOCK;
+        }
+        return new OutboundQueue(sink,
+                properties.getInt(ListenerProperties.QUEUE_CAPACITY, 10_000),
+                parsedPolicy,
+                properties.getLong(ListenerProperties.QUEUE_BLOCK_TIMEOUT_MS, 30_000L),
+                Path.of(properties.getString(ListenerProperties.QUEUE_SPILL_DIRECTORY, "target/orangebeard-spill")));
+    }
+
+    /**
+     * Queue an event for delivery, applying the policy if the queue is full.
+     */
+    void submit(JournalEvent event) {
+        if (closed) {
+            drop(event);
+            return;
+        }
+        startDispatcherIfAbsent();
+        pending.incrementAndGet();
+        boolean accepted;
+        try {
+            accepted = policy == Policy.SPILL ? offerOrSpill(event) : offer(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (accepted) {
+            // Counted once it is in, so callbacks waiting for room do not count towards the depth.
+            highWaterMark.accumulateAndGet(depth.incrementAndGet(), Math::max);
+        } else {
+            markDelivered();
+            drop(event);
+        }
+    }
+
+    /**
+     * Wait until every submitted event has been delivered.
+     *
+     * @return <code>true</code> if the queue drained within the timeout.
+     */
+    boolean awaitEmpty(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (idle) {
+            while (pending.get() > 0) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return false;
+                }
+                idle.wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Deliver what is queued, waiting at most the given time, and stop the dispatcher. Progress is logged while
+     * waiting. Events submitted afterwards are dropped.
+     *
+     * @return <code>true</code> if every event was delivered.
+     */
+    boolean close(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        boolean drained = false;
+        try {
+            while (!drained) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                drained = awaitEmpty(Math.min(PROGRESS_INTERVAL_MILLIS, Math.max(0, remaining)));
+                if (!drained && remaining <= PROGRESS_INTERVAL_MILLIS) {
+                    break;
+                }
+                if (!drained) {
+                    LOGGER.info("Waiting for Orangebeard: {} events pending", pending.get());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closed = true;
+        synchronized (this) {
+            if (dispatcher != null) {
+                dispatcher.interrupt();
+            }
+        }
+        synchronized (spillLock) {
+            closeSpillFile();
+        }
+        if (!drained) {
+            LOGGER.warn("{} events were not delivered to Orangebeard within {} ms", pending.get(), timeoutMillis);
+        }
+        if (dropped.get() > 0) {
+            LOGGER.warn("{} events were dropped because the outbound queue was full", dropped.get());
+        }
+        return drained;
+    }
+
+    /**
+     * @return The number of events waiting for delivery, in memory and spilled to disk.
+     */
+    int getDepth() {
+        return depth.get();
+    }
+
+    /**
+     * @return The highest depth the queue has reached.
+     */
+    int getHighWaterMark() {
+        return highWaterMark.get();
+    }
+
+    /**
+     * @return The number of events that were dropped because the queue was full.
+     */
+    long getDroppedEvents() {
+        return dropped.get();
+    }
+
+    /**
+     * @return The number of events that were written to disk because the queue was full.
+     */
+    long getSpilledEvents() {
+        return spilled.get();
+    }
+
+    private boolean offer(JournalEvent event) throws InterruptedException {
+        SpillFile spilledEvents = spillFile;
+        if (spilledEvents != null && spilledEvents.size() > 0) {
+            return offerOrSpill(event);
+        }
+        if (policy == Policy.DROP_LOGS && isLowPriority(event)) {
+            return queue.offer(event);
+        }
+        if (queue.offer(event, blockTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            return true;
+        }
+        // Only logs are ever dropped: a lost finish would leave its test running in Orangebeard for good.
+        return event.getType() != JournalEvent.Type.LOG && offerOrSpill(event);
+    }
+
+    private boolean offerOrSpill(JournalEvent event) {
+        synchronized (spillLock) {
+            // Once events are spilled, later events follow them to disk, so they are delivered in order.
+            if ((spillFile == null || spillFile.size() == 0) && queue.offer(event)) {
+                return true;
+            }
+            try {
+                if (spillFile == null) {
+                    spillFile = new SpillFile(spillDirectory);
+                }
+                spillFile.append(event);
+                spilled.incrementAndGet();
+                return true;
+            } catch (IOException e) {
+                LOGGER.warn("Unable to spill an event to {}", spillDirectory, e);
+                return false;
+            }
+        }
+    }
+
+    private void drop(JournalEvent event) {
+        if (dropped.getAndIncrement() == 0) {
+            LOGGER.warn("The outbound queue is full; dropping a {} event. Further drops are counted, not logged", event.getType());
+        }
+    }
+
+    private static boolean isLowPriority(JournalEvent event) {
+        if (event.getType() != JournalEvent.Type.LOG) {
+            return false;
+        }
+        LogLevel level = event.getEntity(Log.class).getLogLevel();
+        return level == LogLevel.DEBUG || level == LogLevel.INFO;
+    }
+
+    private synchronized void startDispatcherIfAbsent() {
+        if (dispatcher == null) {
+            dispatcher = new Thread(this::dispatch, "orangebeard-dispatcher");
+            dispatcher.setDaemon(true);
+            dispatcher.start();
+        }
+    }
+
+    private void dispatch() {
+        while (!closed) {
+            JournalEvent event;
+            try {
+                event = next();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (event == null) {
+                continue;
+            }
+            depth.decrementAndGet();
+            try {
+                sink.accept(event);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Unable to deliver a {} event", event.getType(), e);
+            }
+            markDelivered();
+        }
+    }
+
+    private JournalEvent next() throws InterruptedException {
+        // Events in memory are always older than the events on disk.
+        JournalEvent event = queue.poll();
+        if (event == null && spillFile != null) {
+            synchronized (spillLock) {
+                event = pollSpillFile();
+            }
+        }
+        return event != null ? event : queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private JournalEvent pollSpillFile() {
+        if (spillFile == null) {
+            return null;
+        }
+        try {
+            return spillFile.poll();
+        } catch (IOException e) {
+            int lost = spillFile.size();
+            LOGGER.warn("Unable to read back spilled events; {} events are lost", lost, e);
+            dropped.addAndGet(lost);
+            depth.addAndGet(-lost);
+            closeSpillFile();
+            for (int i = 0; i < lost; i++) {
+                markDelivered();
+            }
+            return null;
+        }
+    }
+
+    private void closeSpillFile() {
+        if (spillFile != null) {
+            try {
+                spillFile.close();
+            } catch (IOException e) {
+                LOGGER.warn("Unable to remove the spill file in {}", spillDirectory, e);
+            }
+            spillFile = null;
+        }
+    }
+
+    private void markDelivered() {
+        if (pending.decrementAndGet() == 0) {
+            synchronized (idle) {
+                idle.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package io.orangebeard.listener;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Captures what a test writes to <code>System.out</code> and <code>System.err</code>, including the output of logging
+ * frameworks that write to the console, while the output still reaches the console as usual.
+ * <p>
+ * Each test gets a ring buffer of its own, found through the thread it runs on, so the output of tests that run in
+ * parallel does not mix. Output of other threads the test starts is not captured. When a buffer is full, the oldest
+ * output is overwritten: writing never waits and the memory per test is fixed.
+ */
+class OutputCapture {
+    private static final Charset CHARSET = Charset.defaultCharset();
+    private static final int MAX_LOG_CHARS = 16 * 1024;
+
+    private static final ThreadLocal<RingBuffer> CURRENT = new ThreadLocal<>();
+    private static volatile boolean installed = false;
+
+    private final int bufferBytes;
+    private final double passedSampleRate;
+    private final Map<String, RingBuffer> buffers = new ConcurrentHashMap<>();
+
+    /**
+     * @param bufferBytes The size of the buffer of a test.
+     * @param passedSampleRate The fraction of passing tests whose output is kept, between 0 and 1.
+     */
+    OutputCapture(int bufferBytes, double passedSampleRate) {
+        this.bufferBytes = Math.max(1, bufferBytes);
+        this.passedSampleRate = passedSampleRate;
+    }
+
+    /**
+     * @return An OutputCapture if <code>orangebeard.output.capture</code> is set, otherwise <code>null</code>.
+     */
+    static OutputCapture fromProperties(ListenerProperties properties) {
+        if (!properties.getBoolean(ListenerProperties.OUTPUT_CAPTURE, false)) {
+            return null;
+        }
+        return new OutputCapture(properties.getInt(ListenerProperties.OUTPUT_BUFFER_BYTES, 64 * 1024),
+                properties.getDouble(ListenerProperties.OUTPUT_PASSED_SAMPLE_RATE, 0));
+    }
+
+    /**
+     * Start capturing the output of the current thread for a test.
+     */
+    void testStarted(String uniqueId) {
+        install();
+        RingBuffer buffer = new RingBuffer(bufferBytes);
+        RingBuffer previous = buffers.put(uniqueId, buffer);
+        if (previous != null) {
+            previous.close();
+        }
+        CURRENT.set(buffer);
+    }
+
+    /**
+     * Stop capturing the output of a test.
+     *
+     * @param uniqueId The unique ID of the test.
+     * @param passed Whether the test passed; the output of a passing test is only kept for a sample of the tests.
+     * @return The captured output, split into parts that each fit in a log; empty if nothing was written, the output
+     * is not kept, or the test was not started.
+     */
+    List<String> testFinished(String uniqueId, boolean passed) {
+        RingBuffer buffer = buffers.remove(uniqueId);
+        if (buffer == null) {
+            return List.of();
+        }
+        if (CURRENT.get() == buffer) {
+            CURRENT.remove();
+        }
+        String output = buffer.close();
+        if (passed && ThreadLocalRandom.current().nextDouble() >= passedSampleRate) {
+            return List.of();
+        }
+        return split(output);
+    }
+
+    private static List<String> split(String output) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        while (start < output.length()) {
+            int end = Math.min(output.length(), start + MAX_LOG_CHARS);
+            if (end < output.length()) {
+                int lineEnd = output.lastIndexOf('\n', end - 1);
+                if (lineEnd >= start) {
+                    end = lineEnd + 1;
+                }
+            }
+            parts.add(output.substring(start, end));
+            start = end;
+        }
+        return parts;
+    }
+
+    private static synchronized void install() {
+        if (!installed) {
+            System.setOut(new PrintStream(new TeeOutputStream(System.out), true, CHARSET));
+            System.setErr(new PrintStream(new TeeOutputStream(System.err), true, CHARSET));
+            installed = true;
+        }
+    }
+
+    /**
+     * Writes to the original stream, and to the buffer of the test running on the current thread.
+     */
+    private static class TeeOutputStream extends OutputStream {
+        private final OutputStream original;
+
+        TeeOutputStream(OutputStream original) {
+            this.original = original;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            RingBuffer buffer = CURRENT.get();
+            if (buffer != null) {
+                buffer.write(bytes, offset, length);
+            }
+            try {
+                original.write(bytes, offset, length);
+            } catch (IOException e) {
+                // a PrintStream does not report errors either
+            }
+        }
+
+        @Override
+        public void flush() {
+            try {
+                original.flush();
+            } catch (IOException e) {
+                // a PrintStream does not report errors either
+            }
+        }
+    }
+
+    /**
+     * The last bytes written by a test. Only the thread of the test writes to it, so the lock is never contended.
+     * <p>
+     * The buffer starts empty and grows with the output up to its capacity, so a test that writes little costs little.
+     */
+    static class RingBuffer {
+        private static final int INITIAL_BYTES = 256;
+
+        private final int capacity;
+        private byte[] bytes = new byte[0];
+        private long written = 0;
+        private boolean closed = false;
+
+        RingBuffer(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized void write(byte[] source, int offset, int length) {
+            if (closed || length == 0) {
+                return;
+            }
+            grow(written + length);
+            // Only the last part of a write that is larger than the buffer can survive.
+            int skip = Math.max(0, length - bytes.length);
+            written += skip;
+            for (int i = offset + skip; i < offset + length; ) {
+                int position = (int) (written % bytes.length);
+                int chunk = Math.min(offset + length - i, bytes.length - position);
+                System.arraycopy(source, i, bytes, position, chunk);
+                i += chunk;
+                written += chunk;
+            }
+        }
+
+        /**
+         * Grow the buffer towards the given size, but not beyond the capacity. The buffer only wraps around once it
+         * reached the capacity, so until then the output is at the start of the buffer.
+         */
+        private void grow(long needed) {
+            if (needed <= bytes.length || bytes.length == capacity) {
+                return;
+            }
+            long size = Math.max(needed, Math.max(INITIAL_BYTES, 2L * bytes.length));
+            bytes = Arrays.copyOf(bytes, (int) Math.min(capacity, size));
+        }
+
+        synchronized int allocatedBytes() {
+            return bytes.length;
+        }
+
+        /**
+         * Stop accepting output.
+         *
+         * @return The output in the buffer, with a note on how much was overwritten.
+         */
+        synchronized String close() {
+            closed = true;
+            if (written <= bytes.length) {
+                return new String(bytes, 0, (int) written, CHARSET);
+            }
+            int start = (int) (written % bytes.length);
+            byte[] ordered = new byte[bytes.length];
+            System.arraycopy(bytes, start, ordered, 0, bytes.length - start);
+            System.arraycopy(bytes, 0, ordered, bytes.length - start, start);
+            return String.format("[%d earlier bytes of output were dropped]%n", written - bytes.length) + new String(ordered, CHARSET);
+        }
+    }
+}
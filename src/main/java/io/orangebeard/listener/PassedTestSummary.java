@@ -0,0 +1,119 @@
+package io.orangebeard.listener;
+
+import lombok.Value;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects the passing tests of each suite in lean mode, where they are not reported one by one.
+ * When a test class completes, its passing tests are reported as a single summary entry with one log line per test,
+ * which takes three requests for the whole class instead of two for every test.
+ */
+class PassedTestSummary {
+    private static final int MAX_LOG_CHARS = 16 * 1024;
+
+    @Value
+    static class PassedTest {
+        String displayName;
+        String codeRef;
+        ZonedDateTime startTime;
+        ZonedDateTime finishTime;
+        long durationNanos;
+        /**
+         * Remarks to keep with the test, such as a duration warning; may be empty.
+         */
+        List<String> remarks;
+    }
+
+    /**
+     * The passing tests of one suite.
+     */
+    @Value
+    static class Suite {
+        String nodeKey;
+        List<PassedTest> tests;
+
+        ZonedDateTime getStartTime() {
+            return tests.stream().map(PassedTest::getStartTime).min(ZonedDateTime::compareTo).orElseThrow();
+        }
+
+        ZonedDateTime getFinishTime() {
+            return tests.stream().map(PassedTest::getFinishTime).max(ZonedDateTime::compareTo).orElseThrow();
+        }
+
+        String getName() {
+            return String.format("Passed tests (%d)", tests.size());
+        }
+
+        /**
+         * @return One line per test, split into parts that each fit in a log.
+         */
+        List<String> toLogs() {
+            List<String> logs = new ArrayList<>();
+            StringBuilder log = new StringBuilder();
+            for (PassedTest test : tests) {
+                String line = String.format(Locale.ROOT, "%s (%s) %.3f ms", test.getDisplayName(), test.getCodeRef(),
+                        test.getDurationNanos() < 0 ? 0 : test.getDurationNanos() / 1_000_000.0);
+                if (!test.getRemarks().isEmpty()) {
+                    line += " - " + String.join("; ", test.getRemarks());
+                }
+                if (log.length() > 0 && log.length() + line.length() + 1 > MAX_LOG_CHARS) {
+                    logs.add(log.toString());
+                    log.setLength(0);
+                }
+                log.append(line).append('\n');
+            }
+            if (log.length() > 0) {
+                logs.add(log.toString());
+            }
+            return logs;
+        }
+    }
+
+    private final Map<String, List<PassedTest>> suites = new ConcurrentHashMap<>();
+
+    /**
+     * @return A PassedTestSummary if <code>orangebeard.lean.enabled</code> is set, otherwise <code>null</code>.
+     */
+    static PassedTestSummary fromProperties(ListenerProperties properties) {
+        return properties.getBoolean(ListenerProperties.LEAN_ENABLED, false) ? new PassedTestSummary() : null;
+    }
+
+    /**
+     * @param nodeKey The node key of the suite of the test.
+     */
+    void add(String nodeKey, PassedTest test) {
+        suites.compute(nodeKey, (key, tests) -> {
+            List<PassedTest> suiteTests = tests != null ? tests : new ArrayList<>();
+            suiteTests.add(test);
+            return suiteTests;
+        });
+    }
+
+    /**
+     * Take the passing tests of a completed test class: those directly in its suite, and those in suites below it
+     * that have not been taken yet.
+     *
+     * @param classUniqueId The unique ID of the test class.
+     * @return The suites with passing tests, in no particular order.
+     */
+    List<Suite> takeClass(String classUniqueId) {
+        List<Suite> taken = new ArrayList<>();
+        Iterator<String> nodeKeys = suites.keySet().iterator();
+        while (nodeKeys.hasNext()) {
+            String nodeKey = nodeKeys.next();
+            if (nodeKey.equals(classUniqueId) || nodeKey.startsWith(classUniqueId + "/")) {
+                List<PassedTest> tests = suites.remove(nodeKey);
+                if (tests != null) {
+                    taken.add(new Suite(nodeKey, List.copyOf(tests)));
+                }
+            }
+        }
+        return taken;
+    }
+}
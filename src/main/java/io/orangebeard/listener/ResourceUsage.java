@@ -0,0 +1,104 @@
+package io.orangebeard.listener;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the CPU time and the memory a test uses, and the garbage collection that happens while it runs.
+ * A sample is taken when the test starts and one when it finishes; the difference is reported as a log on the test.
+ * <p>
+ * CPU time and allocations are measured for the thread that started the test. If the test finishes on another
+ * thread (for example with a timeout in a separate thread), the starting thread is still measured, and the report
+ * is marked <code>partial=true</code>. Work in threads that the test starts itself is never included. Garbage
+ * collection is measured for the whole JVM: with tests running in parallel, a pause is counted for every test it
+ * overlaps.
+ */
+class ResourceUsage {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final List<GarbageCollectorMXBean> COLLECTORS = ManagementFactory.getGarbageCollectorMXBeans();
+
+    private final Map<String, Sample> started = new ConcurrentHashMap<>();
+
+    /**
+     * @return A ResourceUsage if <code>orangebeard.resourceUsage.enabled</code> is set, otherwise <code>null</code>.
+     */
+    static ResourceUsage fromProperties(ListenerProperties properties) {
+        return properties.getBoolean(ListenerProperties.RESOURCE_USAGE_ENABLED, false) ? new ResourceUsage() : null;
+    }
+
+    void testStarted(String uniqueId) {
+        started.put(uniqueId, Sample.ofThread(Thread.currentThread().getId()));
+    }
+
+    /**
+     * @return A report of the resources used since the test started, or <code>null</code> if it was not started.
+     */
+    String testFinished(String uniqueId) {
+        Sample start = started.remove(uniqueId);
+        if (start == null) {
+            return null;
+        }
+        boolean sameThread = start.threadId == Thread.currentThread().getId();
+        Sample end = Sample.ofThread(start.threadId);
+
+        // Key-value pairs, so the report is easy to read as well as to extract from the logs.
+        StringBuilder report = new StringBuilder("Resource usage:");
+        if (start.cpuNanos >= 0 && end.cpuNanos >= 0) {
+            report.append(" cpuMs=").append(TimeUnit.NANOSECONDS.toMillis(end.cpuNanos - start.cpuNanos));
+        }
+        if (start.allocatedBytes >= 0 && end.allocatedBytes >= 0) {
+            report.append(String.format(Locale.ROOT, " allocatedMB=%.1f", (end.allocatedBytes - start.allocatedBytes) / (1024.0 * 1024.0)));
+        }
+        report.append(" gcPauseMs=").append(end.gcMillis - start.gcMillis)
+                .append(" gcCount=").append(end.gcCount - start.gcCount);
+        if (!sameThread) {
+            // The test finished on another thread than it started on; only the starting thread was measured.
+            report.append(" partial=true");
+        }
+        return report.toString();
+    }
+
+    private static final class Sample {
+        private final long threadId;
+        private final long cpuNanos;
+        private final long allocatedBytes;
+        private final long gcMillis;
+        private final long gcCount;
+
+        private Sample(long threadId, long cpuNanos, long allocatedBytes, long gcMillis, long gcCount) {
+            this.threadId = threadId;
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.gcMillis = gcMillis;
+            this.gcCount = gcCount;
+        }
+
+        /**
+         * Sample the given thread; CPU time and allocations are -1 if the JVM can't measure them.
+         */
+        static Sample ofThread(long threadId) {
+            long cpuNanos = THREADS.isThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled()
+                    ? THREADS.getThreadCpuTime(threadId) : -1;
+            long allocatedBytes = -1;
+            if (THREADS instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+                if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                    allocatedBytes = threads.getThreadAllocatedBytes(threadId);
+                }
+            }
+            long gcMillis = 0;
+            long gcCount = 0;
+            for (GarbageCollectorMXBean collector : COLLECTORS) {
+                gcMillis += Math.max(0, collector.getCollectionTime());
+                gcCount += Math.max(0, collector.getCollectionCount());
+            }
+            return new Sample(threadId, cpuNanos, allocatedBytes, gcMillis, gcCount);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package io.orangebeard.listener;
+
+import lombok.Getter;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * The clock of the run. The wall clock is read once; every timestamp after that is derived from
+ * {@link System#nanoTime()}. Timestamps are therefore monotonic, have the resolution of <code>nanoTime</code> instead of
+ * that of the wall clock, and are not disturbed when the system clock is adjusted during the run.
+ * <p>
+ * The clock also keeps the start of every running test, so its exact duration is known when it finishes.
+ */
+class RunClock {
+    @Getter
+    private static final RunClock instance = new RunClock();
+
+    private final LongSupplier nanoTime;
+    private final Instant anchorTime;
+    private final long anchorNanos;
+    private final ZoneId zone;
+    private final Map<String, Long> testStarts = new ConcurrentHashMap<>();
+
+    RunClock() {
+        this(System::nanoTime, Instant.now(), ZoneId.systemDefault());
+    }
+
+    RunClock(LongSupplier nanoTime, Instant anchorTime, ZoneId zone) {
+        this.nanoTime = nanoTime;
+        this.anchorNanos = nanoTime.getAsLong();
+        this.anchorTime = anchorTime;
+        this.zone = zone;
+    }
+
+    long nanoTime() {
+        return nanoTime.getAsLong();
+    }
+
+    ZonedDateTime now() {
+        return toDateTime(nanoTime());
+    }
+
+    /**
+     * @param nanos A value of {@link #nanoTime()}.
+     * @return The moment of the run at which the clock read that value.
+     */
+    ZonedDateTime toDateTime(long nanos) {
+        return ZonedDateTime.ofInstant(anchorTime.plusNanos(nanos - anchorNanos), zone);
+    }
+
+    /**
+     * @return The start time of the test.
+     */
+    ZonedDateTime testStarted(String uniqueId) {
+        long start = nanoTime();
+        testStarts.put(uniqueId, start);
+        return toDateTime(start);
+    }
+
+    /**
+     * @return Whether the test was started, and has not finished yet.
+     */
+    boolean isRunning(String uniqueId) {
+        return testStarts.containsKey(uniqueId);
+    }
+
+    /**
+     * Stop tracking a test.
+     *
+     * @param uniqueId The unique ID of the test.
+     * @param finishNanos The value of {@link #nanoTime()} when the test finished.
+     * @return The duration of the test in nanoseconds, or -1 if its start is not known.
+     */
+    long testFinished(String uniqueId, long finishNanos) {
+        Long start = testStarts.remove(uniqueId);
+        return start == null ? -1 : finishNanos - start;
+    }
+}
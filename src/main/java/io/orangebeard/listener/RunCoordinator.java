@@ -0,0 +1,268 @@
+package io.orangebeard.listener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.LongPredicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Lets several JVMs of one build, such as surefire forks, report to a single test run.
+ * <p>
+ * With an explicit run ID, every JVM joins that run; it is neither started nor finished here. With a coordination
+ * directory, the JVMs agree through the file <code>run</code> in it, under a file lock: it holds the UUID of the run
+ * and the process IDs of the JVMs taking part. The first JVM starts the run; later JVMs join it. The last JVM to leave
+ * finishes the run, after a grace period in which JVMs that start late can still join.
+ * <p>
+ * Only the UUID of the run is shared, which must be the one the server issued: every JVM reports through a client of
+ * its own, which cannot resolve the UUIDs another client made up. Each JVM starts the suites of the classes it runs.
+ * <p>
+ * A run that was left behind by a JVM that died (no process in it is alive, and the file is older than the grace
+ * period) is not joined; a new run is started instead.
+ */
+class RunCoordinator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RunCoordinator.class);
+    /**
+     * A file lock is held by the JVM, not by a thread, so threads of one JVM are kept apart by this monitor.
+     */
+    private static final Object JVM_LOCK = new Object();
+
+    private final UUID explicitRunId;
+    private final Path directory;
+    private final long finishGraceMillis;
+    private final long pid;
+    private final LongPredicate isAlive;
+
+    private UUID runId;
+    /**
+     * Set if coordination failed and this JVM started a run of its own, which it finishes itself.
+     */
+    private boolean ownRun = false;
+
+    /**
+     * @param explicitRunId The run to join, or <code>null</code>.
+     * @param directory The coordination directory, or <code>null</code>.
+     * @param finishGraceMillis How long the last JVM waits for others to join before it finishes the run.
+     */
+    RunCoordinator(UUID explicitRunId, Path directory, long finishGraceMillis) {
+        this(explicitRunId, directory, finishGraceMillis, ProcessHandle.current().pid(),
+                participant -> ProcessHandle.of(participant).map(ProcessHandle::isAlive).orElse(false));
+    }
+
+    /**
+     * @param pid The process ID of this JVM.
+     * @param isAlive Tells whether the JVM with a given process ID is still running.
+     */
+    RunCoordinator(UUID explicitRunId, Path directory, long finishGraceMillis, long pid, LongPredicate isAlive) {
+        this.explicitRunId = explicitRunId;
+        this.directory = directory;
+        this.finishGraceMillis = finishGraceMillis;
+        this.pid = pid;
+        this.isAlive = isAlive;
+    }
+
+    /**
+     * @return A coordinator if <code>orangebeard.run.id</code> or <code>orangebeard.run.coordinationDirectory</code>
+     * is set, otherwise <code>null</code>: every JVM then has a run of its own.
+     */
+    static RunCoordinator fromProperties(ListenerProperties properties) {
+        String runId = properties.getString(ListenerProperties.RUN_ID, null);
+        String directory = properties.getString(ListenerProperties.RUN_COORDINATION_DIRECTORY, null);
+        if (runId == null && directory == null) {
+            return null;
+        }
+        UUID explicitRunId = null;
+        if (runId != null) {
+            try {
+                explicitRunId = UUID.fromString(runId.trim());
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Invalid value [{}] for {}; it is ignored", runId, ListenerProperties.RUN_ID);
+                if (directory == null) {
+                    return null;
+                }
+            }
+        }
+        return new RunCoordinator(explicitRunId, directory == null ? null : Path.of(directory),
+                properties.getLong(ListenerProperties.RUN_FINISH_GRACE_MS, 3000L));
+    }
+
+    /**
+     * Join the run of the build, starting it if this JVM is the first.
+     *
+     * @param startRun Starts a new run.
+     * @return The UUID of the run.
+     */
+    synchronized UUID join(Supplier<UUID> startRun) {
+        if (directory == null) {
+            runId = explicitRunId;
+            return runId;
+        }
+        try {
+            runId = withLock(() -> joinOrStart(startRun));
+        } catch (UncheckedIOException e) {
+            if (explicitRunId != null) {
+                LOGGER.warn("Unable to coordinate test run {} with the other JVMs of the build", explicitRunId, e);
+                runId = explicitRunId;
+            } else {
+                LOGGER.warn("Unable to join the test run of the build; starting a run of this JVM's own", e);
+                runId = startRun.get();
+                ownRun = true;
+            }
+        }
+        return runId;
+    }
+
+    private UUID joinOrStart(Supplier<UUID> startRun) throws IOException {
+        RunState state = readState();
+        if (state != null && explicitRunId != null && !state.runId.equals(explicitRunId)) {
+            state = null;
+        }
+        if (state != null) {
+            state.pids.removeIf(participant -> !isAlive.test(participant));
+            if (state.pids.isEmpty() && isStale()) {
+                LOGGER.info("Not joining test run {}, as none of its JVMs is alive; starting a new run", state.runId);
+                state = null;
+            }
+        }
+        if (state == null) {
+            UUID startedRun = explicitRunId != null ? explicitRunId : startRun.get();
+            if (startedRun == null) {
+                return null;
+            }
+            state = new RunState(startedRun, new TreeSet<>());
+        }
+        state.pids.add(pid);
+        writeState(state);
+        return state.runId;
+    }
+
+    /**
+     * Leave the run.
+     *
+     * @return <code>true</code> if this JVM was the last one, and should finish the run.
+     */
+    synchronized boolean leave() {
+        if (ownRun) {
+            return true;
+        }
+        if (runId == null || directory == null) {
+            return false;
+        }
+        try {
+            return leaveRun();
+        } catch (UncheckedIOException e) {
+            LOGGER.warn("Unable to leave the test run of the build; it is left to the other JVMs to finish", e);
+            return false;
+        }
+    }
+
+    private boolean leaveRun() {
+        boolean others = withLock(() -> {
+            RunState state = readState();
+            if (state == null || !state.runId.equals(runId)) {
+                return true;
+            }
+            state.pids.remove(pid);
+            writeState(state);
+            return !state.pids.isEmpty();
+        });
+        if (others || explicitRunId != null) {
+            return false;
+        }
+        try {
+            Thread.sleep(finishGraceMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return withLock(() -> {
+            RunState state = readState();
+            if (state == null || !state.runId.equals(runId) || !state.pids.isEmpty()) {
+                return false;
+            }
+            Files.deleteIfExists(stateFile());
+            return true;
+        });
+    }
+
+    private RunState readState() throws IOException {
+        Path file = stateFile();
+        if (!Files.exists(file)) {
+            return null;
+        }
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.isEmpty()) {
+            return null;
+        }
+        try {
+            UUID stateRunId = UUID.fromString(lines.get(0).trim());
+            Set<Long> pids = lines.stream().skip(1).map(String::trim).filter(line -> !line.isEmpty())
+                    .map(Long::parseLong).collect(Collectors.toCollection(TreeSet::new));
+            return new RunState(stateRunId, pids);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Ignoring the invalid run state in {}", file);
+            return null;
+        }
+    }
+
+    private void writeState(RunState state) throws IOException {
+        StringBuilder content = new StringBuilder(state.runId.toString()).append('\n');
+        state.pids.forEach(participant -> content.append(participant).append('\n'));
+        Files.writeString(stateFile(), content, StandardCharsets.UTF_8);
+    }
+
+    private boolean isStale() throws IOException {
+        long age = System.currentTimeMillis() - Files.getLastModifiedTime(stateFile()).toMillis();
+        return age > 2 * finishGraceMillis;
+    }
+
+    private Path stateFile() {
+        return directory.resolve("run");
+    }
+
+    private interface LockedAction<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * Run an action while holding the lock of the coordination directory, which excludes the other JVMs.
+     */
+    private <T> T withLock(LockedAction<T> action) {
+        synchronized (JVM_LOCK) {
+            return lockFile(action);
+        }
+    }
+
+    private <T> T lockFile(LockedAction<T> action) {
+        try {
+            Files.createDirectories(directory);
+            try (FileChannel channel = FileChannel.open(directory.resolve("lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock ignored = channel.lock()) {
+                return action.run();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to coordinate the test run through " + directory, e);
+        }
+    }
+
+    private static class RunState {
+        private final UUID runId;
+        private final Set<Long> pids;
+
+        RunState(UUID runId, Set<Long> pids) {
+            this.runId = runId;
+            this.pids = pids;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package io.orangebeard.listener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remembers which stack traces were already reported in this run.
+ * When a shared fixture breaks, many tests fail with the same stack trace. Only the first of them gets the full
+ * trace; the others get a short reference to that first test. Stack traces are identified by a fingerprint of the
+ * exception types and frames of the whole cause chain, so the (expensive) text is only built for new traces.
+ * The least recently used fingerprints are evicted once the cache is full.
+ */
+class StackTraceCache {
+    private static final int MAX_CAUSES = 32;
+
+    private final Map<Fingerprint, String> firstOccurrences;
+    private final boolean enabled;
+    private final FailureRenderer renderer;
+
+    /**
+     * @param maxSize The maximum number of stack traces to remember; 0 or less disables the cache.
+     * @param renderer Renders the stack traces that are reported in full.
+     */
+    StackTraceCache(int maxSize, FailureRenderer renderer) {
+        this.enabled = maxSize > 0;
+        this.renderer = renderer;
+        this.firstOccurrences = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Fingerprint, String> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    static StackTraceCache fromProperties(ListenerProperties properties) {
+        return new StackTraceCache(properties.getInt(ListenerProperties.STACK_TRACE_CACHE_SIZE, 1000), FailureRenderer.fromProperties(properties));
+    }
+
+    /**
+     * Render the stack trace of a failure, or a reference to the test that already reported the same stack trace.
+     *
+     * @param cause The failure.
+     * @param testName The name of the test that failed; used in the references of later tests.
+     * @return The full stack trace if it was not reported before, otherwise a short reference.
+     */
+    String render(Throwable cause, String testName) {
+        if (!enabled) {
+            return renderer.render(cause);
+        }
+        Fingerprint fingerprint = Fingerprint.of(cause);
+        String firstTest;
+        synchronized (firstOccurrences) {
+            firstTest = firstOccurrences.putIfAbsent(fingerprint, testName);
+        }
+        if (firstTest == null) {
+            return renderer.render(cause);
+        }
+        return String.format("%s: same stack trace as reported for test [%s]", cause.getClass().getName(), firstTest);
+    }
+
+    /**
+     * @return The message of a failure, within the same budget as its stack trace.
+     */
+    String renderMessage(Throwable cause) {
+        return renderer.renderMessage(cause);
+    }
+
+    private static final class Fingerprint {
+        private final List<String> types;
+        private final List<StackTraceElement[]> frames;
+        private final int hash;
+
+        private Fingerprint(List<String> types, List<StackTraceElement[]> frames) {
+            this.types = types;
+            this.frames = frames;
+            int h = types.hashCode();
+            for (StackTraceElement[] causeFrames : frames) {
+                h = 31 * h + Arrays.hashCode(causeFrames);
+            }
+            this.hash = h;
+        }
+
+        static Fingerprint of(Throwable throwable) {
+            List<String> types = new ArrayList<>();
+            List<StackTraceElement[]> frames = new ArrayList<>();
+            Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Throwable current = throwable; current != null && types.size() < MAX_CAUSES && seen.add(current); current = current.getCause()) {
+                types.add(current.getClass().getName());
+                frames.add(current.getStackTrace());
+            }
+            return new Fingerprint(types, frames);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Fingerprint)) {
+                return false;
+            }
+            Fingerprint other = (Fingerprint) o;
+            if (hash != other.hash || !types.equals(other.types)) {
+                return false;
+            }
+            for (int i = 0; i < frames.size(); i++) {
+                if (!Arrays.equals(frames.get(i), other.frames.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package io.orangebeard.listener;
+
+import io.orangebeard.client.entity.suite.StartSuite;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Starts the test suites for a package and class hierarchy and records them in the suite tree of the run.
+ * The suites that are still missing on a path are started with a single call, as <code>StartSuite</code> accepts a
+ * path of suite names and returns a UUID for each of them.
+ */
+class SuiteRegistrar {
+    private final OrangebeardContext runContext;
+
+    SuiteRegistrar(OrangebeardContext runContext) {
+        this.runContext = runContext;
+    }
+
+    /**
+     * Make sure there is a suite for every name on the path, starting the missing ones.
+     *
+     * @param names The suite names, from the top level down.
+     * @param keys The node key for each name, or <code>null</code> (for the list or an element) to use the suite's UUID.
+     * @return An Optional containing the node of the last suite, or an empty Optional if the suites could not be started.
+     */
+    Optional<TestSuiteTree> register(List<String> names, List<String> keys) {
+        TestSuiteTree root = runContext.getSuiteTree();
+        Optional<TestSuiteTree> node = lookup(root, names);
+        if (node.isPresent() || names.isEmpty()) {
+            return node;
+        }
+        // New suites are rare once the test plan has been registered up front, so one lock for all of them is enough.
+        // It guarantees that a suite is started only once, also when several classes need the same missing suites.
+        synchronized (root) {
+            TestSuiteTree parentNode = root;
+            int level = 0;
+            for (; level < names.size(); level++) {
+                Optional<TestSuiteTree> child = parentNode.getChildByName(names.get(level));
+                if (child.isEmpty()) {
+                    break;
+                }
+                parentNode = child.get();
+            }
+            if (level == names.size()) {
+                return Optional.of(parentNode);
+            }
+
+            // The UUID of the parent suite; "null" if the parent node is the root node, which is never reported.
+            UUID parentSuiteUuid = parentNode != root ? parentNode.getTestSuiteUUID() : null;
+            List<String> missing = names.subList(level, names.size());
+            StartSuite startSuite = new StartSuite(runContext.getTestRunUUID(), parentSuiteUuid, null, null, new ArrayList<>(missing));
+            List<UUID> suiteIds = runContext.getClient().startSuite(startSuite);
+            ListenerMetrics.getInstance().countCall(ListenerMetrics.Call.START_SUITE);
+            if (suiteIds == null) {
+                return Optional.empty();
+            }
+            for (int i = 0; i < missing.size(); i++) {
+                UUID suiteId = i < suiteIds.size() ? suiteIds.get(i) : null;
+                if (suiteId == null) {
+                    return Optional.empty();
+                }
+                String key = keys != null ? keys.get(level + i) : null;
+                Optional<TestSuiteTree> child = parentNode.addChild(missing.get(i), key != null ? key : suiteId.toString(), suiteId);
+                if (child.isEmpty()) {
+                    return Optional.empty();
+                }
+                parentNode = child.get();
+            }
+            return Optional.of(parentNode);
+        }
+    }
+
+    /**
+     * Given a class, determine it fully qualified name (canonical name), split into its subpackages.
+     * For example, if the input is the Class for "io.orangebeard.test.TestClass", this method will return the list ["io", "orangebeard", "test", "TestClass"].
+     * If the input is <code>null</code> (as can happen in a unit test), or a class without a canonical name, then it returns an empty list.
+     *
+     * @param clazz The class to analyze.
+     * @return The fully qualified name of the class, split into its components.
+     */
+    static List<String> suiteNames(Class<?> clazz) {
+        if (clazz == null || clazz.getCanonicalName() == null) {
+            return Collections.emptyList();
+        }
+        return List.of(clazz.getCanonicalName().split("\\."));
+    }
+
+    private static Optional<TestSuiteTree> lookup(TestSuiteTree root, List<String> names) {
+        TestSuiteTree node = root;
+        for (String name : names) {
+            Optional<TestSuiteTree> child = node.getChildByName(name);
+            if (child.isEmpty()) {
+                return Optional.empty();
+            }
+            node = child.get();
+        }
+        return Optional.of(node);
+    }
+}
@@ -0,0 +1,315 @@
+package io.orangebeard.listener;
+
+import io.orangebeard.client.OrangebeardProperties;
+import io.orangebeard.client.entity.Attribute;
+import io.orangebeard.client.entity.FinishV3TestRun;
+import io.orangebeard.client.entity.StartV3TestRun;
+import io.orangebeard.client.entity.attachment.Attachment;
+import io.orangebeard.client.entity.attachment.AttachmentFile;
+import io.orangebeard.client.entity.attachment.AttachmentMetaData;
+import io.orangebeard.client.entity.log.Log;
+import io.orangebeard.client.entity.suite.StartSuite;
+import io.orangebeard.client.entity.test.FinishTest;
+import io.orangebeard.client.entity.test.StartTest;
+import io.orangebeard.client.v3.OrangebeardAsyncV3Client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A client that calls the v3 listener API of Orangebeard synchronously: every call returns once the server answered,
+ * with the UUID the server issued, and throws if the server could not be reached or answered with an error.
+ * <p>
+ * The async client answers a start with a UUID of its own, which it resolves to the server's UUID later; such a UUID
+ * means nothing to another client. Where a UUID leaves the client (the run shared by the JVMs of a build, the
+ * checkpoint of a journal upload), or where a failure must be noticed, this client is used instead.
+ */
+public class SynchronousV3Client extends OrangebeardAsyncV3Client {
+    private static final Pattern UUID_PATTERN = Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final String authorization;
+
+    public SynchronousV3Client(OrangebeardProperties orangebeardProperties) {
+        this(orangebeardProperties.getEndpoint(), orangebeardProperties.getAccessToken(), orangebeardProperties.getProjectName(),
+                orangebeardProperties.getTestSetName());
+    }
+
+    public SynchronousV3Client(String endpoint, UUID accessToken, String projectName, String testSetName) {
+        super(endpoint, accessToken, projectName, testSetName);
+        this.httpClient = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+        this.baseUrl = (endpoint.endsWith("/") ? endpoint : endpoint + "/") + "listener/v3/" + projectName + "/";
+        this.authorization = "Bearer " + accessToken;
+    }
+
+    @Override
+    public UUID startTestRun(StartV3TestRun testRun) {
+        Json json = new Json()
+                .field("testSetName", testRun.getTestSetName())
+                .field("description", testRun.getDescription())
+                .attributes(testRun.getAttributes());
+        return uuid(send("POST", "test-run/start", json));
+    }
+
+    @Override
+    public void startAnnouncedTestRun(UUID testRunUUID) {
+        send("PUT", "test-run/start/" + testRunUUID, null);
+    }
+
+    @Override
+    public void finishTestRun(UUID testRunUUID, FinishV3TestRun finishTestRun) {
+        send("PUT", "test-run/finish/" + testRunUUID, new Json());
+    }
+
+    @Override
+    public List<UUID> startSuite(StartSuite startSuite) {
+        Json json = new Json()
+                .field("testRunUUID", startSuite.getTestRunUUID())
+                .field("parentSuiteUUID", startSuite.getParentSuiteUUID())
+                .field("description", startSuite.getDescription())
+                .attributes(startSuite.getAttributes())
+                .strings("suiteNames", startSuite.getSuiteNames());
+        List<UUID> suiteIds = new ArrayList<>();
+        Matcher matcher = UUID_PATTERN.matcher(send("POST", "suite/start", json));
+        while (matcher.find()) {
+            suiteIds.add(UUID.fromString(matcher.group()));
+        }
+        return suiteIds;
+    }
+
+    @Override
+    public UUID startTest(StartTest startTest) {
+        Json json = new Json()
+                .field("testRunUUID", startTest.getTestRunUUID())
+                .field("suiteUUID", startTest.getSuiteUUID())
+                .field("testName", startTest.getTestName())
+                .field("testType", startTest.getTestType())
+                .field("description", startTest.getDescription())
+                .attributes(startTest.getAttributes())
+                .field("startTime", startTest.getStartTime());
+        return uuid(send("POST", "test/start", json));
+    }
+
+    @Override
+    public void finishTest(UUID testUUID, FinishTest finishTest) {
+        Json json = new Json()
+                .field("testRunUUID", finishTest.getTestRunUUID())
+                .field("status", finishTest.getStatus())
+                .field("endTime", finishTest.getEndTime());
+        send("PUT", "test/finish/" + testUUID, json);
+    }
+
+    @Override
+    public UUID log(Log log) {
+        return uuid(send("POST", "log", logJson(log)));
+    }
+
+    @Override
+    public void sendLogBatch(List<Log> logs) {
+        StringBuilder batch = new StringBuilder("[");
+        for (Log log : logs) {
+            batch.append(batch.length() > 1 ? "," : "").append(logJson(log));
+        }
+        send("POST", "log/batch", batch.append(']').toString());
+    }
+
+    @Override
+    public UUID sendAttachment(Attachment attachment) {
+        AttachmentFile file = attachment.getFile();
+        AttachmentMetaData metaData = attachment.getMetaData();
+        Json json = new Json()
+                .field("testRunUUID", metaData.getTestRunUUID())
+                .field("testUUID", metaData.getTestUUID())
+                .field("stepUUID", metaData.getStepUUID())
+                .field("logUUID", metaData.getLogUUID())
+                .field("attachmentTime", metaData.getAttachmentTime());
+
+        String boundary = "orangebeard-" + UUID.randomUUID();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeString(body, "--" + boundary + "\r\nContent-Disposition: form-data; name=\"json\"\r\nContent-Type: application/json\r\n\r\n"
+                + json + "\r\n--" + boundary + "\r\nContent-Disposition: form-data; name=\"attachment\"; filename=\""
+                + file.getName().replace("\"", "") + "\"\r\nContent-Type: " + file.getContentType() + "\r\n\r\n");
+        body.writeBytes(file.getContent());
+        writeString(body, "\r\n--" + boundary + "--\r\n");
+        HttpRequest request = request("attachment", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+        return uuid(send(request));
+    }
+
+    private static Json logJson(Log log) {
+        return new Json()
+                .field("testRunUUID", log.getTestRunUUID())
+                .field("testUUID", log.getTestUUID())
+                .field("stepUUID", log.getStepUUID())
+                .field("message", log.getMessage())
+                .field("logLevel", log.getLogLevel())
+                .field("logTime", log.getLogTime())
+                .field("logFormat", log.getLogFormat());
+    }
+
+    private String send(String method, String path, Object json) {
+        HttpRequest.BodyPublisher body = json == null
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofString(json.toString(), StandardCharsets.UTF_8);
+        return send(request(path, "application/json").method(method, body).build());
+    }
+
+    private HttpRequest.Builder request(String path, String contentType) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(TIMEOUT)
+                .header("Authorization", authorization)
+                .header("Content-Type", contentType);
+    }
+
+    /**
+     * Send a request and wait for the answer.
+     *
+     * @return The body of the answer.
+     * @throws IllegalStateException If the server answered with an error status.
+     * @throws UncheckedIOException If the server could not be reached.
+     */
+    private String send(HttpRequest request) {
+        HttpResponse<String> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to reach Orangebeard for " + request.method() + " " + request.uri(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + request.method() + " " + request.uri(), e);
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException("Orangebeard answered " + request.method() + " " + request.uri() + " with status " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    private static UUID uuid(String body) {
+        Matcher matcher = UUID_PATTERN.matcher(body);
+        if (!matcher.find()) {
+            throw new IllegalStateException("Orangebeard answered without a UUID: " + body);
+        }
+        return UUID.fromString(matcher.group());
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        out.writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes the JSON object of a request; fields without a value are left out.
+     */
+    private static class Json {
+        private final StringBuilder json = new StringBuilder("{");
+
+        Json field(String name, Object value) {
+            if (value == null) {
+                return this;
+            }
+            name(name);
+            if (value instanceof ZonedDateTime) {
+                string(((ZonedDateTime) value).format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+            } else {
+                string(value.toString());
+            }
+            return this;
+        }
+
+        Json strings(String name, Collection<String> values) {
+            if (values == null) {
+                return this;
+            }
+            name(name);
+            json.append('[');
+            boolean first = true;
+            for (String value : values) {
+                json.append(first ? "" : ",");
+                string(value);
+                first = false;
+            }
+            json.append(']');
+            return this;
+        }
+
+        Json attributes(Collection<Attribute> attributes) {
+            if (attributes == null) {
+                return this;
+            }
+            name("attributes");
+            json.append('[');
+            boolean first = true;
+            for (Attribute attribute : attributes) {
+                json.append(first ? "{" : ",{");
+                first = false;
+                if (attribute.getKey() != null) {
+                    json.append("\"key\":");
+                    string(attribute.getKey());
+                    json.append(',');
+                }
+                json.append("\"value\":");
+                string(attribute.getValue() == null ? "" : attribute.getValue());
+                json.append('}');
+            }
+            json.append(']');
+            return this;
+        }
+
+        private void name(String name) {
+            json.append(json.length() > 1 ? "," : "").append('"').append(name).append("\":");
+        }
+
+        private void string(String value) {
+            json.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        json.append("\\\"");
+                        break;
+                    case '\\':
+                        json.append("\\\\");
+                        break;
+                    case '\n':
+                        json.append("\\n");
+                        break;
+                    case '\r':
+                        json.append("\\r");
+                        break;
+                    case '\t':
+                        json.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            json.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            json.append(c);
+                        }
+                }
+            }
+            json.append('"');
+        }
+
+        @Override
+        public String toString() {
+            return json + "}";
+        }
+    }
+}
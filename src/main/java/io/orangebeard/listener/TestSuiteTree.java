@@ -4,8 +4,10 @@ import org.springframework.lang.NonNull;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 class TestSuiteTree {
     /** Name of the node. Unique among siblings. */
@@ -19,10 +21,15 @@ class TestSuiteTree {
 
     /** UUID for the test suite at this level. */
     private final UUID testSuiteUUID;
-    /** Child nodes. */
-    private final List<TestSuiteTree> children = new ArrayList<>();
+    /** Child nodes, by name. */
+    private final Map<String, TestSuiteTree> children = new ConcurrentHashMap<>();
     /** Reference to the parent node. */
-    private TestSuiteTree parent;
+    private volatile TestSuiteTree parent;
+    /**
+     * Node key to node index, shared by all nodes of the same tree.
+     * Turns <code>findSubtree</code> into a hash lookup instead of a walk over the whole tree.
+     */
+    private volatile Map<String, TestSuiteTree> index;
 
     /**
      * Construct a new Tree of test suites.
@@ -31,9 +38,16 @@ class TestSuiteTree {
      * @param testSuiteUUID UUID for the test suite at this level.
      */
     public TestSuiteTree(@NonNull String name, @NonNull String nodeKey, @NonNull UUID testSuiteUUID) {
+        this(name, nodeKey, testSuiteUUID, null, new ConcurrentHashMap<>());
+    }
+
+    private TestSuiteTree(String name, String nodeKey, UUID testSuiteUUID, TestSuiteTree parent, Map<String, TestSuiteTree> index) {
         this.testSuiteName = name;
         this.nodeKey = nodeKey;
         this.testSuiteUUID = testSuiteUUID;
+        this.parent = parent;
+        this.index = index;
+        index.putIfAbsent(nodeKey, this);
     }
 
     public String getName() { return testSuiteName; }
@@ -48,6 +62,14 @@ class TestSuiteTree {
         return !children.isEmpty();
     }
 
+    /**
+     * Count the nodes in the tree this node belongs to, including the root node.
+     * @return The number of nodes in the whole tree.
+     */
+    public int size() {
+        return index.size();
+    }
+
     @Override
     public String toString() {
         return String.format("(%s, %s, %s)", nodeKey, testSuiteName, testSuiteUUID);
@@ -57,6 +79,7 @@ class TestSuiteTree {
      * Add a child node to the given tree node.
      * The name of the child node must be unique among its siblings.
      * In other words, a node should not have two or more children with the same value for "name".
+     * Safe to call concurrently; if two threads add a child with the same name, only one of them succeeds.
      * @param name Name of the new child node.
      * @param nodeKey ID to register the test suite. It is the caller's responsibility that this is unique in the tree!
      *                    It is advised to use <code>testSuite.UUID</code> for this ID.
@@ -65,13 +88,16 @@ class TestSuiteTree {
      */
     public Optional<TestSuiteTree> addChild(@NonNull String name, @NonNull String nodeKey, @NonNull UUID testSuiteUUID) {
         // The field "name" should be unique among the children of a node.
-        if (getChildByName(name).isPresent()) {
+        if (children.containsKey(name)) {
             return Optional.empty();
         }
         // If there is not already a child node with the given name, create and add it.
-        TestSuiteTree child = new TestSuiteTree(name, nodeKey, testSuiteUUID);
-        children.add(child);
-        child.parent = this;
+        TestSuiteTree child = new TestSuiteTree(name, nodeKey, testSuiteUUID, this, index);
+        if (children.putIfAbsent(name, child) != null) {
+            // Another thread added a child with this name in the meantime.
+            index.remove(nodeKey, child);
+            return Optional.empty();
+        }
         return Optional.of(child);
     }
 
@@ -81,17 +107,13 @@ class TestSuiteTree {
      * @return An Optional containing the subtree with the given ID. If there is no such subtree, returns an empty Optional.
      */
     public Optional<TestSuiteTree> findSubtree(@NonNull String id) {
-        if (id.equals(nodeKey)) {
-            return Optional.of(this);
-        }
-
-        for (TestSuiteTree child: children) {
-            Optional<TestSuiteTree> searchResult = child.findSubtree(id);
-            if (searchResult.isPresent()) {
-                return searchResult;
+        TestSuiteTree node = index.get(id);
+        // The index covers the whole tree; only return the node if it descends from this node.
+        for (TestSuiteTree ancestor = node; ancestor != null; ancestor = ancestor.parent) {
+            if (ancestor == this) {
+                return Optional.of(node);
             }
         }
-
         return Optional.empty();
     }
 
@@ -102,11 +124,7 @@ class TestSuiteTree {
      * @return An Optional containing the child node with the given name; or an empty Optional if there is no such node.
      */
     public Optional<TestSuiteTree> getChildByName(@NonNull String name) {
-        return children
-                .stream()
-                .filter(treeItem->name.equals(treeItem.getName()))
-                .findFirst()
-        ;
+        return Optional.ofNullable(children.get(name));
     }
 
     /**
@@ -118,7 +136,7 @@ class TestSuiteTree {
         if (children.isEmpty()) {
             res.add(this);
         } else {
-            for (TestSuiteTree child : children) {
+            for (TestSuiteTree child : children.values()) {
                 res.addAll(child.getLeaves());
             }
         }
@@ -127,16 +145,28 @@ class TestSuiteTree {
 
     /**
      * Detach this subtree from its parent.
+     * The detached subtree gets an index of its own, and its nodes can no longer be found from the former parent.
      * @return `true` if and the subtree was successfully removed, or if it didn't have a parent in the first place. Returns `false` otherwise.
      */
     public boolean detach() {
-        if (parent == null)
+        TestSuiteTree currentParent = parent;
+        if (currentParent == null)
             return true;
 
-        boolean res = parent.children.remove(this);
+        boolean res = currentParent.children.remove(testSuiteName, this);
         if (res) {
             this.parent = null;
+            reindex(index, new ConcurrentHashMap<>());
         }
         return res;
     }
+
+    private void reindex(Map<String, TestSuiteTree> oldIndex, Map<String, TestSuiteTree> newIndex) {
+        oldIndex.remove(nodeKey, this);
+        index = newIndex;
+        newIndex.putIfAbsent(nodeKey, this);
+        for (TestSuiteTree child : children.values()) {
+            child.reindex(oldIndex, newIndex);
+        }
+    }
 }
@@ -0,0 +1,254 @@
+package io.orangebeard.listener.journal;
+
+import io.orangebeard.client.entity.Attribute;
+import io.orangebeard.client.entity.FinishV3TestRun;
+import io.orangebeard.client.entity.LogFormat;
+import io.orangebeard.client.entity.StartV3TestRun;
+import io.orangebeard.client.entity.attachment.Attachment;
+import io.orangebeard.client.entity.attachment.AttachmentFile;
+import io.orangebeard.client.entity.attachment.AttachmentMetaData;
+import io.orangebeard.client.entity.log.Log;
+import io.orangebeard.client.entity.log.LogLevel;
+import io.orangebeard.client.entity.suite.StartSuite;
+import io.orangebeard.client.entity.test.FinishTest;
+import io.orangebeard.client.entity.test.StartTest;
+import io.orangebeard.client.entity.test.TestStatus;
+import io.orangebeard.client.entity.test.TestType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Binary encoding of journal events. Every field is written in a fixed order; absent values are marked explicitly.
+ */
+final class JournalCodec {
+
+    private JournalCodec() {
+        //prevent instantiation
+    }
+
+    static byte[] encode(JournalEvent event) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(event.getType().ordinal());
+            out.writeInt(event.getIds().size());
+            for (UUID id : event.getIds()) {
+                writeUUID(out, id);
+            }
+            switch (event.getType()) {
+                case START_RUN: {
+                    StartV3TestRun startRun = event.getEntity(StartV3TestRun.class);
+                    writeString(out, startRun.getTestSetName());
+                    writeString(out, startRun.getDescription());
+                    writeAttributes(out, startRun.getAttributes());
+                    break;
+                }
+                case START_SUITE: {
+                    StartSuite startSuite = event.getEntity(StartSuite.class);
+                    writeUUID(out, startSuite.getTestRunUUID());
+                    writeUUID(out, startSuite.getParentSuiteUUID());
+                    writeString(out, startSuite.getDescription());
+                    writeAttributes(out, startSuite.getAttributes());
+                    out.writeInt(startSuite.getSuiteNames().size());
+                    for (String name : startSuite.getSuiteNames()) {
+                        writeString(out, name);
+                    }
+                    break;
+                }
+                case START_TEST: {
+                    StartTest startTest = event.getEntity(StartTest.class);
+                    writeUUID(out, startTest.getTestRunUUID());
+                    writeUUID(out, startTest.getSuiteUUID());
+                    writeString(out, startTest.getTestName());
+                    writeEnum(out, startTest.getTestType());
+                    writeString(out, startTest.getDescription());
+                    writeAttributes(out, startTest.getAttributes());
+                    writeTime(out, startTest.getStartTime());
+                    break;
+                }
+                case LOG: {
+                    Log log = event.getEntity(Log.class);
+                    writeUUID(out, log.getTestRunUUID());
+                    writeUUID(out, log.getTestUUID());
+                    writeUUID(out, log.getStepUUID());
+                    writeString(out, log.getMessage());
+                    writeEnum(out, log.getLogLevel());
+                    writeTime(out, log.getLogTime());
+                    writeEnum(out, log.getLogFormat());
+                    break;
+                }
+                case ATTACHMENT: {
+                    Attachment attachment = event.getEntity(Attachment.class);
+                    AttachmentFile file = attachment.getFile();
+                    AttachmentMetaData metaData = attachment.getMetaData();
+                    writeString(out, file.getName());
+                    writeString(out, file.getContentType());
+                    out.writeInt(file.getContent().length);
+                    out.write(file.getContent());
+                    writeUUID(out, metaData.getTestRunUUID());
+                    writeUUID(out, metaData.getTestUUID());
+                    writeUUID(out, metaData.getStepUUID());
+                    writeUUID(out, metaData.getLogUUID());
+                    writeTime(out, metaData.getAttachmentTime());
+                    break;
+                }
+                case FINISH_TEST: {
+                    FinishTest finishTest = event.getEntity(FinishTest.class);
+                    writeUUID(out, finishTest.getTestRunUUID());
+                    writeEnum(out, finishTest.getStatus());
+                    writeTime(out, finishTest.getEndTime());
+                    break;
+                }
+                case FINISH_RUN:
+                default:
+                    // FinishV3TestRun has no fields.
+                    break;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static JournalEvent decode(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            JournalEvent.Type type = JournalEvent.Type.values()[in.readUnsignedByte()];
+            int idCount = in.readInt();
+            List<UUID> ids = new ArrayList<>(idCount);
+            for (int i = 0; i < idCount; i++) {
+                ids.add(readUUID(in));
+            }
+            switch (type) {
+                case START_RUN:
+                    return JournalEvent.startRun(ids.get(0), new StartV3TestRun(readString(in), readString(in), readAttributes(in)));
+                case START_SUITE: {
+                    UUID testRunUUID = readUUID(in);
+                    UUID parentSuiteUUID = readUUID(in);
+                    String description = readString(in);
+                    Set<Attribute> attributes = readAttributes(in);
+                    int nameCount = in.readInt();
+                    List<String> names = new ArrayList<>(nameCount);
+                    for (int i = 0; i < nameCount; i++) {
+                        names.add(readString(in));
+                    }
+                    return JournalEvent.startSuite(ids, new StartSuite(testRunUUID, parentSuiteUUID, description, attributes, names));
+                }
+                case START_TEST:
+                    return JournalEvent.startTest(ids.get(0), new StartTest(readUUID(in), readUUID(in), readString(in),
+                            readEnum(in, TestType.class), readString(in), readAttributes(in), readTime(in)));
+                case LOG:
+                    return JournalEvent.log(ids.get(0), new Log(readUUID(in), readUUID(in), readUUID(in), readString(in),
+                            readEnum(in, LogLevel.class), readTime(in), readEnum(in, LogFormat.class)));
+                case ATTACHMENT: {
+                    String name = readString(in);
+                    String contentType = readString(in);
+                    byte[] content = new byte[in.readInt()];
+                    in.readFully(content);
+                    AttachmentMetaData metaData = new AttachmentMetaData(readUUID(in), readUUID(in), readUUID(in), readUUID(in), readTime(in));
+                    return JournalEvent.attachment(ids.get(0), new Attachment(new AttachmentFile(name, content, contentType), metaData));
+                }
+                case FINISH_TEST:
+                    return JournalEvent.finishTest(ids.get(0), new FinishTest(readUUID(in), readEnum(in, TestStatus.class), readTime(in)));
+                case FINISH_RUN:
+                    return JournalEvent.finishRun(ids.get(0), new FinishV3TestRun());
+                default:
+                    throw new IOException("Unknown journal event type " + type);
+            }
+        }
+    }
+
+    private static void writeUUID(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeBoolean(uuid != null);
+        if (uuid != null) {
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        }
+    }
+
+    private static UUID readUUID(DataInputStream in) throws IOException {
+        return in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeEnum(DataOutputStream out, Enum<?> value) throws IOException {
+        writeString(out, value == null ? null : value.name());
+    }
+
+    private static <E extends Enum<E>> E readEnum(DataInputStream in, Class<E> enumType) throws IOException {
+        String name = readString(in);
+        return name == null ? null : Enum.valueOf(enumType, name);
+    }
+
+    private static void writeTime(DataOutputStream out, ZonedDateTime time) throws IOException {
+        out.writeBoolean(time != null);
+        if (time != null) {
+            out.writeLong(time.toEpochSecond());
+            out.writeInt(time.getNano());
+            writeString(out, time.getZone().getId());
+        }
+    }
+
+    private static ZonedDateTime readTime(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        Instant instant = Instant.ofEpochSecond(in.readLong(), in.readInt());
+        return ZonedDateTime.ofInstant(instant, ZoneId.of(readString(in)));
+    }
+
+    private static void writeAttributes(DataOutputStream out, Set<Attribute> attributes) throws IOException {
+        if (attributes == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(attributes.size());
+        for (Attribute attribute : attributes) {
+            writeString(out, attribute.getKey());
+            writeString(out, attribute.getValue());
+        }
+    }
+
+    private static Set<Attribute> readAttributes(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            return null;
+        }
+        Set<Attribute> attributes = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            attributes.add(new Attribute(readString(in), readString(in)));
+        }
+        return attributes;
+    }
+}
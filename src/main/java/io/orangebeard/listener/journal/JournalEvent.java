@@ -0,0 +1,86 @@
+package io.orangebeard.listener.journal;
+
+import io.orangebeard.client.entity.FinishV3TestRun;
+import io.orangebeard.client.entity.StartV3TestRun;
+import io.orangebeard.client.entity.attachment.Attachment;
+import io.orangebeard.client.entity.log.Log;
+import io.orangebeard.client.entity.suite.StartSuite;
+import io.orangebeard.client.entity.test.FinishTest;
+import io.orangebeard.client.entity.test.StartTest;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A single call to the Orangebeard client, as recorded in the journal.
+ * Entities that are created by the call (the run, suites, tests, logs and attachments) get a UUID when they are
+ * recorded; later events refer to them by that UUID. When the journal is uploaded, these local UUIDs are mapped to
+ * the UUIDs that Orangebeard hands out.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class JournalEvent {
+    public enum Type {
+        START_RUN,
+        START_SUITE,
+        START_TEST,
+        LOG,
+        ATTACHMENT,
+        FINISH_TEST,
+        FINISH_RUN
+    }
+
+    private final Type type;
+    /**
+     * The local UUIDs of the entities this event creates or finishes: the run, one per suite name, the test, the log
+     * or the attachment.
+     */
+    private final List<UUID> ids;
+    private final Object entity;
+
+    public static JournalEvent startRun(UUID testRunUUID, StartV3TestRun startTestRun) {
+        return new JournalEvent(Type.START_RUN, List.of(testRunUUID), startTestRun);
+    }
+
+    public static JournalEvent startSuite(List<UUID> suiteUUIDs, StartSuite startSuite) {
+        return new JournalEvent(Type.START_SUITE, List.copyOf(suiteUUIDs), startSuite);
+    }
+
+    public static JournalEvent startTest(UUID testUUID, StartTest startTest) {
+        return new JournalEvent(Type.START_TEST, List.of(testUUID), startTest);
+    }
+
+    public static JournalEvent log(UUID logUUID, Log log) {
+        return new JournalEvent(Type.LOG, List.of(logUUID), log);
+    }
+
+    public static JournalEvent attachment(UUID attachmentUUID, Attachment attachment) {
+        return new JournalEvent(Type.ATTACHMENT, List.of(attachmentUUID), attachment);
+    }
+
+    public static JournalEvent finishTest(UUID testUUID, FinishTest finishTest) {
+        return new JournalEvent(Type.FINISH_TEST, List.of(testUUID), finishTest);
+    }
+
+    public static JournalEvent finishRun(UUID testRunUUID, FinishV3TestRun finishTestRun) {
+        return new JournalEvent(Type.FINISH_RUN, List.of(testRunUUID), finishTestRun);
+    }
+
+    /**
+     * @return The local UUID of the (first) entity this event creates or finishes.
+     */
+    public UUID getId() {
+        return ids.get(0);
+    }
+
+    /**
+     * @param entityType The expected type of the entity.
+     * @return The recorded client entity (for example a {@link StartTest} for {@link Type#START_TEST}).
+     */
+    public <T> T getEntity(Class<T> entityType) {
+        return entityType.cast(entity);
+    }
+}
@@ -0,0 +1,38 @@
+package io.orangebeard.listener.journal;
+
+import lombok.Value;
+
+/**
+ * Position of a record in a journal: the segment and the byte offset within that segment.
+ * Positions are ordered, so they can be used to resume reading after an interruption.
+ */
+@Value
+public class JournalPosition implements Comparable<JournalPosition> {
+    public static final JournalPosition START = new JournalPosition(0, 0);
+
+    int segment;
+    long offset;
+
+    @Override
+    public int compareTo(JournalPosition other) {
+        int bySegment = Integer.compare(segment, other.segment);
+        return bySegment != 0 ? bySegment : Long.compare(offset, other.offset);
+    }
+
+    @Override
+    public String toString() {
+        return segment + ":" + offset;
+    }
+
+    /**
+     * @param position A position in the form produced by {@link #toString()}.
+     * @return The parsed position.
+     */
+    public static JournalPosition parse(String position) {
+        int separator = position.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid journal position: " + position);
+        }
+        return new JournalPosition(Integer.parseInt(position.substring(0, separator)), Long.parseLong(position.substring(separator + 1)));
+    }
+}
@@ -0,0 +1,103 @@
+package io.orangebeard.listener.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Reads the events of a journal in the order they were written.
+ * Reading stops at the end of each segment: the first zero length, or the first record that is incomplete or whose
+ * checksum doesn't match (a record that was torn by a crash).
+ */
+public class JournalReader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalReader.class);
+
+    /**
+     * Receives the events of the journal.
+     */
+    @FunctionalInterface
+    public interface Visitor {
+        /**
+         * @param position The position of the record.
+         * @param next The position right after the record; reading can be resumed from there.
+         * @param event The event.
+         */
+        void visit(JournalPosition position, JournalPosition next, JournalEvent event) throws IOException;
+    }
+
+    private final Path directory;
+
+    public JournalReader(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Read all events, starting at the given position.
+     *
+     * @param from The position to start at; {@link JournalPosition#START} for the whole journal.
+     * @param visitor Receives the events.
+     * @return The position after the last valid record, to resume from once more events were appended.
+     * @throws IOException If a segment can't be read, or the visitor fails.
+     */
+    public JournalPosition read(JournalPosition from, Visitor visitor) throws IOException {
+        JournalPosition end = from;
+        for (int segment : JournalSegments.list(directory)) {
+            if (segment < from.getSegment()) {
+                continue;
+            }
+            long startOffset = segment == from.getSegment() ? Math.max(from.getOffset(), JournalSegments.HEADER_SIZE) : JournalSegments.HEADER_SIZE;
+            end = readSegment(segment, startOffset, visitor);
+        }
+        return end;
+    }
+
+    private JournalPosition readSegment(int segment, long startOffset, Visitor visitor) throws IOException {
+        Path path = JournalSegments.segmentPath(directory, segment);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < JournalSegments.HEADER_SIZE
+                    || buffer.getInt() != JournalSegments.MAGIC
+                    || buffer.getInt() != JournalSegments.VERSION) {
+                LOGGER.warn("Skipping {}: not a journal segment", path);
+                return new JournalPosition(segment, startOffset);
+            }
+            if (startOffset > buffer.limit()) {
+                return new JournalPosition(segment, startOffset);
+            }
+            buffer.position((int) startOffset);
+
+            long end = startOffset;
+            CRC32 crc = new CRC32();
+            while (buffer.remaining() >= JournalSegments.RECORD_HEADER_SIZE) {
+                int recordStart = buffer.position();
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length == 0) {
+                    break;
+                }
+                if (length < 0 || length > buffer.remaining()) {
+                    LOGGER.warn("Incomplete record at {} in {}; ignoring the rest of the segment", recordStart, path);
+                    break;
+                }
+                ByteBuffer payloadBuffer = buffer.slice(buffer.position(), length);
+                crc.reset();
+                crc.update(payloadBuffer);
+                if ((int) crc.getValue() != checksum) {
+                    LOGGER.warn("Checksum mismatch at {} in {}; ignoring the rest of the segment", recordStart, path);
+                    break;
+                }
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                end = buffer.position();
+                visitor.visit(new JournalPosition(segment, recordStart), new JournalPosition(segment, end), JournalCodec.decode(payload));
+            }
+            return new JournalPosition(segment, end);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package io.orangebeard.listener.journal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Layout of a journal on disk: a directory with numbered segment files.
+ * <p>
+ * A segment starts with a header (magic number and format version), followed by records. A record is the length
+ * of its payload, a CRC32 checksum of the payload and the payload itself. Segments are created at their full size,
+ * so the unused tail of a segment reads as zeroes; a record length of zero marks the end of the segment.
+ * A record whose checksum doesn't match was torn by a crash, and also ends the segment.
+ */
+final class JournalSegments {
+    static final int MAGIC = 0x4F424A31; // "OBJ1"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_HEADER_SIZE = 8;
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.journal");
+
+    private JournalSegments() {
+        //prevent instantiation
+    }
+
+    static Path segmentPath(Path directory, int segment) {
+        return directory.resolve(String.format("segment-%08d.journal", segment));
+    }
+
+    /**
+     * @return The indexes of the segments in the directory, in ascending order.
+     */
+    static List<Integer> list(Path directory) throws IOException {
+        List<Integer> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.add(Integer.parseInt(matcher.group(1)));
+                }
+            });
+        }
+        segments.sort(null);
+        return segments;
+    }
+}
@@ -0,0 +1,357 @@
+package io.orangebeard.listener.journal;
+
+import io.orangebeard.client.OrangebeardProperties;
+import io.orangebeard.client.entity.FinishV3TestRun;
+import io.orangebeard.client.entity.StartV3TestRun;
+import io.orangebeard.client.entity.attachment.Attachment;
+import io.orangebeard.client.entity.attachment.AttachmentMetaData;
+import io.orangebeard.client.entity.log.Log;
+import io.orangebeard.client.entity.suite.StartSuite;
+import io.orangebeard.client.entity.test.FinishTest;
+import io.orangebeard.client.entity.test.StartTest;
+import io.orangebeard.client.v3.OrangebeardAsyncV3Client;
+import io.orangebeard.listener.SynchronousV3Client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uploads a recorded journal to Orangebeard.
+ * <p>
+ * The test run and the suite hierarchy are created in journal order, on the reading thread, so every suite exists
+ * before its children and tests. The events of each test (start, logs, attachments, finish) are then uploaded as one
+ * unit on a pool of worker threads; the tests themselves are independent of each other. All requests go through a
+ * rate limiter. Progress is kept in a checkpoint next to the journal, so an interrupted upload resumes where it
+ * stopped instead of starting over. The checkpoint also holds the UUIDs Orangebeard gave the run, the suites and the
+ * uploaded tests: a resumed upload reads the journal from the oldest test that was not uploaded, and the run, suites
+ * and tests it reads again are not created a second time.
+ * <p>
+ * The checkpoint only moves past a request once it has been answered, so the client has to be synchronous and throw
+ * when a request fails, like {@link SynchronousV3Client}: an async client would hand back UUIDs of its own, which are
+ * meaningless to the next upload, and would fail out of sight.
+ * <p>
+ * Usage: <code>java -cp junit5-listener.jar io.orangebeard.listener.journal.JournalUploader [options]</code>
+ * <pre>
+ *   --journal &lt;directory&gt;   the journal to upload (default target/orangebeard-journal)
+ *   --rate &lt;requests/s&gt;     maximum number of requests per second (default: unlimited)
+ *   --concurrency &lt;n&gt;       number of tests uploaded in parallel (default 4)
+ *   --restart                ignore an existing checkpoint and upload the whole journal
+ * </pre>
+ * The connection to Orangebeard is configured like the listener: <code>orangebeard.properties</code> or environment
+ * variables.
+ */
+public class JournalUploader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalUploader.class);
+
+    private final OrangebeardAsyncV3Client client;
+    private final Path journalDirectory;
+    private final RateLimiter rateLimiter;
+    private final int concurrency;
+
+    private final Map<UUID, TestUpload> openTests = new HashMap<>();
+    private final ConcurrentSkipListMap<JournalPosition, UUID> inFlight = new ConcurrentSkipListMap<>();
+    private final AtomicInteger uploadedTests = new AtomicInteger();
+    private final AtomicInteger failedTests = new AtomicInteger();
+    private JournalPosition readPosition = JournalPosition.START;
+
+    /**
+     * @param client The client to upload with; see above.
+     * @param journalDirectory The directory of the journal.
+     * @param requestsPerSecond The maximum number of requests per second; 0 or less for no limit.
+     * @param concurrency The number of tests that are uploaded in parallel.
+     */
+    public JournalUploader(OrangebeardAsyncV3Client client, Path journalDirectory, double requestsPerSecond, int concurrency) {
+        this.client = client;
+        this.journalDirectory = journalDirectory;
+        this.rateLimiter = new RateLimiter(requestsPerSecond);
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path journal = Path.of("target/orangebeard-journal");
+        double rate = 0;
+        int concurrency = 4;
+        boolean resume = true;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--journal":
+                    journal = Path.of(args[++i]);
+                    break;
+                case "--rate":
+                    rate = Double.parseDouble(args[++i]);
+                    break;
+                case "--concurrency":
+                    concurrency = Integer.parseInt(args[++i]);
+                    break;
+                case "--restart":
+                    resume = false;
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        OrangebeardProperties orangebeardProperties = new OrangebeardProperties();
+        orangebeardProperties.checkPropertiesArePresent();
+        JournalUploader uploader = new JournalUploader(new SynchronousV3Client(orangebeardProperties), journal, rate, concurrency);
+        boolean success;
+        try {
+            success = uploader.upload(resume);
+        } catch (RuntimeException e) {
+            LOGGER.error("Unable to upload {}; run the upload again to resume", journal, e);
+            success = false;
+        }
+        // Every request has been answered by now, so exiting cuts nothing short.
+        System.exit(success ? 0 : 1);
+    }
+
+    /**
+     * Upload the journal.
+     *
+     * @param resume Whether to continue from the checkpoint of an earlier, interrupted upload.
+     * @return <code>true</code> if every event was uploaded.
+     */
+    public boolean upload(boolean resume) throws IOException, InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "orangebeard-journal-upload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Bounds the number of tests that are read but not uploaded yet, and with that the memory in use.
+        Semaphore queued = new Semaphore(concurrency * 4);
+        Phaser pending = new Phaser(1);
+
+        try (UploadCheckpoint checkpoint = UploadCheckpoint.open(journalDirectory, resume)) {
+            try {
+                JournalPosition from = checkpoint.getPosition();
+                if (from.compareTo(JournalPosition.START) > 0) {
+                    LOGGER.info("Resuming the upload of {} at {}", journalDirectory, from);
+                }
+                new JournalReader(journalDirectory).read(from, (position, next, event) -> {
+                    try {
+                        dispatch(position, event, checkpoint, workers, queued, pending);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Upload interrupted", e);
+                    }
+                    synchronized (inFlight) {
+                        readPosition = next;
+                    }
+                });
+                pending.arriveAndAwaitAdvance();
+                advanceCheckpoint(checkpoint);
+            } finally {
+                // Also when the run, a suite or the finish failed: the tests being uploaded still move the checkpoint.
+                workers.shutdown();
+                workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        if (!openTests.isEmpty()) {
+            LOGGER.warn("{} tests were started but never finished in the journal; they were not uploaded", openTests.size());
+        }
+        LOGGER.info("Uploaded {} tests from {}; {} failed", uploadedTests.get(), journalDirectory, failedTests.get());
+        return failedTests.get() == 0;
+    }
+
+    private void dispatch(JournalPosition position, JournalEvent event, UploadCheckpoint checkpoint,
+                          ExecutorService workers, Semaphore queued, Phaser pending) throws IOException, InterruptedException {
+        switch (event.getType()) {
+            case START_RUN: {
+                if (checkpoint.getRemoteId(event.getId()) != null) {
+                    break;
+                }
+                rateLimiter.acquire();
+                UUID remoteRunId = client.startTestRun(event.getEntity(StartV3TestRun.class));
+                checkpoint.putRemoteId(event.getId(), remoteRunId);
+                break;
+            }
+            case START_SUITE: {
+                if (event.getIds().stream().allMatch(id -> checkpoint.getRemoteId(id) != null)) {
+                    // Started before the upload was interrupted.
+                    break;
+                }
+                StartSuite recorded = event.getEntity(StartSuite.class);
+                StartSuite startSuite = new StartSuite(checkpoint.getRemoteId(recorded.getTestRunUUID()),
+                        recorded.getParentSuiteUUID() == null ? null : checkpoint.getRemoteId(recorded.getParentSuiteUUID()),
+                        recorded.getDescription(), recorded.getAttributes(), recorded.getSuiteNames());
+                rateLimiter.acquire();
+                List<UUID> remoteSuiteIds = client.startSuite(startSuite);
+                for (int i = 0; i < event.getIds().size() && i < remoteSuiteIds.size(); i++) {
+                    checkpoint.putRemoteId(event.getIds().get(i), remoteSuiteIds.get(i));
+                }
+                break;
+            }
+            case START_TEST: {
+                if (checkpoint.getRemoteId(event.getId()) != null) {
+                    // Uploaded before the upload was interrupted, after a test that was not.
+                    break;
+                }
+                openTests.put(event.getId(), new TestUpload(position, event));
+                inFlight.put(position, event.getId());
+                break;
+            }
+            case LOG:
+            case ATTACHMENT: {
+                UUID testId = event.getType() == JournalEvent.Type.LOG
+                        ? event.getEntity(Log.class).getTestUUID()
+                        : event.getEntity(Attachment.class).getMetaData().getTestUUID();
+                TestUpload test = testId == null ? null : openTests.get(testId);
+                if (test != null) {
+                    test.events.add(event);
+                } else if (testId == null && event.getType() == JournalEvent.Type.LOG) {
+                    // A log on the run itself.
+                    Log recorded = event.getEntity(Log.class);
+                    rateLimiter.acquire();
+                    client.log(new Log(checkpoint.getRemoteId(recorded.getTestRunUUID()), null, null, recorded.getMessage(),
+                            recorded.getLogLevel(), recorded.getLogTime(), recorded.getLogFormat()));
+                } else {
+                    LOGGER.warn("Skipping a {} at {} that doesn't belong to an open test", event.getType(), position);
+                }
+                break;
+            }
+            case FINISH_TEST: {
+                TestUpload test = openTests.remove(event.getId());
+                if (test == null) {
+                    // The start of this test was before the resume position; it was uploaded already.
+                    break;
+                }
+                test.events.add(event);
+                queued.acquire();
+                pending.register();
+                workers.execute(() -> {
+                    try {
+                        UUID remoteTestId = test.upload(checkpoint);
+                        if (remoteTestId != null) {
+                            checkpoint.putRemoteId(event.getId(), remoteTestId);
+                        }
+                        uploadedTests.incrementAndGet();
+                        inFlight.remove(test.position);
+                        advanceCheckpoint(checkpoint);
+                    } catch (Exception e) {
+                        // The test stays in flight, so the checkpoint never moves past it.
+                        failedTests.incrementAndGet();
+                        LOGGER.error("Unable to upload the test recorded at {}", test.position, e);
+                    } finally {
+                        queued.release();
+                        pending.arriveAndDeregister();
+                    }
+                });
+                break;
+            }
+            case FINISH_RUN: {
+                // Every test of the run has to be finished before the run itself.
+                pending.arriveAndAwaitAdvance();
+                if (failedTests.get() > 0) {
+                    LOGGER.warn("Not finishing the test run, as some tests could not be uploaded; run the upload again to resume");
+                    break;
+                }
+                rateLimiter.acquire();
+                client.finishTestRun(checkpoint.getRemoteId(event.getId()), event.getEntity(FinishV3TestRun.class));
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    private void advanceCheckpoint(UploadCheckpoint checkpoint) throws IOException {
+        // Everything before the oldest test that is still in flight (or failed) has been uploaded.
+        JournalPosition uploadedUpTo;
+        synchronized (inFlight) {
+            uploadedUpTo = inFlight.isEmpty() ? readPosition : inFlight.firstKey();
+        }
+        checkpoint.advance(uploadedUpTo);
+    }
+
+    /**
+     * The events of a single test, uploaded as a unit.
+     */
+    private final class TestUpload {
+        private final JournalPosition position;
+        private final List<JournalEvent> events = new ArrayList<>();
+
+        private TestUpload(JournalPosition position, JournalEvent startTest) {
+            this.position = position;
+            this.events.add(startTest);
+        }
+
+        /**
+         * @return The UUID Orangebeard gave the test.
+         */
+        private UUID upload(UploadCheckpoint checkpoint) throws InterruptedException {
+            Map<UUID, UUID> localToRemote = new HashMap<>();
+            List<Log> logs = new ArrayList<>();
+            List<UUID> localLogIds = new ArrayList<>();
+            boolean hasAttachments = events.stream().anyMatch(event -> event.getType() == JournalEvent.Type.ATTACHMENT);
+            UUID remoteTestId = null;
+
+            for (JournalEvent event : events) {
+                switch (event.getType()) {
+                    case START_TEST: {
+                        StartTest recorded = event.getEntity(StartTest.class);
+                        UUID runId = checkpoint.getRemoteId(recorded.getTestRunUUID());
+                        rateLimiter.acquire();
+                        remoteTestId = client.startTest(new StartTest(runId, checkpoint.getRemoteId(recorded.getSuiteUUID()),
+                                recorded.getTestName(), recorded.getTestType(), recorded.getDescription(),
+                                recorded.getAttributes(), recorded.getStartTime()));
+                        break;
+                    }
+                    case LOG: {
+                        Log recorded = event.getEntity(Log.class);
+                        Log log = new Log(checkpoint.getRemoteId(recorded.getTestRunUUID()), remoteTestId, null,
+                                recorded.getMessage(), recorded.getLogLevel(), recorded.getLogTime(), recorded.getLogFormat());
+                        if (hasAttachments) {
+                            // Attachments refer to their log, so these logs need their UUID one by one.
+                            rateLimiter.acquire();
+                            localToRemote.put(event.getId(), client.log(log));
+                        } else {
+                            logs.add(log);
+                            localLogIds.add(event.getId());
+                        }
+                        break;
+                    }
+                    case ATTACHMENT: {
+                        Attachment recorded = event.getEntity(Attachment.class);
+                        AttachmentMetaData metaData = recorded.getMetaData();
+                        rateLimiter.acquire();
+                        client.sendAttachment(new Attachment(recorded.getFile(), new AttachmentMetaData(
+                                checkpoint.getRemoteId(metaData.getTestRunUUID()), remoteTestId, null,
+                                metaData.getLogUUID() == null ? null : localToRemote.get(metaData.getLogUUID()),
+                                metaData.getAttachmentTime())));
+                        break;
+                    }
+                    case FINISH_TEST: {
+                        if (!logs.isEmpty()) {
+                            rateLimiter.acquire();
+                            client.sendLogBatch(logs);
+                        }
+                        FinishTest recorded = event.getEntity(FinishTest.class);
+                        rateLimiter.acquire();
+                        client.finishTest(remoteTestId, new FinishTest(checkpoint.getRemoteId(recorded.getTestRunUUID()),
+                                recorded.getStatus(), recorded.getEndTime()));
+                        break;
+                    }
+                    default:
+                        break;
+                }
+            }
+            return remoteTestId;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package io.orangebeard.listener.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Appends events to a journal of memory-mapped segment files.
+ * <p>
+ * An append encodes the event on the calling thread and then copies it into the mapped segment, which is all a test
+ * thread pays for. The operating system writes the pages to disk; since every record carries a checksum, a reader
+ * can tell complete records from ones that were torn when the JVM crashed.
+ * <p>
+ * A writer never touches existing segments: it starts a new segment after the highest one in the directory, so
+ * several runs (or JVMs) can write to the same journal directory.
+ */
+public class JournalWriter implements Closeable {
+    private final Path directory;
+    private final int segmentSize;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int segment;
+    private boolean closed;
+
+    /**
+     * @param directory The journal directory; created if it doesn't exist.
+     * @param segmentSize The size of a segment file in bytes. A record that is larger gets a segment of its own.
+     * @throws IOException If the first segment can't be created.
+     */
+    public JournalWriter(Path directory, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = Math.max(JournalSegments.HEADER_SIZE + JournalSegments.RECORD_HEADER_SIZE + 1, segmentSize);
+        Files.createDirectories(directory);
+        List<Integer> existing = JournalSegments.list(directory);
+        this.segment = existing.isEmpty() ? 0 : existing.get(existing.size() - 1);
+        openNextSegment(this.segmentSize);
+    }
+
+    /**
+     * Append an event to the journal.
+     *
+     * @param event The event to record.
+     * @return The position of the record.
+     * @throws IOException If a new segment is needed but can't be created.
+     */
+    public JournalPosition append(JournalEvent event) throws IOException {
+        byte[] payload = JournalCodec.encode(event);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        int recordSize = JournalSegments.RECORD_HEADER_SIZE + payload.length;
+
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Journal " + directory + " is closed");
+            }
+            if (buffer.remaining() < recordSize) {
+                openNextSegment(Math.max(segmentSize, JournalSegments.HEADER_SIZE + recordSize));
+            }
+            JournalPosition position = new JournalPosition(segment, buffer.position());
+            buffer.putInt(payload.length);
+            buffer.putInt((int) crc.getValue());
+            buffer.put(payload);
+            return position;
+        }
+    }
+
+    /**
+     * Write the mapped pages of the current segment to the storage device.
+     */
+    public synchronized void force() {
+        if (!closed) {
+            buffer.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        buffer.force();
+        channel.close();
+    }
+
+    private void openNextSegment(int size) throws IOException {
+        if (channel != null) {
+            buffer.force();
+            channel.close();
+        }
+        while (true) {
+            segment++;
+            Path path = JournalSegments.segmentPath(directory, segment);
+            try {
+                channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                break;
+            } catch (FileAlreadyExistsException e) {
+                // Another writer claimed this segment; try the next one.
+            }
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buffer.putInt(JournalSegments.MAGIC);
+        buffer.putInt(JournalSegments.VERSION);
+    }
+}
@@ -0,0 +1,36 @@
+package io.orangebeard.listener.journal;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spaces out requests evenly, so that no more than a fixed number of requests per second are started.
+ */
+class RateLimiter {
+    private final long intervalNanos;
+    private long nextPermit = System.nanoTime();
+
+    /**
+     * @param permitsPerSecond The maximum number of requests per second; 0 or less for no limit.
+     */
+    RateLimiter(double permitsPerSecond) {
+        this.intervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+    }
+
+    /**
+     * Wait until the next request may be started.
+     */
+    void acquire() throws InterruptedException {
+        if (intervalNanos == 0) {
+            return;
+        }
+        long permit;
+        synchronized (this) {
+            permit = Math.max(nextPermit, System.nanoTime());
+            nextPermit = permit + intervalNanos;
+        }
+        long wait = permit - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+}
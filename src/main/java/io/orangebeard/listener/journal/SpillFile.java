@@ -0,0 +1,84 @@
+package io.orangebeard.listener.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A first-in, first-out overflow file for events that don't fit in memory.
+ * Events are appended at the end and read back from the front; once every event has been read back, the file is
+ * truncated, so it only takes disk space while there is a backlog. The file is deleted when it is closed.
+ */
+public class SpillFile implements Closeable {
+    private final Path file;
+    private final FileChannel channel;
+    private long readPosition = 0;
+    private long writePosition = 0;
+    private int size = 0;
+
+    /**
+     * @param directory The directory to create the spill file in.
+     */
+    public SpillFile(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.file = Files.createTempFile(directory, "orangebeard-spill-", ".journal");
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    public synchronized void append(JournalEvent event) throws IOException {
+        byte[] payload = JournalCodec.encode(event);
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + payload.length);
+        buffer.putInt(payload.length).put(payload).flip();
+        while (buffer.hasRemaining()) {
+            writePosition += channel.write(buffer, writePosition);
+        }
+        size++;
+    }
+
+    /**
+     * @return The oldest event in the file, or <code>null</code> if the file is empty.
+     */
+    public synchronized JournalEvent poll() throws IOException {
+        if (size == 0) {
+            return null;
+        }
+        ByteBuffer length = read(Integer.BYTES);
+        ByteBuffer payload = read(length.getInt());
+        size--;
+        if (size == 0) {
+            channel.truncate(0);
+            readPosition = 0;
+            writePosition = 0;
+        }
+        return JournalCodec.decode(payload.array());
+    }
+
+    /**
+     * @return The number of events in the file.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    private ByteBuffer read(int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, readPosition);
+            if (read < 0) {
+                throw new IOException("Unexpected end of spill file " + file);
+            }
+            readPosition += read;
+        }
+        return buffer.flip();
+    }
+}
@@ -0,0 +1,89 @@
+package io.orangebeard.listener.journal;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Progress of an upload, kept next to the journal so an interrupted upload can be resumed.
+ * <p>
+ * The checkpoint is an append-only text file. <code>id &lt;local&gt; &lt;remote&gt;</code> lines map the local UUIDs of
+ * runs, suites and uploaded tests to the UUIDs Orangebeard gave them; <code>position &lt;segment&gt;:&lt;offset&gt;</code> lines record
+ * the position up to which every event was uploaded. The last position in the file is the one to resume from.
+ */
+class UploadCheckpoint implements Closeable {
+    static final String FILE_NAME = "upload.checkpoint";
+
+    private final Map<UUID, UUID> remoteIds = new ConcurrentHashMap<>();
+    private final BufferedWriter writer;
+    private JournalPosition position = JournalPosition.START;
+
+    private UploadCheckpoint(Path file, boolean resume) throws IOException {
+        if (resume && Files.exists(file)) {
+            load(Files.readAllLines(file, StandardCharsets.UTF_8));
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        } else {
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        }
+    }
+
+    /**
+     * @param journalDirectory The directory of the journal that is uploaded.
+     * @param resume Whether to continue from an existing checkpoint; otherwise it is discarded.
+     */
+    static UploadCheckpoint open(Path journalDirectory, boolean resume) throws IOException {
+        return new UploadCheckpoint(journalDirectory.resolve(FILE_NAME), resume);
+    }
+
+    JournalPosition getPosition() {
+        return position;
+    }
+
+    UUID getRemoteId(UUID localId) {
+        return remoteIds.get(localId);
+    }
+
+    synchronized void putRemoteId(UUID localId, UUID remoteId) throws IOException {
+        remoteIds.put(localId, remoteId);
+        writer.write("id " + localId + " " + remoteId);
+        writer.newLine();
+        writer.flush();
+    }
+
+    synchronized void advance(JournalPosition uploadedUpTo) throws IOException {
+        if (uploadedUpTo.compareTo(position) > 0) {
+            position = uploadedUpTo;
+            writer.write("position " + uploadedUpTo);
+            writer.newLine();
+            writer.flush();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    private void load(List<String> lines) {
+        for (String line : lines) {
+            String[] parts = line.trim().split(" ");
+            try {
+                if (parts.length == 3 && parts[0].equals("id")) {
+                    remoteIds.put(UUID.fromString(parts[1]), UUID.fromString(parts[2]));
+                } else if (parts.length == 2 && parts[0].equals("position")) {
+                    position = JournalPosition.parse(parts[1]);
+                }
+            } catch (IllegalArgumentException e) {
+                // A line that was only partly written when the previous upload was interrupted.
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package io.orangebeard.listener;
+
+import io.orangebeard.client.entity.attachment.Attachment;
+import io.orangebeard.client.entity.log.Log;
+import io.orangebeard.client.entity.log.LogLevel;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AttachmentUploaderTest {
+    private static final UUID TEST_RUN_UUID = UUID.randomUUID();
+    private static final UUID TEST_UUID = UUID.randomUUID();
+
+    private final List<Log> logs = new CopyOnWriteArrayList<>();
+    private final List<Attachment> attachments = new CopyOnWriteArrayList<>();
+    private final List<String> queued = new CopyOnWriteArrayList<>();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void a_file_is_queued_as_an_attachment_of_the_test() throws Exception {
+        Path file = Files.writeString(directory.resolve("report.txt"), "the report");
+        AttachmentUploader uploader = new AttachmentUploader(logs::add, attachments::add, 1024, 2, 10);
+
+        uploader.upload(TEST_RUN_UUID, TEST_UUID, "report", file, ZonedDateTime.now());
+
+        assertThat(uploader.close(5000)).isTrue();
+        assertThat(logs).isEmpty();
+        assertThat(attachments).hasSize(1);
+        Attachment reference = attachments.get(0);
+        assertThat(AttachmentUploader.isFileReference(reference)).isTrue();
+        assertThat(reference.getFile().getContent()).isEmpty();
+        assertThat(reference.getMetaData().getTestUUID()).isEqualTo(TEST_UUID);
+        assertThat(reference.getMetaData().getLogUUID()).isNull();
+
+        Attachment attachment = uploader.read(reference);
+        assertThat(AttachmentUploader.isFileReference(attachment)).isFalse();
+        assertThat(attachment.getFile().getName()).isEqualTo("report.txt");
+        assertThat(new String(attachment.getFile().getContent(), StandardCharsets.UTF_8)).isEqualTo("the report");
+        assertThat(attachment.getMetaData()).isSameAs(reference.getMetaData());
+    }
+
+    @Test
+    void a_file_that_grew_over_the_size_limit_after_it_was_published_is_not_read() throws Exception {
+        Path file = Files.write(directory.resolve("growing.log"), new byte[16]);
+        AttachmentUploader uploader = new AttachmentUploader(logs::add, attachments::add, 1024, 1, 10);
+        uploader.upload(TEST_RUN_UUID, TEST_UUID, "growing", file, ZonedDateTime.now());
+        assertThat(uploader.close(5000)).isTrue();
+
+        Files.write(file, new byte[2048]);
+
+        assertThatThrownBy(() -> uploader.read(attachments.get(0))).isInstanceOf(IOException.class).hasMessageContaining("2048 bytes");
+    }
+
+    @Test
+    void a_file_over_the_size_limit_is_not_uploaded_but_reported() throws Exception {
+        Path file = Files.write(directory.resolve("heap.hprof"), new byte[2048]);
+        AttachmentUploader uploader = new AttachmentUploader(logs::add, attachments::add, 1024, 2, 10);
+
+        uploader.upload(TEST_RUN_UUID, TEST_UUID, "heap", file, ZonedDateTime.now());
+
+        assertThat(uploader.close(5000)).isTrue();
+        assertThat(attachments).isEmpty();
+        assertThat(logs).hasSize(1);
+        assertThat(logs.get(0).getLogLevel()).isEqualTo(LogLevel.WARN);
+        assertThat(logs.get(0).getMessage()).contains("2048 bytes").contains("1024 bytes");
+    }
+
+    @Test
+    void the_size_limit_is_clamped_to_the_largest_array() throws Exception {
+        Path file = Files.write(directory.resolve("small.bin"), new byte[16]);
+        AttachmentUploader uploader = new AttachmentUploader(logs::add, attachments::add, 8L * 1024 * 1024 * 1024, 1, 10);
+
+        uploader.upload(TEST_RUN_UUID, TEST_UUID, "small", file, ZonedDateTime.now());
+
+        assertThat(uploader.close(5000)).isTrue();
+        assertThat(attachments).hasSize(1);
+    }
+
+    @Test
+    void the_finish_of_a_test_waits_for_its_uploads() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Consumer<Attachment> slowSink = attachment -> {
+            awaitQuietly(release);
+            queued.add(Path.of(attachment.getFile().getName()).getFileName().toString());
+        };
+        Path file = Files.write(directory.resolve("large.bin"), new byte[512]);
+        AttachmentUploader uploader = new AttachmentUploader(logs::add, slowSink, 1024, 2, 10);
+        UUID otherTest = UUID.randomUUID();
+
+        uploader.upload(TEST_RUN_UUID, TEST_UUID, "large", file, ZonedDateTime.now());
+        uploader.whenUploaded(TEST_UUID, () -> queued.add("finish"));
+        uploader.whenUploaded(otherTest, () -> queued.add("other finish"));
+
+        assertThat(queued).containsExactly("other finish");
+        assertThat(uploader.awaitIdle(100)).isFalse();
+        release.countDown();
+        assertThat(uploader.awaitIdle(5000)).isTrue();
+        assertThat(queued).containsExactly("other finish", "large.bin", "finish");
+        assertThat(uploader.close(5000)).isTrue();
+    }
+
+    @Test
+    void a_slow_upload_does_not_hold_up_the_next_one() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch smallQueued = new CountDownLatch(1);
+        Consumer<Attachment> sink = attachment -> {
+            if (attachment.getFile().getName().endsWith("large.bin")) {
+                awaitQuietly(release);
+            } else {
+                smallQueued.countDown();
+            }
+        };
+        Path large = Files.write(directory.resolve("large.bin"), new byte[512]);
+        Path small = Files.write(directory.resolve("small.bin"), new byte[1]);
+        AttachmentUploader uploader = new AttachmentUploader(logs::add, sink, 1024, 2, 10);
+
+        uploader.upload(TEST_RUN_UUID, TEST_UUID, "large", large, ZonedDateTime.now());
+        uploader.upload(TEST_RUN_UUID, TEST_UUID, "small", small, ZonedDateTime.now());
+
+        assertThat(smallQueued.await(5, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+        assertThat(uploader.close(5000)).isTrue();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
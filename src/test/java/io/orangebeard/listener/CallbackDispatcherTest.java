@@ -0,0 +1,94 @@
+package io.orangebeard.listener;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CallbackDispatcherTest {
+
+    @Test
+    void the_callbacks_of_every_test_are_reported_in_order() throws InterruptedException {
+        CallbackDispatcher dispatcher = new CallbackDispatcher(4);
+        Map<Integer, List<Integer>> reported = new ConcurrentHashMap<>();
+        List<Thread> testThreads = new ArrayList<>();
+        for (int test = 0; test < 8; test++) {
+            int testNumber = test;
+            reported.put(testNumber, new CopyOnWriteArrayList<>());
+            testThreads.add(new Thread(() -> {
+                for (int callback = 0; callback < 100; callback++) {
+                    int callbackNumber = callback;
+                    dispatcher.execute(() -> reported.get(testNumber).add(callbackNumber));
+                }
+            }));
+        }
+        testThreads.forEach(Thread::start);
+        for (Thread thread : testThreads) {
+            thread.join();
+        }
+
+        assertThat(dispatcher.close(5000)).isTrue();
+        for (List<Integer> callbacks : reported.values()) {
+            assertThat(callbacks).hasSize(100).isSorted();
+        }
+    }
+
+    @Test
+    void a_callback_waits_for_room_when_the_dispatcher_is_full() throws InterruptedException {
+        CallbackDispatcher dispatcher = new CallbackDispatcher(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch submitted = new CountDownLatch(1);
+        dispatcher.execute(() -> awaitQuietly(release));
+        dispatcher.execute(() -> { });
+
+        Thread testThread = new Thread(() -> {
+            dispatcher.execute(() -> { });
+            submitted.countDown();
+        });
+        testThread.start();
+
+        assertThat(submitted.await(200, TimeUnit.MILLISECONDS)).isFalse();
+        release.countDown();
+        assertThat(submitted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(dispatcher.close(5000)).isTrue();
+    }
+
+    @Test
+    void a_failing_callback_does_not_stop_the_dispatcher() {
+        CallbackDispatcher dispatcher = new CallbackDispatcher(10);
+        List<String> reported = new CopyOnWriteArrayList<>();
+
+        dispatcher.execute(() -> {
+            throw new IllegalStateException("unreachable server");
+        });
+        dispatcher.execute(() -> reported.add("next"));
+
+        assertThat(dispatcher.close(5000)).isTrue();
+        assertThat(reported).containsExactly("next");
+    }
+
+    @Test
+    void callbacks_after_close_are_reported_on_the_calling_thread() {
+        CallbackDispatcher dispatcher = new CallbackDispatcher(10);
+        dispatcher.close(1000);
+        List<Thread> reportedOn = new ArrayList<>();
+
+        dispatcher.execute(() -> reportedOn.add(Thread.currentThread()));
+
+        assertThat(reportedOn).containsExactly(Thread.currentThread());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package io.orangebeard.listener;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private static final long BUDGET = 100;
+    private static final long OPEN = 1000;
+
+    private final AtomicLong now = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker(BUDGET, 3, OPEN, now::get);
+
+    @BeforeEach
+    void resetMetrics() {
+        ListenerMetrics.getInstance().reset();
+    }
+
+    @Test
+    void the_circuit_opens_after_repeated_slow_or_failed_calls() {
+        breaker.recordCall(BUDGET + 1, false);
+        breaker.recordCall(1, true);
+        assertThat(breaker.allowCall()).isTrue();
+
+        breaker.recordCall(BUDGET + 1, false);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.allowCall()).isFalse();
+        assertThat(ListenerMetrics.getInstance().getCircuitOpenings()).isEqualTo(1);
+    }
+
+    @Test
+    void a_call_in_time_resets_the_count() {
+        breaker.recordCall(BUDGET + 1, false);
+        breaker.recordCall(BUDGET + 1, false);
+        breaker.recordCall(BUDGET, false);
+        breaker.recordCall(BUDGET + 1, false);
+        breaker.recordCall(BUDGET + 1, false);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void the_circuit_closes_when_a_probe_succeeds() {
+        open();
+        now.addAndGet(OPEN);
+
+        assertThat(breaker.allowCall()).isTrue();
+        assertThat(breaker.allowCall()).isFalse();
+        breaker.recordCall(1, false);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.allowCall()).isTrue();
+    }
+
+    @Test
+    void the_circuit_stays_open_when_a_probe_fails() {
+        open();
+        now.addAndGet(OPEN);
+        assertThat(breaker.allowCall()).isTrue();
+
+        breaker.recordCall(BUDGET + 1, false);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.allowCall()).isFalse();
+        now.addAndGet(OPEN);
+        assertThat(breaker.allowCall()).isTrue();
+        assertThat(ListenerMetrics.getInstance().getCircuitOpenings()).isEqualTo(1);
+    }
+
+    @Test
+    void degraded_events_are_counted() {
+        breaker.degraded(1);
+        breaker.degraded(10);
+
+        assertThat(ListenerMetrics.getInstance().getDegradedEvents()).isEqualTo(11);
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            breaker.recordCall(1, true);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package io.orangebeard.listener;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DurationHistoryTest {
+
+    @TempDir
+    Path directory;
+
+    private static long millis(long millis) {
+        return millis * 1000;
+    }
+
+    private DurationHistory history(Path file) {
+        return new DurationHistory(file, 1024, 95, 2.0, 5, 100);
+    }
+
+    @Test
+    void a_test_that_is_much_slower_than_its_history_is_flagged() {
+        DurationHistory history = history(directory.resolve("durations.bin"));
+        for (int i = 0; i < 10; i++) {
+            assertThat(history.record("a.Test.method", millis(200 + i))).isNull();
+        }
+
+        assertThat(history.record("a.Test.method", millis(400))).isNull();
+        assertThat(history.record("a.Test.method", millis(1000)))
+                .startsWith("perf-regression:")
+                .contains("1000.000 ms");
+    }
+
+    @Test
+    void a_test_is_not_flagged_without_enough_history_or_when_it_is_too_short() {
+        DurationHistory history = history(directory.resolve("durations.bin"));
+        for (int i = 0; i < 4; i++) {
+            history.record("a.Test.slow", millis(200));
+            history.record("a.Test.fast", millis(1));
+        }
+        history.record("a.Test.fast", millis(1));
+
+        assertThat(history.record("a.Test.slow", millis(5000))).isNull();
+        assertThat(history.record("a.Test.fast", millis(90))).isNull();
+    }
+
+    @Test
+    void the_history_is_kept_across_runs() throws Exception {
+        Path file = directory.resolve("nested").resolve("durations.bin");
+        DurationHistory firstRun = history(file);
+        for (int i = 0; i < 5; i++) {
+            firstRun.record("a.Test.method", millis(200));
+        }
+
+        DurationHistory secondRun = history(file);
+
+        assertThat(Files.size(file)).isPositive();
+        assertThat(secondRun.record("a.Test.method", millis(1000))).startsWith("perf-regression:");
+        assertThat(secondRun.record("a.Test.other", millis(1000))).isNull();
+    }
+
+    @Test
+    void forks_that_share_the_file_keep_each_others_history() throws Exception {
+        Path file = directory.resolve("durations.bin");
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> forks = new ArrayList<>();
+        for (int f = 0; f < 4; f++) {
+            String fork = "fork" + f;
+            // Each fork has a store of its own on the shared file, as a surefire fork would.
+            DurationHistory history = history(file);
+            history.record("a." + fork + ".Warmup", millis(200));
+            forks.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                // 800 tests in 1024 records: the forks keep claiming records in each other's probe windows.
+                for (int run = 0; run < 5; run++) {
+                    for (int t = 0; t < 200; t++) {
+                        history.record("a." + fork + ".Test" + t, millis(200));
+                    }
+                }
+            }));
+        }
+        forks.forEach(Thread::start);
+        start.countDown();
+        for (Thread fork : forks) {
+            fork.join();
+        }
+
+        DurationHistory nextRun = history(file);
+        for (int f = 0; f < 4; f++) {
+            for (int t = 0; t < 200; t++) {
+                assertThat(nextRun.record("a.fork" + f + ".Test" + t, millis(1000))).startsWith("perf-regression:");
+            }
+        }
+    }
+
+    @Test
+    void only_the_last_runs_are_compared() {
+        DurationHistory history = history(directory.resolve("durations.bin"));
+        for (int i = 0; i < 5; i++) {
+            history.record("a.Test.method", millis(1000));
+        }
+        for (int i = 0; i < DurationHistory.SAMPLES; i++) {
+            history.record("a.Test.method", millis(200));
+        }
+
+        assertThat(history.record("a.Test.method", millis(1000))).startsWith("perf-regression:");
+    }
+
+    @Test
+    void an_invalid_file_is_started_over() throws Exception {
+        Path file = directory.resolve("durations.bin");
+        Files.writeString(file, "not a duration history");
+        DurationHistory history = history(file);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(history.record("a.Test.method", millis(200))).isNull();
+        }
+        assertThat(history.record("a.Test.method", millis(1000))).startsWith("perf-regression:");
+    }
+
+    @Test
+    void failed_tests_are_neither_recorded_nor_flagged() {
+        DurationHistory history = history(directory.resolve("durations.bin"));
+        for (int i = 0; i < 5; i++) {
+            history.testFinished("a.Test.method", 200_000_000L, true);
+            history.testFinished("a.Test.method", 1_000L, false);
+        }
+
+        assertThat(history.testFinished("a.Test.method", 1_000_000_000L, false)).isNull();
+        assertThat(history.testFinished("a.Test.method", 1_000_000_000L, true)).startsWith("perf-regression:");
+    }
+}
@@ -0,0 +1,80 @@
+package io.orangebeard.listener;
+
+import org.junit.jupiter.api.Test;
+import org.junit.platform.commons.util.ExceptionUtils;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FailureRendererTest {
+
+    @Test
+    void without_folding_or_limits_the_rendering_equals_the_regular_stack_trace() {
+        FailureRenderer renderer = new FailureRenderer(Integer.MAX_VALUE, Integer.MAX_VALUE, List.of());
+        Throwable failure = new IllegalStateException("outer", new IllegalArgumentException("inner"));
+        failure.addSuppressed(new RuntimeException("suppressed"));
+
+        assertThat(renderer.render(failure)).isEqualTo(ExceptionUtils.readStackTrace(failure).replace(System.lineSeparator(), "\n"));
+    }
+
+    @Test
+    void consecutive_framework_frames_are_folded_into_one_line() {
+        FailureRenderer renderer = new FailureRenderer(64 * 1024, 10, List.of("org.junit.", "jdk.internal.reflect.", "java.lang.reflect."));
+
+        String rendered = renderer.render(new AssertionError("expected"));
+
+        assertThat(rendered).startsWith("java.lang.AssertionError: expected\n\tat io.orangebeard.listener.FailureRendererTest.");
+        assertThat(rendered).doesNotContain("at org.junit.").containsPattern("\\t\\.\\.\\. \\d+ framework frames?\\n");
+    }
+
+    @Test
+    void the_cause_chain_is_cut_off_at_the_maximum_depth() {
+        FailureRenderer renderer = new FailureRenderer(64 * 1024, 1, FailureRenderer.DEFAULT_FOLDED_PACKAGES);
+        Throwable failure = new RuntimeException("level 0", new RuntimeException("level 1", new RuntimeException("level 2")));
+
+        String rendered = renderer.render(failure);
+
+        assertThat(rendered).contains("level 0").contains("Caused by: java.lang.RuntimeException: level 1")
+                .doesNotContain("level 2").contains("... further causes omitted");
+    }
+
+    @Test
+    void the_rendering_is_cut_off_at_the_maximum_length() {
+        FailureRenderer renderer = new FailureRenderer(500, 10, List.of());
+        StackOverflowError failure = provokeStackOverflow();
+
+        String rendered = renderer.render(failure);
+
+        assertThat(rendered).hasSize(500).startsWith("java.lang.StackOverflowError").endsWith("\t... (truncated)");
+    }
+
+    @Test
+    void a_huge_message_is_not_copied_beyond_the_budget() {
+        FailureRenderer renderer = new FailureRenderer(100, 10, List.of());
+
+        String rendered = renderer.render(new AssertionError("x".repeat(1_000_000)));
+
+        assertThat(rendered).hasSize(100).endsWith("\t... (truncated)");
+    }
+
+    @Test
+    void the_logged_message_is_cut_off_at_the_same_budget() {
+        FailureRenderer renderer = new FailureRenderer(100, 10, List.of());
+
+        assertThat(renderer.renderMessage(new AssertionError("x".repeat(1_000_000)))).hasSize(100).endsWith("\t... (truncated)");
+        assertThat(renderer.renderMessage(new AssertionError("short"))).isEqualTo("short");
+        assertThat(renderer.renderMessage(new AssertionError())).isNull();
+    }
+
+    private static StackOverflowError provokeStackOverflow() {
+        try {
+            return recurse(0);
+        } catch (StackOverflowError e) {
+            return e;
+        }
+    }
+
+    private static StackOverflowError recurse(int depth) {
+        return recurse(depth + 1);
+    }
+}
@@ -0,0 +1,98 @@
+package io.orangebeard.listener;
+
+import io.orangebeard.client.entity.test.TestStatus;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FlightRecorderEventsTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void the_test_lifecycle_is_recorded_with_the_orangebeard_uuids() throws IOException {
+        FlightRecorderEvents events = new FlightRecorderEvents();
+        UUID suiteUUID = UUID.randomUUID();
+        UUID testUUID = UUID.randomUUID();
+        Path file = directory.resolve("recording.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("io.orangebeard.TestClass");
+            recording.enable("io.orangebeard.Test");
+            recording.enable("io.orangebeard.TestFailure");
+            recording.start();
+
+            events.classStarted("[class:Suite]", "io.Suite");
+            events.classReported("[class:Suite]", suiteUUID);
+            events.testStarted("[method:test()]", "test()");
+            events.testReported("[method:test()]", testUUID, suiteUUID);
+            events.testFailed("[method:test()]", new AssertionError("expected"));
+            events.testFinished("[method:test()]", TestStatus.FAILED);
+            events.classFinished("[class:Suite]");
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> recorded = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().startsWith("io.orangebeard."))
+                .collect(Collectors.toList());
+        assertThat(recorded).extracting(event -> event.getEventType().getName())
+                .containsExactlyInAnyOrder("io.orangebeard.TestClass", "io.orangebeard.Test", "io.orangebeard.TestFailure");
+
+        RecordedEvent test = find(recorded, "io.orangebeard.Test");
+        assertThat(test.getString("uniqueId")).isEqualTo("[method:test()]");
+        assertThat(test.getString("testUUID")).isEqualTo(testUUID.toString());
+        assertThat(test.getString("suiteUUID")).isEqualTo(suiteUUID.toString());
+        assertThat(test.getString("status")).isEqualTo("FAILED");
+
+        RecordedEvent failure = find(recorded, "io.orangebeard.TestFailure");
+        assertThat(failure.getString("testUUID")).isEqualTo(testUUID.toString());
+        assertThat(failure.getString("suiteUUID")).isEqualTo(suiteUUID.toString());
+        assertThat(failure.getString("message")).isEqualTo("expected");
+
+        assertThat(find(recorded, "io.orangebeard.TestClass").getString("className")).isEqualTo("io.Suite");
+        assertThat(find(recorded, "io.orangebeard.TestClass").getString("suiteUUID")).isEqualTo(suiteUUID.toString());
+    }
+
+    @Test
+    void a_test_that_ends_before_it_is_reported_is_recorded_on_its_own_thread_without_uuids() throws Exception {
+        FlightRecorderEvents events = new FlightRecorderEvents();
+        Path file = directory.resolve("recording.jfr");
+        String testThread = Thread.currentThread().getName();
+
+        try (Recording recording = new Recording()) {
+            recording.enable("io.orangebeard.Test");
+            recording.start();
+
+            events.testStarted("[method:test()]", "test()");
+            events.testFinished("[method:test()]", TestStatus.PASSED);
+            Thread reporter = new Thread(() -> events.testReported("[method:test()]", UUID.randomUUID(), UUID.randomUUID()));
+            reporter.start();
+            reporter.join();
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        RecordedEvent test = find(RecordingFile.readAllEvents(file), "io.orangebeard.Test");
+        assertThat(test.getThread().getJavaName()).isEqualTo(testThread);
+        assertThat(test.getString("status")).isEqualTo("PASSED");
+        assertThat(test.getString("testUUID")).isNull();
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).findFirst().orElseThrow();
+    }
+}
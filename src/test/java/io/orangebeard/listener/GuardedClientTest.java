@@ -0,0 +1,94 @@
+package io.orangebeard.listener;
+
+import io.orangebeard.client.OrangebeardProperties;
+import io.orangebeard.client.entity.test.StartTest;
+import io.orangebeard.client.v3.OrangebeardAsyncV3Client;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GuardedClientTest {
+
+    private final OrangebeardAsyncV3Client delegate = mock(OrangebeardAsyncV3Client.class);
+    private final CircuitBreaker breaker = new CircuitBreaker(TimeUnit.MILLISECONDS.toNanos(50), 2, TimeUnit.MINUTES.toNanos(1), System::nanoTime);
+    private final GuardedClient client = new GuardedClient(new OrangebeardProperties(), delegate, breaker);
+
+    @BeforeEach
+    void resetMetrics() {
+        ListenerMetrics.getInstance().reset();
+    }
+
+    @Test
+    void a_call_in_time_is_passed_on() {
+        UUID testId = UUID.randomUUID();
+        when(delegate.startTest(any())).thenReturn(testId);
+
+        assertThat(client.startTest(mock(StartTest.class))).isEqualTo(testId);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void a_slow_call_is_given_up_and_slow_calls_open_the_circuit() {
+        CountDownLatch server = new CountDownLatch(1);
+        when(delegate.startTest(any())).thenAnswer(invocation -> {
+            server.await();
+            return UUID.randomUUID();
+        });
+
+        long start = System.nanoTime();
+        assertThat(client.startTest(mock(StartTest.class))).isNull();
+        assertThat(client.startTest(mock(StartTest.class))).isNull();
+        assertThat(client.startTest(mock(StartTest.class))).isNull();
+        server.countDown();
+
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(2));
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        verify(delegate, times(2)).startTest(any());
+        assertThat(ListenerMetrics.getInstance().getDegradedEvents()).isEqualTo(3);
+    }
+
+    @Test
+    void a_failing_call_returns_null() {
+        when(delegate.startTest(any())).thenThrow(new IllegalStateException("server error"));
+
+        assertThat(client.startTest(mock(StartTest.class))).isNull();
+        assertThat(ListenerMetrics.getInstance().getDegradedEvents()).isEqualTo(1);
+    }
+
+    @Test
+    void a_probe_that_is_interrupted_or_rejected_opens_the_circuit_again() {
+        CircuitBreaker probed = new CircuitBreaker(TimeUnit.MILLISECONDS.toNanos(50), 1, 0, System::nanoTime);
+        GuardedClient probedClient = new GuardedClient(new OrangebeardProperties(), delegate, probed);
+        CountDownLatch server = new CountDownLatch(1);
+        when(delegate.startTest(any())).thenAnswer(invocation -> {
+            server.await();
+            return UUID.randomUUID();
+        });
+        probed.recordCall(0, true);
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThat(probedClient.startTest(mock(StartTest.class))).isNull();
+        } finally {
+            assertThat(Thread.interrupted()).isTrue();
+            server.countDown();
+        }
+        assertThat(probed.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        probedClient.finishTestRun(UUID.randomUUID(), null);
+        assertThat(probedClient.startTest(mock(StartTest.class))).isNull();
+        assertThat(probed.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(probed.allowCall()).isTrue();
+        assertThat(probed.getState()).isEqualTo(CircuitBreaker.State.PROBING);
+    }
+}
@@ -0,0 +1,41 @@
+package io.orangebeard.listener;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyHistogramTest {
+
+    @Test
+    void every_value_falls_in_a_bucket_whose_highest_value_is_close_above_it() {
+        long[] values = {0, 1, 15, 16, 17, 31, 32, 1_000, 123_456_789, Long.MAX_VALUE};
+        for (long value : values) {
+            long highest = LatencyHistogram.highestValueIn(LatencyHistogram.bucketOf(value));
+            assertThat(highest).isGreaterThanOrEqualTo(value);
+            assertThat(highest - value).isLessThanOrEqualTo(value / 16);
+        }
+    }
+
+    @Test
+    void percentiles_are_reported_within_the_bucket_precision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value * 1_000);
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(10_000);
+        assertThat(histogram.getMax()).isEqualTo(10_000_000);
+        assertThat(histogram.getMean()).isEqualTo(5_000_500);
+        assertThat(histogram.getPercentile(50)).isBetween(5_000_000L, 5_000_000L * 17 / 16);
+        assertThat(histogram.getPercentile(99)).isBetween(9_900_000L, 9_900_000L * 17 / 16);
+        assertThat(histogram.getPercentile(100)).isEqualTo(10_000_000);
+    }
+
+    @Test
+    void an_empty_histogram_reports_zero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertThat(histogram.getPercentile(99)).isZero();
+        assertThat(histogram.getMean()).isZero();
+    }
+}
@@ -0,0 +1,117 @@
+package io.orangebeard.listener;
+
+import io.orangebeard.client.entity.StartV3TestRun;
+import io.orangebeard.client.entity.suite.StartSuite;
+import io.orangebeard.client.v3.OrangebeardAsyncV3Client;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * The memory the listener keeps must not grow with the number of tests in the run.
+ * The mocks only stub, so they do not record the invocations either; the starts are counted instead. Every iteration
+ * reuses one Java class, and with it one suite path, so the count of suite starts shows that the class was removed
+ * from the suite tree when it finished, and started again. The retained heap itself is measured by
+ * <code>ListenerFootprint</code> in the benchmarks module, as a heap measurement is too noisy for a unit test.
+ */
+class ListenerFootprintTest {
+    private static final int TESTS_PER_CLASS = 10;
+
+    private final String[] classId = new String[1];
+    private final String[] testId = new String[1];
+    private final AtomicInteger startedSuites = new AtomicInteger();
+    private final AtomicInteger startedTests = new AtomicInteger();
+    private ExtensionContext classContext;
+    private ExtensionContext testContext;
+    private OrangebeardExtension extension;
+
+    @BeforeEach
+    void startRun() throws NoSuchMethodException {
+        System.setProperty(ListenerProperties.FINISHED_TEST_RETENTION_MS, "0");
+        OrangebeardContext.getInstance().reset();
+
+        OrangebeardAsyncV3Client client = mock(OrangebeardAsyncV3Client.class, withSettings().stubOnly());
+        when(client.startTestRun(any(StartV3TestRun.class))).thenReturn(UUID.randomUUID());
+        when(client.startSuite(any(StartSuite.class))).thenAnswer(invocation -> {
+            startedSuites.incrementAndGet();
+            List<UUID> suiteIds = new ArrayList<>();
+            for (String ignored : invocation.<StartSuite>getArgument(0).getSuiteNames()) {
+                suiteIds.add(UUID.randomUUID());
+            }
+            return suiteIds;
+        });
+        when(client.startTest(any())).thenAnswer(invocation -> {
+            startedTests.incrementAndGet();
+            return UUID.randomUUID();
+        });
+
+        Method method = ListenerFootprintTest.class.getDeclaredMethod("startRun");
+        classContext = mock(ExtensionContext.class, withSettings().stubOnly());
+        when(classContext.getRequiredTestClass()).thenReturn((Class) ListenerFootprintTest.class);
+        when(classContext.getUniqueId()).thenAnswer(invocation -> classId[0]);
+        testContext = mock(ExtensionContext.class, withSettings().stubOnly());
+        when(testContext.getParent()).thenReturn(Optional.of(classContext));
+        when(testContext.getUniqueId()).thenAnswer(invocation -> testId[0]);
+        when(testContext.getDisplayName()).thenReturn("test");
+        when(testContext.getTestClass()).thenReturn(Optional.of(ListenerFootprintTest.class));
+        when(testContext.getRequiredTestMethod()).thenReturn(method);
+        when(testContext.getExecutionException()).thenReturn(Optional.empty());
+
+        extension = new OrangebeardExtension(client);
+    }
+
+    @AfterEach
+    void resetRun() {
+        System.clearProperty(ListenerProperties.FINISHED_TEST_RETENTION_MS);
+        OrangebeardContext.getInstance().reset();
+    }
+
+    @Test
+    void the_tests_and_suites_the_listener_keeps_do_not_grow_with_the_number_of_tests() {
+        OrangebeardContext context = OrangebeardContext.getInstance();
+
+        runClasses(0, 10);
+        int trackedTests = context.getTrackedTestCount();
+        int suiteTreeSize = context.getSuiteTree().size();
+        int suitesStarted = startedSuites.get();
+        int testsStarted = startedTests.get();
+        runClasses(10, 1_000);
+
+        assertThat(context.getTrackedTestCount()).isEqualTo(trackedTests).isLessThanOrEqualTo(1);
+        assertThat(context.getSuiteTree().size()).isEqualTo(suiteTreeSize);
+        assertThat(startedSuites.get() - suitesStarted).isEqualTo(990);
+        assertThat(startedTests.get() - testsStarted).isEqualTo(990 * TESTS_PER_CLASS);
+    }
+
+    private void runClasses(int from, int to) {
+        for (int c = from; c < to; c++) {
+            classId[0] = "[engine:junit-jupiter]/[class:io.orangebeard.listener.ListenerFootprintTest" + c + "]";
+            extension.beforeAll(classContext);
+            for (int t = 0; t < TESTS_PER_CLASS; t++) {
+                testId[0] = classId[0] + "/[method:test" + t + "()]";
+                extension.beforeEach(testContext);
+                extension.testSuccessful(testContext);
+            }
+            extension.afterAll(classContext);
+        }
+        try {
+            OrangebeardContext.getInstance().getOutboundQueue().awaitEmpty(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
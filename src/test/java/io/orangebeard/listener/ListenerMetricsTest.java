@@ -0,0 +1,60 @@
+package io.orangebeard.listener;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ListenerMetricsTest {
+
+    @AfterEach
+    void clearProperties() {
+        System.clearProperty(ListenerProperties.METRICS_FILE);
+    }
+
+    @Test
+    void the_json_report_contains_callback_latencies_call_counts_and_gauges() {
+        ListenerMetrics metrics = new ListenerMetrics();
+        metrics.recordCallback(ListenerMetrics.Callback.BEFORE_EACH, System.nanoTime() - 2_000);
+        metrics.countCall(ListenerMetrics.Call.START_TEST);
+        metrics.countCall(ListenerMetrics.Call.LOG);
+        metrics.countCall(ListenerMetrics.Call.LOG);
+        metrics.countLogCharacters("12345");
+
+        String json = metrics.toJson(Map.of("suiteTreeSize", 7L));
+
+        assertThat(json)
+                .contains("\"beforeEach\": {\"count\": 1,")
+                .contains("\"beforeAll\": {\"count\": 0,")
+                .contains("\"startTest\": 1")
+                .contains("\"log\": 2")
+                .contains("\"logCharacters\": 5")
+                .contains("\"suiteTreeSize\": 7");
+        assertThat(metrics.getHistogram(ListenerMetrics.Callback.BEFORE_EACH).getMax()).isGreaterThanOrEqualTo(2_000);
+    }
+
+    @Test
+    void the_digest_summarizes_the_callbacks_and_calls_on_one_line() {
+        ListenerMetrics metrics = new ListenerMetrics();
+        metrics.recordCallback(ListenerMetrics.Callback.BEFORE_ALL, System.nanoTime());
+        metrics.recordCallback(ListenerMetrics.Callback.TEST_FAILED, System.nanoTime());
+        metrics.countCall(ListenerMetrics.Call.FINISH_TEST);
+
+        assertThat(metrics.toDigest())
+                .startsWith("Orangebeard listener: 2 callbacks took")
+                .contains("1 calls to Orangebeard")
+                .doesNotContain("\n");
+    }
+
+    @Test
+    void every_process_writes_a_report_of_its_own(@TempDir Path directory) {
+        System.setProperty(ListenerProperties.METRICS_FILE, directory.resolve("metrics-{pid}.json").toString());
+
+        new ListenerMetrics().report(new ListenerProperties(), Map.of());
+
+        assertThat(directory.resolve("metrics-" + ProcessHandle.current().pid() + ".json")).isRegularFile();
+    }
+}
@@ -0,0 +1,120 @@
+package io.orangebeard.listener;
+
+import io.orangebeard.client.entity.LogFormat;
+import io.orangebeard.client.entity.log.Log;
+import io.orangebeard.client.entity.log.LogLevel;
+
+import org.junit.jupiter.api.Test;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogBatcherTest {
+    private final List<List<Log>> batches = new CopyOnWriteArrayList<>();
+
+    @Test
+    void logs_are_submitted_as_one_batch_on_flush() {
+        LogBatcher batcher = new LogBatcher(batches::add, 100, 1_000_000, 0);
+
+        batcher.add(log("message"));
+        batcher.add(log("stack trace"));
+        assertThat(batches).isEmpty();
+
+        batcher.flush();
+
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).extracting(Log::getMessage).containsExactly("message", "stack trace");
+    }
+
+    @Test
+    void a_batch_is_submitted_when_it_reaches_the_maximum_number_of_logs() {
+        LogBatcher batcher = new LogBatcher(batches::add, 3, 1_000_000, 0);
+
+        for (int i = 0; i < 7; i++) {
+            batcher.add(log("log " + i));
+        }
+
+        assertThat(batches).hasSize(2);
+        batcher.flush();
+        assertThat(batches).hasSize(3);
+        assertThat(batches.get(2)).hasSize(1);
+    }
+
+    @Test
+    void a_batch_is_submitted_when_it_reaches_the_maximum_size() {
+        LogBatcher batcher = new LogBatcher(batches::add, 100, 10, 0);
+
+        batcher.add(log("12345"));
+        assertThat(batches).isEmpty();
+        batcher.add(log("67890"));
+
+        assertThat(batches).hasSize(1);
+    }
+
+    @Test
+    void pending_logs_are_submitted_when_the_flush_interval_passes() throws InterruptedException {
+        LogBatcher batcher = new LogBatcher(batches::add, 100, 1_000_000, 50);
+
+        batcher.add(log("message"));
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (batches.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        batcher.close();
+        assertThat(batches).hasSize(1);
+    }
+
+    @Test
+    void a_flush_waits_for_the_batch_the_interval_flusher_is_submitting() throws InterruptedException {
+        List<String> sent = new CopyOnWriteArrayList<>();
+        CountDownLatch submitting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        LogBatcher batcher = new LogBatcher(logs -> {
+            submitting.countDown();
+            awaitQuietly(release);
+            sent.add("logs");
+        }, 100, 1_000_000, 10);
+        batcher.add(log("message"));
+        assertThat(submitting.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Thread finisher = new Thread(() -> {
+            batcher.flush();
+            sent.add("finish");
+        });
+        finisher.start();
+        finisher.join(200);
+        assertThat(finisher.isAlive()).isTrue();
+        release.countDown();
+        finisher.join();
+
+        batcher.close();
+        assertThat(sent).containsExactly("logs", "finish");
+    }
+
+    @Test
+    void flushing_without_pending_logs_submits_nothing() {
+        LogBatcher batcher = new LogBatcher(batches::add, 100, 1_000_000, 0);
+
+        batcher.flush();
+
+        assertThat(batches).isEmpty();
+    }
+
+    private static Log log(String message) {
+        return new Log(UUID.randomUUID(), UUID.randomUUID(), null, message, LogLevel.INFO, ZonedDateTime.now(), LogFormat.PLAIN_TEXT);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package io.orangebeard.listener;
+
+import io.orangebeard.client.OrangebeardProperties;
+import io.orangebeard.client.entity.test.FinishTest;
+import io.orangebeard.client.entity.test.TestStatus;
+import io.orangebeard.client.v3.OrangebeardAsyncV3Client;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrangebeardContextTest {
+
+    @Test
+    void tests_added_concurrently_from_many_threads_are_all_retrievable() throws Exception {
+        OrangebeardContext context = OrangebeardContext.getInstance();
+        int threads = 32;
+        int testsPerThread = 2_000;
+        String prefix = UUID.randomUUID() + "-";
+        AtomicInteger missing = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < testsPerThread; i++) {
+                        String identifier = prefix + thread + ":" + i;
+                        UUID testId = UUID.randomUUID();
+                        context.addTest(identifier, testId);
+                        if (!testId.equals(context.getTestId(identifier))) {
+                            missing.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(missing.get()).isZero();
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < testsPerThread; i++) {
+                assertThat(context.getTestId(prefix + t + ":" + i)).isNotNull();
+            }
+        }
+    }
+
+    @Test
+    void an_unknown_or_null_identifier_yields_no_test_id() {
+        OrangebeardContext context = OrangebeardContext.getInstance();
+        context.addTest(null, UUID.randomUUID());
+        context.addTest("no-test-id", null);
+
+        assertThat(context.getTestId(null)).isNull();
+        assertThat(context.getTestId("no-test-id")).isNull();
+    }
+
+    @Test
+    void finishing_the_run_delivers_pending_events_first_and_happens_only_once() {
+        OrangebeardContext context = OrangebeardContext.getInstance();
+        context.reset();
+        try {
+            OrangebeardAsyncV3Client client = mock(OrangebeardAsyncV3Client.class);
+            UUID testRunUUID = UUID.randomUUID();
+            UUID testUUID = UUID.randomUUID();
+            when(client.startTestRun(any())).thenReturn(testRunUUID);
+            context.setClient(client);
+            context.startTestRun(new OrangebeardProperties());
+
+            context.finishTest(testUUID, new FinishTest(testRunUUID, TestStatus.PASSED, ZonedDateTime.now()));
+            context.finishTestRun();
+            context.finishTestRun();
+
+            InOrder inOrder = inOrder(client);
+            inOrder.verify(client).finishTest(eq(testUUID), any());
+            inOrder.verify(client).finishTestRun(eq(testRunUUID), any());
+            verify(client, times(1)).finishTestRun(any(), any());
+        } finally {
+            context.reset();
+        }
+    }
+
+    @Test
+    void every_test_plan_of_the_jvm_is_reported_to_the_same_run() {
+        OrangebeardContext context = OrangebeardContext.getInstance();
+        context.reset();
+        try {
+            OrangebeardAsyncV3Client client = mock(OrangebeardAsyncV3Client.class);
+            UUID testRunUUID = UUID.randomUUID();
+            UUID firstTest = UUID.randomUUID();
+            UUID secondTest = UUID.randomUUID();
+            when(client.startTestRun(any())).thenReturn(testRunUUID);
+            context.setClient(client);
+
+            context.startTestRun(new OrangebeardProperties());
+            context.finishTest(firstTest, new FinishTest(testRunUUID, TestStatus.PASSED, ZonedDateTime.now()));
+            context.flush();
+            verify(client).finishTest(eq(firstTest), any());
+
+            context.startTestRun(new OrangebeardProperties());
+            context.finishTest(secondTest, new FinishTest(testRunUUID, TestStatus.FAILED, ZonedDateTime.now()));
+            context.flush();
+            verify(client).finishTest(eq(secondTest), any());
+            verify(client, never()).finishTestRun(any(), any());
+
+            context.finishTestRun();
+            verify(client, times(1)).startTestRun(any());
+            verify(client, times(1)).finishTestRun(eq(testRunUUID), any());
+        } finally {
+            context.reset();
+        }
+    }
+
+    @Test
+    void a_shared_run_is_started_on_the_server_before_its_uuid_is_shared_and_announced_to_the_client(@TempDir Path directory) {
+        System.setProperty(ListenerProperties.RUN_COORDINATION_DIRECTORY, directory.toString());
+        OrangebeardContext context = OrangebeardContext.getInstance();
+        context.reset();
+        try {
+            OrangebeardAsyncV3Client client = mock(OrangebeardAsyncV3Client.class);
+            OrangebeardAsyncV3Client synchronousClient = mock(OrangebeardAsyncV3Client.class);
+            UUID serverRunUUID = UUID.randomUUID();
+            when(synchronousClient.startTestRun(any())).thenReturn(serverRunUUID);
+            context.setClient(client);
+            context.setSharedRunClientFactory(properties -> synchronousClient);
+
+            context.startTestRun(new OrangebeardProperties());
+
+            assertThat(context.getTestRunUUID()).isEqualTo(serverRunUUID);
+            assertThat(directory.resolve("run")).content().startsWith(serverRunUUID.toString());
+            verify(client).startAnnouncedTestRun(serverRunUUID);
+            verify(client, never()).startTestRun(any());
+        } finally {
+            System.clearProperty(ListenerProperties.RUN_COORDINATION_DIRECTORY);
+            context.reset();
+        }
+    }
+
+    @Test
+    void an_explicit_run_is_announced_to_the_client() {
+        UUID explicitRunUUID = UUID.randomUUID();
+        System.setProperty(ListenerProperties.RUN_ID, explicitRunUUID.toString());
+        OrangebeardContext context = OrangebeardContext.getInstance();
+        context.reset();
+        try {
+            OrangebeardAsyncV3Client client = mock(OrangebeardAsyncV3Client.class);
+            context.setClient(client);
+
+            context.startTestRun(new OrangebeardProperties());
+            context.finishTestRun();
+
+            assertThat(context.getTestRunUUID()).isEqualTo(explicitRunUUID);
+            verify(client).startAnnouncedTestRun(explicitRunUUID);
+            verify(client, never()).startTestRun(any());
+            verify(client, never()).finishTestRun(any(), any());
+        } finally {
+            System.clearProperty(ListenerProperties.RUN_ID);
+            context.reset();
+        }
+    }
+
+    @Test
+    void a_published_file_is_read_when_it_is_delivered(@TempDir Path directory) throws Exception {
+        OrangebeardContext context = OrangebeardContext.getInstance();
+        context.reset();
+        try {
+            OrangebeardAsyncV3Client client = mock(OrangebeardAsyncV3Client.class);
+            UUID testRunUUID = UUID.randomUUID();
+            UUID logUUID = UUID.randomUUID();
+            when(client.startTestRun(any())).thenReturn(testRunUUID);
+            when(client.log(any())).thenReturn(logUUID);
+            context.setClient(client);
+            context.startTestRun(new OrangebeardProperties());
+            Path file = Files.writeString(directory.resolve("report.txt"), "the report");
+
+            context.getAttachmentUploader().upload(testRunUUID, UUID.randomUUID(), "report", file, ZonedDateTime.now());
+            context.flush();
+
+            verify(client).log(argThat(log -> log != null && log.getMessage().equals("report.txt")));
+            verify(client).sendAttachment(argThat(attachment -> attachment != null && attachment.getFile().getName().equals("report.txt")
+                    && new String(attachment.getFile().getContent(), StandardCharsets.UTF_8).equals("the report")
+                    && attachment.getMetaData().getLogUUID().equals(logUUID)));
+        } finally {
+            context.reset();
+        }
+    }
+
+    @Test
+    void a_finished_test_is_forgotten_once_its_retention_time_has_passed() {
+        System.setProperty(ListenerProperties.FINISHED_TEST_RETENTION_MS, "60000");
+        OrangebeardContext context = OrangebeardContext.getInstance();
+        context.reset();
+        try {
+            context.addTest("retained", UUID.randomUUID());
+            context.removeTest("retained");
+            assertThat(context.getTestId("retained")).isNotNull();
+
+            System.setProperty(ListenerProperties.FINISHED_TEST_RETENTION_MS, "0");
+            context.reset();
+            context.addTest("first", UUID.randomUUID());
+            context.addTest("second", UUID.randomUUID());
+            context.addTest("running", UUID.randomUUID());
+            context.removeTest("first");
+            context.removeTest("second");
+
+            assertThat(context.getTestId("first")).isNull();
+            assertThat(context.getTestId("second")).isNull();
+            assertThat(context.getTestId("running")).isNotNull();
+            assertThat(context.getTrackedTestCount()).isEqualTo(1);
+        } finally {
+            System.clearProperty(ListenerProperties.FINISHED_TEST_RETENTION_MS);
+            context.reset();
+        }
+    }
+
+    @Test
+    void a_finished_class_is_removed_from_the_suite_tree_but_its_packages_are_kept() {
+        OrangebeardContext context = OrangebeardContext.getInstance();
+        context.reset();
+        try {
+            TestSuiteTree tree = context.getSuiteTree();
+            TestSuiteTree pkg = tree.addChild("pkg", "pkg", UUID.randomUUID()).orElseThrow();
+            TestSuiteTree outer = pkg.addChild("Outer", "[class:pkg.Outer]", UUID.randomUUID()).orElseThrow();
+            outer.addChild("Inner", "[class:pkg.Outer]/[nested-class:Inner]", UUID.randomUUID());
+            pkg.addChild("Other", "[class:pkg.Other]", UUID.randomUUID());
+
+            context.removeClass("[class:pkg.Outer]");
+
+            assertThat(tree.findSubtree("[class:pkg.Outer]")).isEmpty();
+            assertThat(tree.findSubtree("[class:pkg.Outer]/[nested-class:Inner]")).isEmpty();
+            assertThat(tree.findSubtree("[class:pkg.Other]")).isPresent();
+            assertThat(tree.findSubtree("pkg")).isPresent();
+            assertThat(tree.size()).isEqualTo(3);
+        } finally {
+            context.reset();
+        }
+    }
+
+    @Test
+    void what_is_reported_for_a_deferred_test_waits_for_its_start_or_is_discarded() {
+        OrangebeardContext context = OrangebeardContext.getInstance();
+        context.reset();
+        try {
+            List<UUID> reported = new ArrayList<>();
+            UUID testId = UUID.randomUUID();
+            context.deferTest("failing");
+            context.deferTest("passing");
+
+            context.whenStarted("failing", reported::add);
+            context.whenStarted("passing", reported::add);
+            context.whenStarted("unknown", reported::add);
+            assertThat(reported).isEmpty();
+
+            context.addTest("failing", testId);
+            context.discardDeferredTest("passing");
+            context.whenStarted("failing", reported::add);
+
+            assertThat(reported).containsExactly(testId, testId);
+        } finally {
+            context.reset();
+        }
+    }
+}
@@ -1,25 +1,42 @@
 package io.orangebeard.listener;
 
 import io.orangebeard.client.entity.log.Log;
-
+import io.orangebeard.client.entity.suite.StartSuite;
 import io.orangebeard.client.v3.OrangebeardAsyncV3Client;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.platform.engine.ConfigurationParameters;
 import org.junit.platform.engine.reporting.ReportEntry;
+import org.junit.platform.engine.support.descriptor.ClassSource;
 import org.junit.platform.launcher.TestIdentifier;
+import org.junit.platform.launcher.TestPlan;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static io.orangebeard.client.entity.LogFormat.PLAIN_TEXT;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -27,9 +44,6 @@ import static org.mockito.Mockito.when;
 @ExtendWith({MockitoExtension.class})
 class OrangebeardExecutionListenerTest {
 
-    @Mock
-    private OrangebeardAsyncV3Client orangebeardClient;
-
     @Mock
     private OrangebeardContext orangebeardContext;
 
@@ -55,17 +69,168 @@ class OrangebeardExecutionListenerTest {
 
             when(orangebeardContext.getTestRunUUID()).thenReturn(UUID.randomUUID());
             when(orangebeardContext.getTestId(any())).thenReturn(UUID.randomUUID());
-            when(orangebeardContext.getClient()).thenReturn(orangebeardClient);
+            doCallRealMethod().when(orangebeardContext).whenStarted(any(), any());
 
             OrangebeardExecutionListener orangebeardExecutionListener = new OrangebeardExecutionListener();
             orangebeardExecutionListener.reportingEntryPublished(testIdentifier, entry);
 
             ArgumentCaptor<Log> argument = ArgumentCaptor.forClass(Log.class);
-            verify(orangebeardClient).log(argument.capture());
+            verify(orangebeardContext).log(argument.capture());
             assertEquals(entryString, argument.getValue().getMessage());
             assertEquals(PLAIN_TEXT, argument.getValue().getLogFormat());
 
-            verify(orangebeardClient, times(1)).log(any(Log.class));
+            verify(orangebeardContext, times(1)).log(any(Log.class));
+        }
+    }
+
+    @Test
+    void a_file_published_as_report_entry_is_uploaded_as_attachment(@TempDir Path directory) throws IOException {
+        Path screenshot = Files.write(directory.resolve("screenshot.png"), new byte[]{1, 2, 3});
+        Map<String, String> entryAsMap = new LinkedHashMap<>();
+        entryAsMap.put("screenshot", screenshot.toUri().toString());
+        entryAsMap.put("missing", directory.resolve("missing.png").toUri().toString());
+        entryAsMap.put("Test", "Entry");
+        UUID testRunUUID = UUID.randomUUID();
+        UUID testUUID = UUID.randomUUID();
+        AttachmentUploader attachmentUploader = mock(AttachmentUploader.class);
+
+        try (MockedStatic<OrangebeardContext> contextMockedStatic = Mockito.mockStatic(OrangebeardContext.class)) {
+            contextMockedStatic.when(OrangebeardContext::getInstance).thenReturn(orangebeardContext);
+            when(testIdentifier.getUniqueId()).thenReturn("[test:uniqueId]");
+            when(entry.getKeyValuePairs()).thenReturn(entryAsMap);
+            when(orangebeardContext.getTestRunUUID()).thenReturn(testRunUUID);
+            when(orangebeardContext.getTestId("[test:uniqueId]")).thenReturn(testUUID);
+            when(orangebeardContext.getAttachmentUploader()).thenReturn(attachmentUploader);
+            doCallRealMethod().when(orangebeardContext).whenStarted(any(), any());
+
+            new OrangebeardExecutionListener().reportingEntryPublished(testIdentifier, entry);
+
+            verify(attachmentUploader).upload(eq(testRunUUID), eq(testUUID), eq("screenshot"), eq(screenshot), any());
+            ArgumentCaptor<Log> argument = ArgumentCaptor.forClass(Log.class);
+            verify(orangebeardContext).log(argument.capture());
+            assertEquals("missing: " + entryAsMap.get("missing") + "\nTest: Entry\n", argument.getValue().getMessage());
+        }
+    }
+
+    @Test
+    void the_pending_events_are_delivered_when_the_test_plan_has_been_executed() {
+        try (MockedStatic<OrangebeardContext> contextMockedStatic = Mockito.mockStatic(OrangebeardContext.class)) {
+            contextMockedStatic.when(OrangebeardContext::getInstance).thenReturn(orangebeardContext);
+
+            OrangebeardExecutionListener orangebeardExecutionListener = new OrangebeardExecutionListener();
+            orangebeardExecutionListener.testPlanExecutionFinished(mock(TestPlan.class));
+
+            verify(orangebeardContext).flush();
+            verify(orangebeardContext, never()).finishTestRun();
+        }
+    }
+
+    @Test
+    void the_suites_of_all_test_classes_are_started_before_the_tests_run() {
+        OrangebeardContext context = OrangebeardContext.getInstance();
+        context.reset();
+        try {
+            OrangebeardAsyncV3Client client = mock(OrangebeardAsyncV3Client.class);
+            when(client.startTestRun(any())).thenReturn(UUID.randomUUID());
+            when(client.startSuite(any())).thenAnswer(invocation -> {
+                List<UUID> suiteIds = new ArrayList<>();
+                for (String ignored : invocation.getArgument(0, StartSuite.class).getSuiteNames()) {
+                    suiteIds.add(UUID.randomUUID());
+                }
+                return suiteIds;
+            });
+            context.setClient(client);
+
+            TestIdentifier engine = engine("junit-jupiter");
+            TestIdentifier outerClass = testClass(OrangebeardExecutionListenerTest.class);
+            TestIdentifier nestedClass = testClass(Nested.class);
+            TestIdentifier otherClass = testClass(LogBatcherTest.class);
+            TestPlan testPlan = testPlan(true);
+            when(testPlan.getRoots()).thenReturn(Set.of(engine));
+            when(testPlan.getDescendants(engine)).thenReturn(Set.of(outerClass, nestedClass, otherClass));
+
+            new OrangebeardExecutionListener().testPlanExecutionStarted(testPlan);
+
+            // One call for the deepest path, which creates the packages and the outer class too; one for the other class.
+            verify(client).startSuite(Mockito.argThat(s -> s.getParentSuiteUUID() == null
+                    && s.getSuiteNames().equals(List.of("io", "orangebeard", "listener", "OrangebeardExecutionListenerTest", "Nested"))));
+            verify(client).startSuite(Mockito.argThat(s -> s.getParentSuiteUUID() != null && s.getSuiteNames().equals(List.of("LogBatcherTest"))));
+            verify(client, times(2)).startSuite(any());
+            assertThat(context.getSuiteTree().findSubtree("[class:" + OrangebeardExecutionListenerTest.class.getName() + "]")).isPresent();
+            assertThat(context.getSuiteTree().findSubtree("[class:" + Nested.class.getName() + "]")).isPresent();
+            assertThat(context.getSuiteTree().findSubtree("[class:" + LogBatcherTest.class.getName() + "]")).isPresent();
+        } finally {
+            context.reset();
+        }
+    }
+
+    @Test
+    void only_the_jupiter_classes_that_register_the_extension_are_started_up_front() {
+        OrangebeardContext context = OrangebeardContext.getInstance();
+        context.reset();
+        try {
+            OrangebeardAsyncV3Client client = mock(OrangebeardAsyncV3Client.class);
+            when(client.startTestRun(any())).thenReturn(UUID.randomUUID());
+            when(client.startSuite(any())).thenAnswer(invocation -> {
+                List<UUID> suiteIds = new ArrayList<>();
+                for (String ignored : invocation.getArgument(0, StartSuite.class).getSuiteNames()) {
+                    suiteIds.add(UUID.randomUUID());
+                }
+                return suiteIds;
+            });
+            context.setClient(client);
+
+            TestIdentifier jupiter = engine("junit-jupiter");
+            TestIdentifier vintage = engine("junit-vintage");
+            TestIdentifier reportingClass = testClass(Reporting.class);
+            TestIdentifier nestedClass = testClass(Reporting.Inner.class);
+            TestIdentifier silentClass = testClass(Nested.class);
+            TestPlan testPlan = testPlan(false);
+            when(testPlan.getRoots()).thenReturn(Set.of(jupiter, vintage));
+            when(testPlan.getDescendants(jupiter)).thenReturn(Set.of(reportingClass, nestedClass, silentClass));
+
+            new OrangebeardExecutionListener().testPlanExecutionStarted(testPlan);
+
+            verify(client).startSuite(Mockito.argThat(s -> s.getSuiteNames().equals(
+                    List.of("io", "orangebeard", "listener", "OrangebeardExecutionListenerTest", "Reporting", "Inner"))));
+            verify(client, times(1)).startSuite(any());
+            verify(testPlan, never()).getDescendants(vintage);
+            assertThat(context.getSuiteTree().findSubtree("[class:" + Reporting.class.getName() + "]")).isPresent();
+            assertThat(context.getSuiteTree().findSubtree("[class:" + Nested.class.getName() + "]")).isEmpty();
+        } finally {
+            context.reset();
+        }
+    }
+
+    private static TestPlan testPlan(boolean autodetection) {
+        ConfigurationParameters configurationParameters = mock(ConfigurationParameters.class);
+        when(configurationParameters.getBoolean("junit.jupiter.extensions.autodetection.enabled")).thenReturn(Optional.of(autodetection));
+        TestPlan testPlan = mock(TestPlan.class);
+        when(testPlan.getConfigurationParameters()).thenReturn(configurationParameters);
+        return testPlan;
+    }
+
+    private static TestIdentifier engine(String engineId) {
+        TestIdentifier identifier = mock(TestIdentifier.class);
+        when(identifier.getUniqueId()).thenReturn("[engine:" + engineId + "]");
+        return identifier;
+    }
+
+    private static TestIdentifier testClass(Class<?> testClass) {
+        TestIdentifier identifier = mock(TestIdentifier.class);
+        when(identifier.isContainer()).thenReturn(true);
+        when(identifier.getSource()).thenReturn(Optional.of(ClassSource.from(testClass)));
+        Mockito.lenient().when(identifier.getUniqueId()).thenReturn("[class:" + testClass.getName() + "]");
+        return identifier;
+    }
+
+    static class Nested {
+    }
+
+    @ExtendWith(OrangebeardExtension.class)
+    static class Reporting {
+        @org.junit.jupiter.api.Nested
+        class Inner {
         }
     }
 }
@@ -9,26 +9,40 @@ import io.orangebeard.client.entity.test.StartTest;
 import io.orangebeard.client.entity.test.TestStatus;
 import io.orangebeard.client.v3.OrangebeardAsyncV3Client;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
+import java.io.IOException;
 import java.lang.reflect.Method;
-import java.util.Collections;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -48,6 +62,10 @@ class OrangebeardExtensionTest {
     @Mock
     private OrangebeardContext orangebeardContext;
 
+    @BeforeEach
+    void resetRunContext() {
+        OrangebeardContext.getInstance().reset();
+    }
 
     @Test
     void before_all_test() {
@@ -56,14 +74,15 @@ class OrangebeardExtensionTest {
         UUID testRunUUID = UUID.fromString("49e7186d-e14d-4eeb-bc29-e36279d3b628");
 
         when(orangebeardClient.startTestRun(any(StartV3TestRun.class))).thenReturn(testRunUUID);
-        when(orangebeardClient.startSuite(any(StartSuite.class))).thenReturn(Collections.singletonList(UUID.randomUUID()));
+        when(orangebeardClient.startSuite(any(StartSuite.class))).thenAnswer(suiteIds(UUID.randomUUID()));
         when(extensionContext.getRequiredTestClass()).thenReturn((Class) StringBuffer.class);
 
         OrangebeardExtension orangebeardExtension = new OrangebeardExtension(orangebeardClient);
 
         orangebeardExtension.beforeAll(extensionContext);
 
-        verify(orangebeardClient, times(3)).startSuite(any(StartSuite.class));
+        // All three suites are started with a single call.
+        verify(orangebeardClient).startSuite(argThat(s -> s.getSuiteNames().equals(List.of("java", "lang", "StringBuffer"))));
     }
 
     @Test
@@ -79,17 +98,19 @@ class OrangebeardExtensionTest {
 
         when(orangebeardClient.startTestRun(any(StartV3TestRun.class))).thenReturn(testRunUUID);
 
-        lenient().when(orangebeardClient.startSuite(argThat(s -> s != null && s.getParentSuiteUUID() == null))).thenReturn(Collections.singletonList(suiteUUID));
-        lenient().when(orangebeardClient.startSuite(argThat(s -> s != null && suiteUUID.equals(s.getParentSuiteUUID())))).thenReturn(Collections.singletonList(subSuiteUUID));
-        lenient().when(orangebeardClient.startSuite(argThat(s -> s != null && subSuiteUUID.equals(s.getParentSuiteUUID())))).thenReturn(Collections.singletonList(subSubSuiteUUID));
+        when(orangebeardClient.startSuite(argThat(s -> s != null && s.getParentSuiteUUID() == null))).thenReturn(List.of(suiteUUID, subSuiteUUID, subSubSuiteUUID));
 
         OrangebeardExtension orangebeardExtension = new OrangebeardExtension(orangebeardClient);
         orangebeardExtension.beforeAll(extensionContext);
 
-        // Verify that a test run was started, *and* that all three suites were started.
+        // Verify that a test run was started, *and* that all three suites were started and nested in the tree.
         verify(orangebeardClient).startSuite(argThat(s -> s.getParentSuiteUUID() == null));
-        verify(orangebeardClient).startSuite(argThat(s -> suiteUUID.equals(s.getParentSuiteUUID())));
-        verify(orangebeardClient).startSuite(argThat(s -> subSuiteUUID.equals(s.getParentSuiteUUID())));
+        TestSuiteTree suiteTree = OrangebeardContext.getInstance().getSuiteTree();
+        TestSuiteTree suite = suiteTree.getChildByName("java").orElseThrow();
+        TestSuiteTree subSuite = suite.getChildByName("lang").orElseThrow();
+        assertEquals(suiteUUID, suite.getTestSuiteUUID());
+        assertEquals(subSuiteUUID, subSuite.getTestSuiteUUID());
+        assertEquals(subSubSuiteUUID, suiteTree.findSubtree("id").orElseThrow().getTestSuiteUUID());
     }
 
     @Test
@@ -98,6 +119,7 @@ class OrangebeardExtensionTest {
             contextMockedStatic.when(OrangebeardContext::getInstance).thenReturn(orangebeardContext);
             when(orangebeardContext.getTestRunUUID()).thenReturn(UUID.randomUUID());
             when(orangebeardContext.getClient()).thenReturn(orangebeardClient);
+            when(orangebeardContext.getSuiteTree()).thenReturn(new TestSuiteTree("ROOT", "root", OrangebeardContext.ROOT_UUID));
 
 
             Method method = mock(Method.class);
@@ -114,7 +136,7 @@ class OrangebeardExtensionTest {
             when(extensionContext.getUniqueId()).thenReturn("id");
             when(extensionContext.getRequiredTestMethod()).thenReturn(method);
 
-            when(orangebeardClient.startSuite(any())).thenReturn(Collections.singletonList(suiteUUID));
+            when(orangebeardClient.startSuite(any())).thenAnswer(suiteIds(suiteUUID));
             when(orangebeardClient.startTest(any())).thenReturn(testUUID);
 
             OrangebeardExtension orangebeardExtension = new OrangebeardExtension(orangebeardClient);
@@ -123,7 +145,7 @@ class OrangebeardExtensionTest {
             orangebeardExtension.beforeEach(extensionContext);
             orangebeardExtension.testFailed(extensionContext, new Exception("message"));
 
-            verify(orangebeardClient).finishTest(eq(testUUID), any(FinishTest.class));
+            verify(orangebeardContext).finishTest(eq(testUUID), any(FinishTest.class));
         }
     }
 
@@ -133,6 +155,7 @@ class OrangebeardExtensionTest {
             contextMockedStatic.when(OrangebeardContext::getInstance).thenReturn(orangebeardContext);
             when(orangebeardContext.getTestRunUUID()).thenReturn(UUID.randomUUID());
             when(orangebeardContext.getClient()).thenReturn(orangebeardClient);
+            when(orangebeardContext.getSuiteTree()).thenReturn(new TestSuiteTree("ROOT", "root", OrangebeardContext.ROOT_UUID));
             when(orangebeardContext.getTestId(any())).thenCallRealMethod();
 
             Method method = mock(Method.class);
@@ -156,7 +179,7 @@ class OrangebeardExtensionTest {
             when(extensionContext.getParent()).thenReturn(Optional.of(suiteContext));
             when(extensionContext.getUniqueId()).thenReturn("id");
             when(extensionContext.getRequiredTestMethod()).thenReturn(method);
-            when(orangebeardClient.startSuite(any())).thenReturn(Collections.singletonList(suiteUUID));
+            when(orangebeardClient.startSuite(any())).thenAnswer(suiteIds(suiteUUID));
             when(orangebeardClient.startTest(any())).thenReturn(testUUID);
 
             OrangebeardExtension orangebeardExtension = new OrangebeardExtension(orangebeardClient);
@@ -165,7 +188,7 @@ class OrangebeardExtensionTest {
             orangebeardExtension.testFailed(extensionContext, new Exception("message"));
 
             verify(orangebeardClient, times(1)).startTest(any(StartTest.class));
-            verify(orangebeardClient).finishTest(eq(testUUID), any(FinishTest.class));
+            verify(orangebeardContext).finishTest(eq(testUUID), any(FinishTest.class));
         }
     }
 
@@ -182,7 +205,7 @@ class OrangebeardExtensionTest {
         when(extensionContext.getParent()).thenReturn(Optional.of(suiteContext));
         when(extensionContext.getUniqueId()).thenReturn("id");
         when(extensionContext.getRequiredTestMethod()).thenReturn(method);
-        when(orangebeardClient.startSuite(any())).thenReturn(Collections.singletonList(suiteUUID));
+        when(orangebeardClient.startSuite(any())).thenAnswer(suiteIds(suiteUUID));
         when(orangebeardClient.startTest(any())).thenReturn(testUUID);
         OrangebeardExtension orangebeardExtension = new OrangebeardExtension(orangebeardClient);
 
@@ -190,7 +213,7 @@ class OrangebeardExtensionTest {
         orangebeardExtension.testFailed(extensionContext, new Exception("message"));
 
         verify(orangebeardClient).startTest(argThat(s -> s.getSuiteUUID().equals(suiteUUID)));
-        verify(orangebeardClient).finishTest(eq(testUUID), any(FinishTest.class));
+        verify(orangebeardClient, timeout(1000)).finishTest(eq(testUUID), any(FinishTest.class));
     }
 
     @Test
@@ -208,7 +231,7 @@ class OrangebeardExtensionTest {
         when(extensionContext.getParent()).thenReturn(Optional.of(suiteContext));
         when(extensionContext.getUniqueId()).thenReturn(suiteUUID.toString());
 
-        when(orangebeardClient.startSuite(any())).thenReturn(Collections.singletonList(suiteUUID));
+        when(orangebeardClient.startSuite(any())).thenAnswer(suiteIds(suiteUUID));
         when(orangebeardClient.startTest(any())).thenReturn(testUUID);
 
         // Perform the test.
@@ -219,7 +242,113 @@ class OrangebeardExtensionTest {
 
         // Check the result of the test: verify that a call to `finishTest` was made, where the status of the FinishTest argument is "SKIPPED".
         ArgumentCaptor<FinishTest> argument = ArgumentCaptor.forClass(FinishTest.class);
-        verify(orangebeardClient).finishTest(eq(testUUID), argument.capture());
+        verify(orangebeardClient, timeout(1000)).finishTest(eq(testUUID), argument.capture());
         assertEquals(TestStatus.SKIPPED, argument.getValue().getStatus());
     }
+
+    @Test
+    void multiple_extension_instances_share_a_single_test_run_and_suite_tree() {
+        when(extensionContext.getUniqueId()).thenReturn("id");
+        when(extensionContext.getRequiredTestClass()).thenReturn((Class) StringBuffer.class);
+        when(orangebeardClient.startTestRun(any(StartV3TestRun.class))).thenReturn(UUID.randomUUID());
+        when(orangebeardClient.startSuite(any(StartSuite.class))).thenAnswer(suiteIds(UUID.randomUUID()));
+
+        OrangebeardExtension first = new OrangebeardExtension(orangebeardClient);
+        OrangebeardExtension second = new OrangebeardExtension(orangebeardClient);
+        first.beforeAll(extensionContext);
+        second.beforeAll(extensionContext);
+
+        verify(orangebeardClient, times(1)).startTestRun(any(StartV3TestRun.class));
+        verify(orangebeardClient, times(1)).startSuite(any(StartSuite.class));
+    }
+
+    @Test
+    void with_offloading_the_callbacks_are_reported_in_order_on_the_dispatcher() {
+        System.setProperty(ListenerProperties.DISPATCH_OFFLOAD, "true");
+        try {
+            OrangebeardContext.getInstance().reset();
+            UUID testUUID = UUID.fromString("49e7186d-e14d-4eeb-bc29-e36279d3b628");
+            UUID suiteUUID = UUID.fromString("27bf84ed-6269-4629-863d-0899078f8196");
+            Method method = mock(Method.class);
+            when(method.getName()).thenReturn("testName");
+            when(suiteContext.getRequiredTestClass()).thenReturn((Class) StringBuffer.class);
+            when(suiteContext.getUniqueId()).thenReturn("suiteId");
+            when(extensionContext.getRequiredTestMethod()).thenReturn(method);
+            when(extensionContext.getParent()).thenReturn(Optional.of(suiteContext));
+            when(extensionContext.getUniqueId()).thenReturn("id");
+            when(extensionContext.getExecutionException()).thenReturn(Optional.empty());
+            List<String> reportedOn = new ArrayList<>();
+            when(orangebeardClient.startTestRun(any(StartV3TestRun.class))).thenReturn(UUID.randomUUID());
+            when(orangebeardClient.startSuite(any())).thenAnswer(invocation -> {
+                reportedOn.add(Thread.currentThread().getName());
+                return suiteIds(suiteUUID).answer(invocation);
+            });
+            when(orangebeardClient.startTest(any())).thenReturn(testUUID);
+
+            OrangebeardExtension orangebeardExtension = new OrangebeardExtension(orangebeardClient);
+            orangebeardExtension.beforeAll(suiteContext);
+            orangebeardExtension.beforeEach(extensionContext);
+            orangebeardExtension.testSuccessful(extensionContext);
+            OrangebeardContext.getInstance().finishTestRun();
+
+            InOrder inOrder = inOrder(orangebeardClient);
+            inOrder.verify(orangebeardClient).startSuite(any());
+            inOrder.verify(orangebeardClient).startTest(argThat(s -> s.getSuiteUUID().equals(suiteUUID)));
+            inOrder.verify(orangebeardClient).finishTest(eq(testUUID), argThat(f -> f.getStatus() == TestStatus.PASSED));
+            assertEquals(List.of("orangebeard-callbacks"), reportedOn);
+        } finally {
+            System.clearProperty(ListenerProperties.DISPATCH_OFFLOAD);
+            OrangebeardContext.getInstance().reset();
+        }
+    }
+
+    @Test
+    void a_test_that_is_not_started_in_orangebeard_is_still_recorded_by_the_flight_recorder(@TempDir Path directory) throws IOException {
+        // As in lean mode, where a passing test is never started: the flight recorder event does not depend on it.
+        Method method = mock(Method.class);
+        when(method.getName()).thenReturn("testName");
+        when(suiteContext.getUniqueId()).thenReturn("unknownSuiteId");
+        when(extensionContext.getRequiredTestMethod()).thenReturn(method);
+        when(extensionContext.getParent()).thenReturn(Optional.of(suiteContext));
+        when(extensionContext.getUniqueId()).thenReturn("id");
+        when(extensionContext.getDisplayName()).thenReturn("testName()");
+        when(extensionContext.getExecutionException()).thenReturn(Optional.empty());
+        when(orangebeardClient.startTestRun(any(StartV3TestRun.class))).thenReturn(UUID.randomUUID());
+        Path file = directory.resolve("recording.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("io.orangebeard.Test");
+            recording.start();
+
+            OrangebeardExtension orangebeardExtension = new OrangebeardExtension(orangebeardClient);
+            orangebeardExtension.beforeEach(extensionContext);
+            orangebeardExtension.testSuccessful(extensionContext);
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        verify(orangebeardClient, never()).startTest(any());
+        List<RecordedEvent> recorded = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals("io.orangebeard.Test"))
+                .collect(Collectors.toList());
+        assertThat(recorded).hasSize(1);
+        assertThat(recorded.get(0).getString("name")).isEqualTo("testName()");
+        assertThat(recorded.get(0).getString("status")).isEqualTo("PASSED");
+    }
+
+    /**
+     * Answers a path based <code>startSuite</code> call with a UUID per suite name; the last one is the given UUID.
+     */
+    private static Answer<List<UUID>> suiteIds(UUID classSuiteUUID) {
+        return invocation -> {
+            StartSuite startSuite = invocation.getArgument(0);
+            List<UUID> suiteIds = new ArrayList<>();
+            for (int i = 1; i < startSuite.getSuiteNames().size(); i++) {
+                suiteIds.add(UUID.randomUUID());
+            }
+            suiteIds.add(classSuiteUUID);
+            return suiteIds;
+        };
+    }
 }
@@ -0,0 +1,63 @@
+package io.orangebeard.listener;
+
+import io.orangebeard.client.v3.OrangebeardAsyncV3Client;
+
+import org.junit.jupiter.api.Test;
+import org.junit.platform.launcher.LauncherDiscoveryRequest;
+import org.junit.platform.launcher.LauncherSession;
+import org.junit.platform.launcher.LauncherSessionListener;
+import org.junit.platform.launcher.core.LauncherConfig;
+import org.junit.platform.launcher.core.LauncherFactory;
+import java.util.ServiceLoader;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectClass;
+import static org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder.request;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrangebeardSessionListenerTest {
+
+    @Test
+    void the_run_is_finished_when_the_launcher_session_closes_without_the_shutdown_hook() {
+        OrangebeardContext context = OrangebeardContext.getInstance();
+        context.reset();
+        try {
+            OrangebeardAsyncV3Client client = mock(OrangebeardAsyncV3Client.class);
+            UUID testRunUUID = UUID.randomUUID();
+            when(client.startTestRun(any())).thenReturn(testRunUUID);
+            context.setClient(client);
+            LauncherConfig config = LauncherConfig.builder()
+                    .enableLauncherSessionListenerAutoRegistration(false)
+                    .addLauncherSessionListeners(new OrangebeardSessionListener())
+                    .build();
+            LauncherDiscoveryRequest plan = request().selectors(selectClass(Fixture.class)).build();
+
+            try (LauncherSession session = LauncherFactory.openSession(config)) {
+                session.getLauncher().execute(plan, new OrangebeardExecutionListener());
+                session.getLauncher().execute(plan, new OrangebeardExecutionListener());
+                verify(client, never()).finishTestRun(any(), any());
+            }
+
+            verify(client, times(1)).startTestRun(any());
+            verify(client, times(1)).finishTestRun(eq(testRunUUID), any());
+        } finally {
+            context.reset();
+        }
+    }
+
+    @Test
+    void the_session_listener_is_registered_as_a_service() {
+        assertThat(ServiceLoader.load(LauncherSessionListener.class).stream().map(ServiceLoader.Provider::type))
+                .contains(OrangebeardSessionListener.class);
+    }
+
+    static class Fixture {
+    }
+}
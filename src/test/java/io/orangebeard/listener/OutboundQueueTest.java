@@ -0,0 +1,159 @@
+package io.orangebeard.listener;
+
+import io.orangebeard.client.entity.LogFormat;
+import io.orangebeard.client.entity.log.Log;
+import io.orangebeard.client.entity.log.LogLevel;
+import io.orangebeard.client.entity.test.FinishTest;
+import io.orangebeard.client.entity.test.TestStatus;
+import io.orangebeard.listener.journal.JournalEvent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OutboundQueueTest {
+    private final List<String> delivered = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @TempDir
+    Path spillDirectory;
+
+    @AfterEach
+    void releaseSink() {
+        release.countDown();
+    }
+
+    @Test
+    void events_are_delivered_in_submission_order() throws InterruptedException {
+        OutboundQueue queue = new OutboundQueue(record(), 10, OutboundQueue.Policy.BLOCK, 1000, spillDirectory);
+
+        for (int i = 0; i < 100; i++) {
+            queue.submit(log("log " + i, LogLevel.INFO));
+        }
+        queue.submit(finish());
+
+        assertThat(queue.awaitEmpty(5000)).isTrue();
+        assertThat(delivered).hasSize(101);
+        assertThat(delivered.get(0)).isEqualTo("log 0");
+        assertThat(delivered.get(99)).isEqualTo("log 99");
+        assertThat(delivered.get(100)).isEqualTo("finish");
+    }
+
+    @Test
+    void the_block_policy_drops_logs_when_there_is_no_room_before_the_timeout() throws InterruptedException {
+        OutboundQueue queue = new OutboundQueue(blockedUntilReleased(), 2, OutboundQueue.Policy.BLOCK, 50, spillDirectory);
+
+        fillQueue(queue);
+        queue.submit(log("dropped", LogLevel.ERROR));
+
+        assertThat(queue.getDroppedEvents()).isEqualTo(1);
+        release.countDown();
+        assertThat(queue.awaitEmpty(5000)).isTrue();
+        assertThat(delivered).containsExactly("first", "queued 1", "queued 2");
+        assertThat(queue.getHighWaterMark()).isEqualTo(2);
+    }
+
+    @Test
+    void a_test_finish_that_finds_no_room_before_the_timeout_is_spilled_instead_of_dropped() throws InterruptedException {
+        OutboundQueue queue = new OutboundQueue(blockedUntilReleased(), 2, OutboundQueue.Policy.BLOCK, 50, spillDirectory);
+        fillQueue(queue);
+
+        long start = System.nanoTime();
+        queue.submit(finish());
+        queue.submit(log("after the finish", LogLevel.INFO));
+
+        // The test thread waited the block timeout once, not until the dispatcher caught up.
+        assertThat(System.nanoTime() - start).isLessThan(5_000_000_000L);
+        assertThat(queue.getSpilledEvents()).isEqualTo(2);
+        release.countDown();
+        assertThat(queue.awaitEmpty(5000)).isTrue();
+        assertThat(queue.getDroppedEvents()).isZero();
+        assertThat(delivered).containsExactly("first", "queued 1", "queued 2", "finish", "after the finish");
+        assertThat(queue.close(1000)).isTrue();
+        assertThat(spillDirectory).isEmptyDirectory();
+    }
+
+    @Test
+    void the_drop_logs_policy_drops_info_logs_but_waits_for_room_for_other_events() throws InterruptedException {
+        OutboundQueue queue = new OutboundQueue(blockedUntilReleased(), 2, OutboundQueue.Policy.DROP_LOGS, 10_000, spillDirectory);
+        fillQueue(queue);
+
+        queue.submit(log("dropped", LogLevel.INFO));
+        Thread finisher = new Thread(() -> queue.submit(finish()));
+        finisher.start();
+        release.countDown();
+        finisher.join();
+
+        assertThat(queue.awaitEmpty(5000)).isTrue();
+        assertThat(queue.getDroppedEvents()).isEqualTo(1);
+        assertThat(delivered).containsExactly("first", "queued 1", "queued 2", "finish");
+    }
+
+    @Test
+    void the_spill_policy_writes_overflow_to_disk_and_keeps_the_order() throws InterruptedException {
+        OutboundQueue queue = new OutboundQueue(blockedUntilReleased(), 2, OutboundQueue.Policy.SPILL, 10_000, spillDirectory);
+        fillQueue(queue);
+
+        for (int i = 0; i < 5; i++) {
+            queue.submit(log("spilled " + i, LogLevel.DEBUG));
+        }
+        queue.submit(finish());
+
+        assertThat(queue.getSpilledEvents()).isEqualTo(6);
+        assertThat(queue.getDepth()).isEqualTo(8);
+        release.countDown();
+        assertThat(queue.awaitEmpty(5000)).isTrue();
+        assertThat(delivered).containsExactly("first", "queued 1", "queued 2",
+                "spilled 0", "spilled 1", "spilled 2", "spilled 3", "spilled 4", "finish");
+        assertThat(queue.getDroppedEvents()).isZero();
+        assertThat(queue.getHighWaterMark()).isEqualTo(8);
+
+        assertThat(queue.close(1000)).isTrue();
+        assertThat(spillDirectory).isEmptyDirectory();
+    }
+
+    /**
+     * Submit one event that blocks the dispatcher, and fill the queue (of capacity 2) behind it.
+     */
+    private void fillQueue(OutboundQueue queue) throws InterruptedException {
+        queue.submit(log("first", LogLevel.INFO));
+        while (queue.getDepth() > 0) {
+            Thread.sleep(1);
+        }
+        queue.submit(log("queued 1", LogLevel.INFO));
+        queue.submit(log("queued 2", LogLevel.INFO));
+    }
+
+    private Consumer<JournalEvent> record() {
+        return event -> delivered.add(event.getType() == JournalEvent.Type.LOG ? event.getEntity(Log.class).getMessage() : "finish");
+    }
+
+    private Consumer<JournalEvent> blockedUntilReleased() {
+        Consumer<JournalEvent> record = record();
+        return event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            record.accept(event);
+        };
+    }
+
+    private static JournalEvent log(String message, LogLevel level) {
+        return JournalEvent.log(UUID.randomUUID(), new Log(UUID.randomUUID(), UUID.randomUUID(), null, message, level, ZonedDateTime.now(), LogFormat.PLAIN_TEXT));
+    }
+
+    private static JournalEvent finish() {
+        return JournalEvent.finishTest(UUID.randomUUID(), new FinishTest(UUID.randomUUID(), TestStatus.PASSED, ZonedDateTime.now()));
+    }
+}
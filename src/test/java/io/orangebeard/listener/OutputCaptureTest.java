@@ -0,0 +1,120 @@
+package io.orangebeard.listener;
+
+import org.junit.jupiter.api.Test;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OutputCaptureTest {
+
+    @Test
+    void the_output_of_a_failing_test_is_captured() {
+        OutputCapture capture = new OutputCapture(1024, 0);
+
+        capture.testStarted("test");
+        System.out.println("to stdout");
+        System.err.println("to stderr");
+        List<String> output = capture.testFinished("test", false);
+
+        assertThat(String.join("", output)).contains("to stdout").contains("to stderr");
+        System.out.println("after the test");
+        assertThat(capture.testFinished("test", false)).isEmpty();
+    }
+
+    @Test
+    void the_output_of_a_passing_test_is_only_kept_for_the_sample() {
+        OutputCapture discarding = new OutputCapture(1024, 0);
+        OutputCapture keeping = new OutputCapture(1024, 1);
+
+        discarding.testStarted("discarded");
+        System.out.println("passing");
+        keeping.testStarted("kept");
+        System.out.println("passing");
+
+        assertThat(discarding.testFinished("discarded", true)).isEmpty();
+        assertThat(keeping.testFinished("kept", true)).containsExactly(String.format("passing%n"));
+    }
+
+    @Test
+    void tests_running_in_parallel_get_their_own_output() throws InterruptedException {
+        OutputCapture capture = new OutputCapture(64 * 1024, 0);
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        AtomicReference<String> first = new AtomicReference<>();
+        AtomicReference<String> second = new AtomicReference<>();
+
+        Thread firstTest = new Thread(() -> first.set(runTest(capture, "first", bothStarted)));
+        Thread secondTest = new Thread(() -> second.set(runTest(capture, "second", bothStarted)));
+        firstTest.start();
+        secondTest.start();
+        firstTest.join();
+        secondTest.join();
+
+        assertThat(first.get()).contains("first 99").doesNotContain("second");
+        assertThat(second.get()).contains("second 99").doesNotContain("first");
+    }
+
+    @Test
+    void a_full_buffer_keeps_the_latest_output() {
+        OutputCapture capture = new OutputCapture(16, 0);
+
+        capture.testStarted("test");
+        System.out.print("0123456789");
+        System.out.print("abcdefghij");
+        String output = String.join("", capture.testFinished("test", false));
+
+        assertThat(output).startsWith("[4 earlier bytes of output were dropped]").endsWith("456789abcdefghij");
+    }
+
+    @Test
+    void the_buffer_grows_with_the_output_up_to_its_capacity() {
+        OutputCapture.RingBuffer buffer = new OutputCapture.RingBuffer(1024);
+        assertThat(buffer.allocatedBytes()).isZero();
+
+        write(buffer, "a".repeat(10));
+        assertThat(buffer.allocatedBytes()).isEqualTo(256);
+        write(buffer, "b".repeat(300));
+        assertThat(buffer.allocatedBytes()).isEqualTo(512);
+        write(buffer, "c".repeat(1000));
+        assertThat(buffer.allocatedBytes()).isEqualTo(1024);
+
+        assertThat(buffer.close()).startsWith("[286 earlier bytes of output were dropped]")
+                .endsWith("b".repeat(24) + "c".repeat(1000));
+    }
+
+    @Test
+    void large_output_is_split_into_logs_at_line_ends() {
+        OutputCapture capture = new OutputCapture(64 * 1024, 0);
+        String line = "x".repeat(99) + "\n";
+
+        capture.testStarted("test");
+        for (int i = 0; i < 400; i++) {
+            System.out.print(line);
+        }
+        List<String> output = capture.testFinished("test", false);
+
+        assertThat(output).hasSize(3).allSatisfy(part -> assertThat(part).hasSizeLessThanOrEqualTo(16 * 1024).endsWith("\n"));
+        assertThat(String.join("", output)).isEqualTo(line.repeat(400));
+    }
+
+    private static void write(OutputCapture.RingBuffer buffer, String output) {
+        byte[] bytes = output.getBytes(StandardCharsets.UTF_8);
+        buffer.write(bytes, 0, bytes.length);
+    }
+
+    private static String runTest(OutputCapture capture, String name, CountDownLatch bothStarted) {
+        capture.testStarted(name);
+        bothStarted.countDown();
+        try {
+            bothStarted.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (int i = 0; i < 100; i++) {
+            System.out.println(name + " " + i);
+        }
+        return String.join("", capture.testFinished(name, false));
+    }
+}
@@ -0,0 +1,62 @@
+package io.orangebeard.listener;
+
+import org.junit.jupiter.api.Test;
+import java.time.ZonedDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PassedTestSummaryTest {
+    private static final ZonedDateTime START = ZonedDateTime.parse("2024-03-01T12:00:00Z");
+
+    @Test
+    void the_passing_tests_of_a_class_and_its_nested_classes_are_taken_together() {
+        PassedTestSummary summary = new PassedTestSummary();
+        summary.add("[class:A]", passedTest("first", 0, List.of()));
+        summary.add("[class:A]", passedTest("second", 1, List.of()));
+        summary.add("[class:A]/[nested-class:B]", passedTest("nested", 2, List.of()));
+        summary.add("[class:AB]", passedTest("other", 3, List.of()));
+
+        List<PassedTestSummary.Suite> suites = summary.takeClass("[class:A]");
+        suites.sort(Comparator.comparing(PassedTestSummary.Suite::getNodeKey));
+
+        assertThat(suites).extracting(PassedTestSummary.Suite::getNodeKey).containsExactly("[class:A]", "[class:A]/[nested-class:B]");
+        PassedTestSummary.Suite suite = suites.get(0);
+        assertThat(suite.getName()).isEqualTo("Passed tests (2)");
+        assertThat(suite.getStartTime()).isEqualTo(START);
+        assertThat(suite.getFinishTime()).isEqualTo(START.plusSeconds(1).plusNanos(1_500_000));
+        assertThat(summary.takeClass("[class:A]")).isEmpty();
+        assertThat(summary.takeClass("[class:AB]")).hasSize(1);
+    }
+
+    @Test
+    void every_test_gets_a_log_line_with_its_duration_and_remarks() {
+        PassedTestSummary summary = new PassedTestSummary();
+        summary.add("[class:A]", passedTest("fast", 0, List.of()));
+        summary.add("[class:A]", passedTest("slow", 1, List.of("perf-regression: the test took 12.000 ms")));
+
+        List<String> logs = summary.takeClass("[class:A]").get(0).toLogs();
+
+        assertThat(logs).containsExactly("fast (a.Test.fast) 1.500 ms\n"
+                + "slow (a.Test.slow) 1.500 ms - perf-regression: the test took 12.000 ms\n");
+    }
+
+    @Test
+    void many_tests_are_split_over_several_logs() {
+        PassedTestSummary summary = new PassedTestSummary();
+        for (int i = 0; i < 1000; i++) {
+            summary.add("[class:A]", passedTest("test" + i, 0, List.of()));
+        }
+
+        List<String> logs = summary.takeClass("[class:A]").get(0).toLogs();
+
+        assertThat(logs).hasSizeGreaterThan(1).allSatisfy(log -> assertThat(log).hasSizeLessThanOrEqualTo(16 * 1024));
+        assertThat(String.join("", logs).split("\n")).hasSize(1000);
+    }
+
+    private static PassedTestSummary.PassedTest passedTest(String name, int second, List<String> remarks) {
+        ZonedDateTime startTime = START.plusSeconds(second);
+        return new PassedTestSummary.PassedTest(name, "a.Test." + name, startTime, startTime.plusNanos(1_500_000), 1_500_000, remarks);
+    }
+}
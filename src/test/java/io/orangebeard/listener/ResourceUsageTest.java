@@ -0,0 +1,45 @@
+package io.orangebeard.listener;
+
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResourceUsageTest {
+
+    @Test
+    void the_allocations_and_cpu_time_of_a_test_are_reported_as_key_value_pairs() {
+        ResourceUsage resourceUsage = new ResourceUsage();
+
+        resourceUsage.testStarted("test");
+        byte[][] garbage = new byte[64][];
+        for (int i = 0; i < garbage.length; i++) {
+            garbage[i] = new byte[64 * 1024];
+        }
+        String report = resourceUsage.testFinished("test");
+
+        assertThat(garbage[63]).hasSize(64 * 1024);
+        assertThat(report).startsWith("Resource usage:").contains(" cpuMs=").contains(" gcPauseMs=").contains(" gcCount=")
+                .doesNotContain("partial");
+        double allocatedMB = Double.parseDouble(report.replaceAll(".*allocatedMB=([0-9.]+).*", "$1"));
+        assertThat(allocatedMB).isGreaterThanOrEqualTo(4.0);
+    }
+
+    @Test
+    void a_test_that_finishes_on_another_thread_is_reported_as_partial() throws InterruptedException {
+        ResourceUsage resourceUsage = new ResourceUsage();
+        AtomicReference<String> report = new AtomicReference<>();
+
+        resourceUsage.testStarted("test");
+        Thread finisher = new Thread(() -> report.set(resourceUsage.testFinished("test")));
+        finisher.start();
+        finisher.join();
+
+        assertThat(report.get()).contains(" cpuMs=").endsWith(" partial=true");
+    }
+
+    @Test
+    void a_test_that_was_not_started_has_no_report() {
+        assertThat(new ResourceUsage().testFinished("unknown")).isNull();
+    }
+}
@@ -0,0 +1,53 @@
+package io.orangebeard.listener;
+
+import org.junit.jupiter.api.Test;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RunClockTest {
+
+    private static final Instant ANCHOR = Instant.parse("2024-03-01T12:00:00Z");
+    private static final ZoneId ZONE = ZoneId.of("Europe/Amsterdam");
+
+    @Test
+    void timestamps_are_derived_from_the_anchor_with_nanosecond_resolution() {
+        AtomicLong nanoTime = new AtomicLong(5_000_000_000L);
+        RunClock clock = new RunClock(nanoTime::get, ANCHOR, ZONE);
+
+        nanoTime.addAndGet(1_234_567);
+        ZonedDateTime now = clock.now();
+
+        assertThat(now.toInstant()).isEqualTo(ANCHOR.plusNanos(1_234_567));
+        assertThat(now.getZone()).isEqualTo(ZONE);
+    }
+
+    @Test
+    void the_duration_of_a_test_is_measured_in_nanoseconds() {
+        AtomicLong nanoTime = new AtomicLong(-42);
+        RunClock clock = new RunClock(nanoTime::get, ANCHOR, ZONE);
+
+        ZonedDateTime start = clock.testStarted("test");
+        nanoTime.addAndGet(250_000);
+        long finish = clock.nanoTime();
+
+        assertThat(clock.testFinished("test", finish)).isEqualTo(250_000);
+        assertThat(clock.toDateTime(finish).toInstant()).isEqualTo(start.toInstant().plusNanos(250_000));
+        assertThat(clock.testFinished("test", finish)).isEqualTo(-1);
+    }
+
+    @Test
+    void timestamps_never_go_back() {
+        RunClock clock = new RunClock();
+
+        ZonedDateTime previous = clock.now();
+        for (int i = 0; i < 10_000; i++) {
+            ZonedDateTime now = clock.now();
+            assertThat(now).isAfterOrEqualTo(previous);
+            previous = now;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package io.orangebeard.listener;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RunCoordinatorTest {
+
+    private final Set<Long> liveProcesses = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger startedRuns = new AtomicInteger();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void the_first_jvm_starts_the_run_and_the_others_join_it() {
+        RunCoordinator first = jvm(1);
+        RunCoordinator second = jvm(2);
+
+        UUID run = first.join(this::startRun);
+
+        assertThat(second.join(this::startRun)).isEqualTo(run);
+        assertThat(startedRuns).hasValue(1);
+    }
+
+    @Test
+    void only_the_last_jvm_to_leave_finishes_the_run() {
+        RunCoordinator first = jvm(1);
+        RunCoordinator second = jvm(2);
+        first.join(this::startRun);
+        second.join(this::startRun);
+
+        assertThat(first.leave()).isFalse();
+        assertThat(second.leave()).isTrue();
+        assertThat(directory.resolve("run")).doesNotExist();
+    }
+
+    @Test
+    void a_run_of_which_no_jvm_is_alive_is_not_joined() throws Exception {
+        RunCoordinator crashed = jvm(1);
+        UUID abandoned = crashed.join(this::startRun);
+        liveProcesses.remove(1L);
+        Files.setLastModifiedTime(directory.resolve("run"), FileTime.fromMillis(0));
+
+        UUID run = jvm(2).join(this::startRun);
+
+        assertThat(run).isNotEqualTo(abandoned);
+        assertThat(startedRuns).hasValue(2);
+    }
+
+    @Test
+    void an_explicit_run_is_joined_and_never_finished() {
+        UUID run = UUID.randomUUID();
+        RunCoordinator coordinator = new RunCoordinator(run, null, 0);
+
+        assertThat(coordinator.join(this::startRun)).isEqualTo(run);
+        assertThat(coordinator.leave()).isFalse();
+        assertThat(startedRuns).hasValue(0);
+    }
+
+    private RunCoordinator jvm(long pid) {
+        liveProcesses.add(pid);
+        return new RunCoordinator(null, directory, 0, pid, liveProcesses::contains);
+    }
+
+    private UUID startRun() {
+        startedRuns.incrementAndGet();
+        return UUID.randomUUID();
+    }
+}
@@ -0,0 +1,68 @@
+package io.orangebeard.listener;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StackTraceCacheTest {
+    private static final FailureRenderer RENDERER = new FailureRenderer(64 * 1024, 10, FailureRenderer.DEFAULT_FOLDED_PACKAGES);
+
+    @Test
+    void the_first_occurrence_of_a_stack_trace_is_rendered_in_full_and_repeats_refer_to_it() {
+        StackTraceCache cache = new StackTraceCache(10, RENDERER);
+
+        String[] rendered = new String[2];
+        for (int i = 0; i < rendered.length; i++) {
+            // Same call site, so both failures have identical frames; only the message differs.
+            rendered[i] = cache.render(failure("invocation " + i), "test[" + i + "]");
+        }
+        String first = rendered[0];
+        String second = rendered[1];
+
+        assertThat(first).contains("IllegalStateException: invocation 0").contains("\tat ");
+        assertThat(second).isEqualTo("java.lang.IllegalStateException: same stack trace as reported for test [test[0]]");
+    }
+
+    @Test
+    void stack_traces_with_different_frames_are_rendered_in_full() {
+        StackTraceCache cache = new StackTraceCache(10, RENDERER);
+
+        cache.render(failure("first"), "test[1]");
+        String other = cache.render(otherFailure(), "test[2]");
+
+        assertThat(other).contains("\tat ");
+    }
+
+    @Test
+    void the_least_recently_used_stack_trace_is_evicted_when_the_cache_is_full() {
+        StackTraceCache cache = new StackTraceCache(1, RENDERER);
+
+        String[] rendered = new String[2];
+        for (int i = 0; i < rendered.length; i++) {
+            rendered[i] = cache.render(failure("invocation " + i), "test[" + i + "]");
+            cache.render(otherFailure(), "other");
+        }
+
+        assertThat(rendered[1]).contains("\tat ");
+    }
+
+    @Test
+    void a_disabled_cache_always_renders_in_full() {
+        StackTraceCache cache = new StackTraceCache(0, RENDERER);
+
+        String[] rendered = new String[2];
+        for (int i = 0; i < rendered.length; i++) {
+            rendered[i] = cache.render(failure("invocation " + i), "test[" + i + "]");
+        }
+
+        assertThat(rendered[1]).contains("\tat ");
+    }
+
+    private static Throwable failure(String message) {
+        return new IllegalStateException(message, new IllegalArgumentException("cause"));
+    }
+
+    private static Throwable otherFailure() {
+        return new IllegalStateException("other");
+    }
+}
@@ -0,0 +1,78 @@
+package io.orangebeard.listener;
+
+import io.orangebeard.client.entity.Attribute;
+import io.orangebeard.client.entity.StartV3TestRun;
+import io.orangebeard.client.entity.test.FinishTest;
+import io.orangebeard.client.entity.test.TestStatus;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SynchronousV3ClientTest {
+
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final UUID issuedUUID = UUID.randomUUID();
+    private volatile int status = 200;
+    private HttpServer server;
+    private SynchronousV3Client client;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            try (exchange) {
+                requests.add(exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath() + " "
+                        + exchange.getRequestHeaders().getFirst("Authorization") + " "
+                        + new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+                byte[] body = ("\"" + issuedUUID + "\"").getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(status, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+        server.start();
+        UUID accessToken = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        client = new SynchronousV3Client("http://localhost:" + server.getAddress().getPort(), accessToken, "project", "set");
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void a_start_returns_the_uuid_the_server_issued() {
+        UUID testRunUUID = client.startTestRun(new StartV3TestRun("set", "a \"quoted\"\ndescription", Set.of(new Attribute("key", "value"))));
+
+        assertThat(testRunUUID).isEqualTo(issuedUUID);
+        assertThat(requests).containsExactly("POST /listener/v3/project/test-run/start Bearer 00000000-0000-0000-0000-000000000001 "
+                + "{\"testSetName\":\"set\",\"description\":\"a \\\"quoted\\\"\\ndescription\",\"attributes\":[{\"key\":\"key\",\"value\":\"value\"}]}");
+    }
+
+    @Test
+    void an_error_of_the_server_is_thrown() {
+        status = 500;
+        UUID testUUID = UUID.randomUUID();
+
+        assertThatThrownBy(() -> client.finishTest(testUUID, new FinishTest(issuedUUID, TestStatus.PASSED, ZonedDateTime.now())))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("status 500");
+        assertThat(requests).singleElement().asString().startsWith("PUT /listener/v3/project/test/finish/" + testUUID);
+    }
+}
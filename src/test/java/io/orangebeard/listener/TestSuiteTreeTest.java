@@ -3,9 +3,15 @@ package io.orangebeard.listener;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -171,4 +177,72 @@ public class TestSuiteTreeTest {
 
         assertTrue(hasChildren);
     }
+
+    @Test
+    public void when_a_node_outside_the_subtree_is_asked_by_node_key_then_an_empty_optional_is_returned() {
+        TestSuiteTree root = new TestSuiteTree("", "rootID", UUID.randomUUID());
+        Optional<TestSuiteTree> child1 = root.addChild("child1", "child1ID", UUID.randomUUID());
+        Optional<TestSuiteTree> child2 = root.addChild("child2", "child2ID", UUID.randomUUID());
+        assertThat(child1).isPresent();
+        assertThat(child2).isPresent();
+        child2.get().addChild("grandchild", "grandchildID", UUID.randomUUID());
+
+        assertThat(child1.get().findSubtree("grandchildID")).isEmpty();
+        assertThat(child2.get().findSubtree("grandchildID")).isPresent();
+        assertThat(root.findSubtree("grandchildID")).isPresent();
+    }
+
+    @Test
+    public void when_a_subtree_is_detached_then_its_nodes_can_no_longer_be_found_from_the_former_parent() {
+        TestSuiteTree root = new TestSuiteTree("", "rootID", UUID.randomUUID());
+        Optional<TestSuiteTree> child = root.addChild("child", "childID", UUID.randomUUID());
+        assertThat(child).isPresent();
+        Optional<TestSuiteTree> grandchild = child.get().addChild("grandchild", "grandchildID", UUID.randomUUID());
+
+        assertTrue(child.get().detach());
+
+        assertThat(root.findSubtree("childID")).isEmpty();
+        assertThat(root.findSubtree("grandchildID")).isEmpty();
+        assertThat(root.getChildByName("child")).isEmpty();
+        assertThat(child.get().findSubtree("grandchildID")).isEqualTo(grandchild);
+    }
+
+    @Test
+    public void when_children_are_added_concurrently_then_every_name_is_added_exactly_once() throws Exception {
+        TestSuiteTree root = new TestSuiteTree("", "rootID", UUID.randomUUID());
+        int threads = 16;
+        int names = 500;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int added = 0;
+                    for (int i = 0; i < names; i++) {
+                        UUID uuid = UUID.randomUUID();
+                        if (root.addChild("child" + i, uuid.toString(), uuid).isPresent()) {
+                            added++;
+                        }
+                    }
+                    return added;
+                }));
+            }
+            start.countDown();
+            int totalAdded = 0;
+            for (Future<Integer> future : futures) {
+                totalAdded += future.get(30, TimeUnit.SECONDS);
+            }
+            assertThat(totalAdded).isEqualTo(names);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int i = 0; i < names; i++) {
+            Optional<TestSuiteTree> child = root.getChildByName("child" + i);
+            assertThat(child).isPresent();
+            assertThat(root.findSubtree(child.get().getNodeKey())).isEqualTo(child);
+        }
+    }
 }
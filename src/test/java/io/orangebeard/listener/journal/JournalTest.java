@@ -0,0 +1,144 @@
+package io.orangebeard.listener.journal;
+
+import io.orangebeard.client.entity.Attribute;
+import io.orangebeard.client.entity.FinishV3TestRun;
+import io.orangebeard.client.entity.LogFormat;
+import io.orangebeard.client.entity.StartV3TestRun;
+import io.orangebeard.client.entity.attachment.Attachment;
+import io.orangebeard.client.entity.attachment.AttachmentFile;
+import io.orangebeard.client.entity.attachment.AttachmentMetaData;
+import io.orangebeard.client.entity.log.Log;
+import io.orangebeard.client.entity.log.LogLevel;
+import io.orangebeard.client.entity.suite.StartSuite;
+import io.orangebeard.client.entity.test.FinishTest;
+import io.orangebeard.client.entity.test.StartTest;
+import io.orangebeard.client.entity.test.TestStatus;
+import io.orangebeard.client.entity.test.TestType;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void all_event_types_are_read_back_as_they_were_written() throws IOException {
+        UUID runUUID = UUID.randomUUID();
+        UUID suiteUUID = UUID.randomUUID();
+        UUID testUUID = UUID.randomUUID();
+        ZonedDateTime now = ZonedDateTime.now();
+
+        try (JournalWriter writer = new JournalWriter(directory, 1024 * 1024)) {
+            writer.append(JournalEvent.startRun(runUUID, new StartV3TestRun("set", null, Set.of(new Attribute("key", "value")))));
+            writer.append(JournalEvent.startSuite(List.of(suiteUUID), new StartSuite(runUUID, null, null, null, List.of("io"))));
+            writer.append(JournalEvent.startTest(testUUID, new StartTest(runUUID, suiteUUID, "test()", TestType.TEST, "io.Test.test", null, now)));
+            writer.append(JournalEvent.log(UUID.randomUUID(), new Log(runUUID, testUUID, null, "héllo", LogLevel.ERROR, now, LogFormat.PLAIN_TEXT)));
+            writer.append(JournalEvent.attachment(UUID.randomUUID(), new Attachment(new AttachmentFile("a.txt", new byte[]{1, 2, 3}, "text/plain"),
+                    new AttachmentMetaData(runUUID, testUUID, null, UUID.randomUUID(), now))));
+            writer.append(JournalEvent.finishTest(testUUID, new FinishTest(runUUID, TestStatus.FAILED, now)));
+            writer.append(JournalEvent.finishRun(runUUID, new FinishV3TestRun()));
+        }
+
+        List<JournalEvent> events = readAll(JournalPosition.START);
+
+        assertThat(events).extracting(JournalEvent::getType).containsExactly(JournalEvent.Type.values());
+        assertThat(events.get(0).getEntity(StartV3TestRun.class).getAttributes()).extracting(Attribute::getKey).containsExactly("key");
+        assertThat(events.get(1).getIds()).containsExactly(suiteUUID);
+        StartTest startTest = events.get(2).getEntity(StartTest.class);
+        assertThat(startTest.getSuiteUUID()).isEqualTo(suiteUUID);
+        assertThat(startTest.getStartTime()).isEqualTo(now);
+        assertThat(events.get(3).getEntity(Log.class).getMessage()).isEqualTo("héllo");
+        assertThat(events.get(4).getEntity(Attachment.class).getFile().getContent()).containsExactly(1, 2, 3);
+        assertThat(events.get(5).getEntity(FinishTest.class).getStatus()).isEqualTo(TestStatus.FAILED);
+        assertThat(events.get(6).getId()).isEqualTo(runUUID);
+    }
+
+    @Test
+    void events_that_do_not_fit_a_segment_continue_in_the_next_segment() throws IOException {
+        try (JournalWriter writer = new JournalWriter(directory, 256)) {
+            for (int i = 0; i < 20; i++) {
+                writer.append(log("log " + i));
+            }
+            writer.append(log("x".repeat(10_000)));
+        }
+
+        List<JournalEvent> events = readAll(JournalPosition.START);
+
+        assertThat(JournalSegments.list(directory).size()).isGreaterThan(2);
+        assertThat(events).hasSize(21);
+        assertThat(events.get(19).getEntity(Log.class).getMessage()).isEqualTo("log 19");
+        assertThat(events.get(20).getEntity(Log.class).getMessage()).hasSize(10_000);
+    }
+
+    @Test
+    void a_torn_record_ends_the_segment_and_the_records_before_it_are_kept() throws IOException {
+        JournalPosition second;
+        try (JournalWriter writer = new JournalWriter(directory, 1024 * 1024)) {
+            writer.append(log("first"));
+            second = writer.append(log("second"));
+            writer.append(log("third"));
+        }
+        // Simulate a crash halfway through writing the second record: damage its payload.
+        try (FileChannel channel = FileChannel.open(JournalSegments.segmentPath(directory, second.getSegment()), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF, (byte) 0xFF}), second.getOffset() + 20);
+        }
+
+        List<JournalEvent> events = readAll(JournalPosition.START);
+
+        assertThat(events).extracting(event -> event.getEntity(Log.class).getMessage()).containsExactly("first");
+    }
+
+    @Test
+    void reading_can_resume_after_the_last_record_that_was_read() throws IOException {
+        List<JournalPosition> next = new ArrayList<>();
+        try (JournalWriter writer = new JournalWriter(directory, 1024 * 1024)) {
+            writer.append(log("first"));
+            writer.append(log("second"));
+        }
+        new JournalReader(directory).read(JournalPosition.START, (position, after, event) -> next.add(after));
+
+        List<JournalEvent> resumed = readAll(next.get(0));
+
+        assertThat(resumed).extracting(event -> event.getEntity(Log.class).getMessage()).containsExactly("second");
+        assertThat(JournalPosition.parse(next.get(0).toString())).isEqualTo(next.get(0));
+    }
+
+    @Test
+    void a_new_writer_appends_new_segments_after_the_existing_ones() throws IOException {
+        try (JournalWriter writer = new JournalWriter(directory, 1024 * 1024)) {
+            writer.append(log("first run"));
+        }
+        try (JournalWriter writer = new JournalWriter(directory, 1024 * 1024)) {
+            writer.append(log("second run"));
+        }
+
+        List<JournalEvent> events = readAll(JournalPosition.START);
+
+        assertThat(JournalSegments.list(directory)).containsExactly(1, 2);
+        assertThat(events).extracting(event -> event.getEntity(Log.class).getMessage()).containsExactly("first run", "second run");
+    }
+
+    private List<JournalEvent> readAll(JournalPosition from) throws IOException {
+        List<JournalEvent> events = new ArrayList<>();
+        new JournalReader(directory).read(from, (position, next, event) -> events.add(event));
+        return events;
+    }
+
+    private static JournalEvent log(String message) {
+        return JournalEvent.log(UUID.randomUUID(), new Log(UUID.randomUUID(), UUID.randomUUID(), null, message, LogLevel.INFO, ZonedDateTime.now(), LogFormat.PLAIN_TEXT));
+    }
+}
@@ -0,0 +1,226 @@
+package io.orangebeard.listener.journal;
+
+import io.orangebeard.client.entity.FinishV3TestRun;
+import io.orangebeard.client.entity.LogFormat;
+import io.orangebeard.client.entity.StartV3TestRun;
+import io.orangebeard.client.entity.attachment.Attachment;
+import io.orangebeard.client.entity.attachment.AttachmentFile;
+import io.orangebeard.client.entity.attachment.AttachmentMetaData;
+import io.orangebeard.client.entity.log.Log;
+import io.orangebeard.client.entity.log.LogLevel;
+import io.orangebeard.client.entity.suite.StartSuite;
+import io.orangebeard.client.entity.test.FinishTest;
+import io.orangebeard.client.entity.test.StartTest;
+import io.orangebeard.client.entity.test.TestStatus;
+import io.orangebeard.client.entity.test.TestType;
+import io.orangebeard.client.v3.OrangebeardAsyncV3Client;
+import io.orangebeard.listener.SynchronousV3Client;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JournalUploaderTest {
+
+    private static final UUID REMOTE_RUN = UUID.randomUUID();
+    private static final UUID REMOTE_SUITE = UUID.randomUUID();
+
+    @TempDir
+    Path directory;
+
+    private final UUID localRun = UUID.randomUUID();
+    private final UUID localSuite = UUID.randomUUID();
+    private final ZonedDateTime now = ZonedDateTime.now();
+
+    @BeforeEach
+    void recordJournal() throws IOException {
+        try (JournalWriter writer = new JournalWriter(directory, 1024 * 1024)) {
+            writer.append(JournalEvent.startRun(localRun, new StartV3TestRun("set", null, null)));
+            writer.append(JournalEvent.startSuite(List.of(localSuite), new StartSuite(localRun, null, null, null, List.of("Suite"))));
+            recordTest(writer, "first()", false);
+            recordTest(writer, "second()", true);
+            writer.append(JournalEvent.finishRun(localRun, new FinishV3TestRun()));
+        }
+    }
+
+    @Test
+    void tests_are_uploaded_with_the_uuids_orangebeard_handed_out() throws Exception {
+        OrangebeardAsyncV3Client client = mockClient();
+        UUID remoteFirst = UUID.randomUUID();
+        UUID remoteSecond = UUID.randomUUID();
+        UUID remoteLog = UUID.randomUUID();
+        when(client.startTest(argThat(startTest -> startTest != null && startTest.getTestName().equals("first()")))).thenReturn(remoteFirst);
+        when(client.startTest(argThat(startTest -> startTest != null && startTest.getTestName().equals("second()")))).thenReturn(remoteSecond);
+        when(client.log(any())).thenReturn(remoteLog);
+
+        boolean success = new JournalUploader(client, directory, 0, 2).upload(true);
+
+        assertThat(success).isTrue();
+        verify(client).startTest(argThat(startTest -> startTest != null && startTest.getTestRunUUID().equals(REMOTE_RUN)
+                && startTest.getSuiteUUID().equals(REMOTE_SUITE) && startTest.getTestName().equals("first()")));
+        // Without attachments the logs of a test are sent as one batch.
+        verify(client).sendLogBatch(argThat(logs -> logs != null && logs.size() == 1 && logs.get(0).getTestUUID().equals(remoteFirst)));
+        // An attachment refers to its log, so that log is sent on its own.
+        verify(client).log(argThat(log -> log != null && log.getTestUUID().equals(remoteSecond)));
+        verify(client).sendAttachment(argThat(attachment -> attachment != null
+                && attachment.getMetaData().getTestUUID().equals(remoteSecond) && attachment.getMetaData().getLogUUID().equals(remoteLog)));
+
+        InOrder inOrder = inOrder(client);
+        inOrder.verify(client).finishTest(eq(remoteFirst), argThat(finishTest -> finishTest != null && finishTest.getTestRunUUID().equals(REMOTE_RUN)));
+        inOrder.verify(client).finishTestRun(eq(REMOTE_RUN), any());
+        verify(client).finishTest(eq(remoteSecond), any());
+    }
+
+    @Test
+    void an_interrupted_upload_resumes_after_the_tests_that_were_uploaded() throws Exception {
+        OrangebeardAsyncV3Client failing = mockClient();
+        when(failing.startTest(argThat(startTest -> startTest != null && startTest.getTestName().equals("second()"))))
+                .thenThrow(new IllegalStateException("connection reset"));
+
+        assertThat(new JournalUploader(failing, directory, 0, 1).upload(true)).isFalse();
+        verify(failing).startTest(argThat(startTest -> startTest != null && startTest.getTestName().equals("first()")));
+        verify(failing, never()).finishTestRun(any(), any());
+
+        OrangebeardAsyncV3Client resumed = mockClient();
+        assertThat(new JournalUploader(resumed, directory, 0, 1).upload(true)).isTrue();
+
+        verify(resumed, never()).startTestRun(any());
+        verify(resumed, never()).startSuite(any());
+        verify(resumed, never()).startTest(argThat(startTest -> startTest != null && startTest.getTestName().equals("first()")));
+        verify(resumed).startTest(argThat(startTest -> startTest != null && startTest.getTestName().equals("second()")
+                && startTest.getSuiteUUID().equals(REMOTE_SUITE)));
+        verify(resumed).finishTestRun(eq(REMOTE_RUN), any());
+    }
+
+    @Test
+    void a_suite_started_while_a_test_was_in_flight_is_not_started_again_on_resume() throws Exception {
+        Path journal = directory.resolve("interleaved");
+        UUID localOtherSuite = UUID.randomUUID();
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        try (JournalWriter writer = new JournalWriter(journal, 1024 * 1024)) {
+            writer.append(JournalEvent.startRun(localRun, new StartV3TestRun("set", null, null)));
+            writer.append(JournalEvent.startSuite(List.of(localSuite), new StartSuite(localRun, null, null, null, List.of("Suite"))));
+            writer.append(JournalEvent.startTest(first, new StartTest(localRun, localSuite, "first()", TestType.TEST, null, null, now)));
+            writer.append(JournalEvent.startSuite(List.of(localOtherSuite), new StartSuite(localRun, null, null, null, List.of("Other"))));
+            writer.append(JournalEvent.startTest(second, new StartTest(localRun, localOtherSuite, "second()", TestType.TEST, null, null, now)));
+            writer.append(JournalEvent.finishTest(second, new FinishTest(localRun, TestStatus.PASSED, now)));
+            writer.append(JournalEvent.finishTest(first, new FinishTest(localRun, TestStatus.PASSED, now)));
+            writer.append(JournalEvent.finishRun(localRun, new FinishV3TestRun()));
+        }
+        OrangebeardAsyncV3Client failing = mockClient();
+        when(failing.startTest(argThat(startTest -> startTest != null && startTest.getTestName().equals("first()"))))
+                .thenThrow(new IllegalStateException("connection reset"));
+
+        // The checkpoint stays at the start of first(), before the start of the other suite.
+        assertThat(new JournalUploader(failing, journal, 0, 1).upload(true)).isFalse();
+        verify(failing).startSuite(argThat(startSuite -> startSuite != null && startSuite.getSuiteNames().equals(List.of("Other"))));
+
+        OrangebeardAsyncV3Client resumed = mockClient();
+        assertThat(new JournalUploader(resumed, journal, 0, 1).upload(true)).isTrue();
+
+        verify(resumed, never()).startTestRun(any());
+        verify(resumed, never()).startSuite(any());
+        verify(resumed, never()).startTest(argThat(startTest -> startTest != null && startTest.getTestName().equals("second()")));
+        verify(resumed).startTest(argThat(startTest -> startTest != null && startTest.getTestName().equals("first()")
+                && startTest.getSuiteUUID().equals(REMOTE_SUITE)));
+        verify(resumed).finishTestRun(eq(REMOTE_RUN), any());
+    }
+
+    @Test
+    void a_failed_request_holds_back_the_checkpoint_and_the_server_issued_uuids_are_resumed() throws Exception {
+        AtomicBoolean failSecond = new AtomicBoolean(true);
+        UUID remoteRun = UUID.randomUUID();
+        List<String> requests = new CopyOnWriteArrayList<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            try (exchange) {
+                String path = exchange.getRequestURI().getPath();
+                String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                requests.add(exchange.getRequestMethod() + " " + path.substring(path.indexOf("/set/") + 5) + " " + body);
+                boolean fail = path.endsWith("test/start") && body.contains("second()") && failSecond.get();
+                String answer = path.endsWith("test-run/start") ? "\"" + remoteRun + "\""
+                        : path.endsWith("suite/start") ? "[\"" + REMOTE_SUITE + "\"]"
+                        : "\"" + UUID.randomUUID() + "\"";
+                byte[] bytes = answer.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(fail ? 500 : 200, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            }
+        });
+        server.start();
+        try {
+            SynchronousV3Client client = new SynchronousV3Client("http://localhost:" + server.getAddress().getPort(), UUID.randomUUID(), "set", "set");
+
+            assertThat(new JournalUploader(client, directory, 0, 1).upload(true)).isFalse();
+            assertThat(requests).noneMatch(request -> request.startsWith("PUT test-run/finish"));
+
+            failSecond.set(false);
+            requests.clear();
+            assertThat(new JournalUploader(client, directory, 0, 1).upload(true)).isTrue();
+
+            assertThat(requests).noneMatch(request -> request.startsWith("POST test-run/start") || request.startsWith("POST suite/start")
+                    || request.contains("first()"));
+            assertThat(requests).anyMatch(request -> request.startsWith("POST test/start") && request.contains("second()")
+                    && request.contains(remoteRun.toString()) && request.contains(REMOTE_SUITE.toString()));
+            assertThat(requests).contains("PUT test-run/finish/" + remoteRun + " {}");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void the_rate_limit_spaces_out_requests() throws Exception {
+        long start = System.nanoTime();
+
+        new JournalUploader(mockClient(), directory, 50, 4).upload(true);
+
+        // 10 requests at 50 per second are spread over at least 180ms.
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(180_000_000L);
+    }
+
+    private static OrangebeardAsyncV3Client mockClient() {
+        OrangebeardAsyncV3Client client = mock(OrangebeardAsyncV3Client.class);
+        when(client.startTestRun(any())).thenReturn(REMOTE_RUN);
+        when(client.startSuite(any())).thenReturn(List.of(REMOTE_SUITE));
+        when(client.startTest(any())).thenAnswer(invocation -> UUID.randomUUID());
+        when(client.log(any())).thenAnswer(invocation -> UUID.randomUUID());
+        return client;
+    }
+
+    private void recordTest(JournalWriter writer, String name, boolean withAttachment) throws IOException {
+        UUID test = UUID.randomUUID();
+        UUID log = UUID.randomUUID();
+        writer.append(JournalEvent.startTest(test, new StartTest(localRun, localSuite, name, TestType.TEST, null, null, now)));
+        writer.append(JournalEvent.log(log, new Log(localRun, test, null, "message", LogLevel.INFO, now, LogFormat.PLAIN_TEXT)));
+        if (withAttachment) {
+            writer.append(JournalEvent.attachment(UUID.randomUUID(), new Attachment(new AttachmentFile("a.txt", new byte[]{1}, "text/plain"),
+                    new AttachmentMetaData(localRun, test, null, log, now))));
+        }
+        writer.append(JournalEvent.finishTest(test, new FinishTest(localRun, TestStatus.PASSED, now)));
+    }
+}